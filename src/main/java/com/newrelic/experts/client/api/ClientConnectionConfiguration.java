@@ -5,12 +5,16 @@
 
 package com.newrelic.experts.client.api;
 
+import java.io.Serializable;
+
 /**
  * A bean for holding API agnostic connection configuration.
  * 
  * @author Scott DeWitt (sdewitt@newrelic.com)
  */
-public class ClientConnectionConfiguration {
+public class ClientConnectionConfiguration implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   private int connectionRequestTimeout = 2000;
   private int socketTimeout = 2000;
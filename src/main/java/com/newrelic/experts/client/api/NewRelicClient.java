@@ -8,6 +8,11 @@ package com.newrelic.experts.client.api;
 import com.newrelic.experts.client.model.ApplicationList;
 import com.newrelic.experts.client.model.Deployment;
 import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.client.model.LogBatch;
+import com.newrelic.experts.client.model.MetricBatch;
+import com.newrelic.experts.client.model.SpanBatch;
+
+import java.util.Map;
 
 /**
  * A facade object for interfacing with New Relic ReST APIs.
@@ -60,6 +65,134 @@ public interface NewRelicClient {
       Event[] events
   ) throws NewRelicClientException;
   
+  /**
+   * Encode the given set of custom {@code events} into the gzip'ed request
+   * body {@link #recordEvents} posts to the Insights Insert API.
+   * 
+   * @param events the array of custom events to encode.
+   * @return the gzip'ed JSON request body.
+   * @throws NewRelicClientException if the events can not be encoded.
+   */
+  byte[] encodeEvents(Event[] events) throws NewRelicClientException;
+  
+  /**
+   * Record custom events encoded by {@link #encodeEvents(Event[])} in
+   * Insights.
+   * 
+   * @param connConfig the connection configuration for the Insights Insert API.
+   * @param rpmAccountId the RPM account ID.
+   * @param insightsApiInsertKey the Insights Insert API key for the
+   *        corresponding {@code rpmAccountId}.
+   * @param payload the encoded events to record.
+   * @throws NewRelicClientException if an error occurs with the connection
+   *        or if their is a ReST error. 
+   */
+  void recordEncodedEvents(
+      ClientConnectionConfiguration connConfig,
+      String rpmAccountId,
+      String insightsApiInsertKey,
+      byte[] payload
+  ) throws NewRelicClientException;
+  
+  /**
+   * Export the given set of custom {@code events} as OTLP log records to an
+   * OpenTelemetry collector using the OTLP/HTTP protobuf encoding.
+   * 
+   * @param connConfig the connection configuration for the collector.
+   * @param endpoint the OTLP/HTTP logs endpoint URL, for example
+   *        {@code http://localhost:4318/v1/logs}.
+   * @param resourceAttributes the attributes of the OTLP resource the
+   *        events are reported for.
+   * @param events the array of custom events to export.
+   * @param gzip {@code true} if the request body should be gzip'ed.
+   * @throws NewRelicClientException if an error occurs with the connection
+   *        or if the collector rejects the request.
+   */
+  void recordOtlpLogs(
+      ClientConnectionConfiguration connConfig,
+      String endpoint,
+      Map<String, Object> resourceAttributes,
+      Event[] events,
+      boolean gzip
+  ) throws NewRelicClientException;
+  
+  /**
+   * Record the given {@code batches} of dimensional metrics using the
+   * Metric API.
+   * 
+   * @param connConfig the connection configuration for the Metric API.
+   * @param insightsApiInsertKey the Insights Insert API key to send the
+   *        metrics with.
+   * @param batches the metric batches to record.
+   * @throws NewRelicClientException if an error occurs with the connection
+   *        or if their is a ReST error. 
+   */
+  void recordMetrics(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      MetricBatch[] batches
+  ) throws NewRelicClientException;
+  
+  /**
+   * Record the given {@code batches} of spans using the Trace API in the
+   * New Relic format.
+   * 
+   * @param connConfig the connection configuration for the Trace API.
+   * @param insightsApiInsertKey the Insights Insert API key to send the
+   *        spans with.
+   * @param batches the span batches to record.
+   * @throws NewRelicClientException if an error occurs with the connection
+   *        or if their is a ReST error. 
+   */
+  void recordSpans(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      SpanBatch[] batches
+  ) throws NewRelicClientException;
+  
+  /**
+   * Record the given {@code batches} of log records using the Log API.
+   * 
+   * @param connConfig the connection configuration for the Log API.
+   * @param insightsApiInsertKey the Insights Insert API key to send the
+   *        log records with.
+   * @param batches the log batches to record.
+   * @throws NewRelicClientException if an error occurs with the connection
+   *        or if their is a ReST error. 
+   */
+  void recordLogs(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      LogBatch[] batches
+  ) throws NewRelicClientException;
+  
+  /**
+   * Encode the given log {@code batches} into the gzip'ed request body
+   * {@link #recordLogs} posts to the Log API.
+   * 
+   * @param batches the log batches to encode.
+   * @return the gzip'ed JSON request body.
+   * @throws NewRelicClientException if the batches can not be encoded.
+   */
+  byte[] encodeLogs(LogBatch[] batches) throws NewRelicClientException;
+  
+  /**
+   * Record log records encoded by {@link #encodeLogs(LogBatch[])} using the
+   * Log API.
+   * 
+   * @param connConfig the connection configuration for the Log API.
+   * @param insightsApiInsertKey the Insights Insert API key to send the
+   *        log records with.
+   * @param payload the encoded log batches to record.
+   * @throws NewRelicClientException if an error occurs with the connection
+   *        or if their is a ReST error. 
+   */
+  void recordEncodedLogs(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      byte[] payload
+  ) throws NewRelicClientException;
+  
   /**
    * Record an APM deployment marker for the application {@code appId}.
    * 
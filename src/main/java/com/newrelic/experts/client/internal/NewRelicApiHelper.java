@@ -5,10 +5,13 @@
 
 package com.newrelic.experts.client.internal;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.newrelic.experts.client.api.ClientConnectionConfiguration;
 import com.newrelic.experts.client.api.NewRelicClientException;
 import com.newrelic.experts.client.api.ProxyConfiguration;
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.client.model.EventArrayWriter;
 import com.newrelic.experts.jenkins.Messages;
 
 import org.apache.http.Header;
@@ -380,10 +383,9 @@ public class NewRelicApiHelper {
   /**
    * POST the {@code payload} and return a value of type {@code valueType}.
    * <p>
-   * The {@code payload} to send will be mapped to the POST body using a
-   * Jackson {@link ObjectMapper}. The return value (if any) from the POST
-   * will be mapped to a return value of type {@code valueType} also using
-   * a Jackson {@link ObjectMapper}.
+   * The {@code payload} to send will be encoded into the POST body by
+   * {@link #encode(Object, boolean)} and posted by
+   * {@link #postEncoded(CloseableHttpClient, URI, byte[], Class, boolean)}.
    * </p>
    * 
    * @param <V> The type of the return value.
@@ -393,7 +395,8 @@ public class NewRelicApiHelper {
    * @param valueType The expected type of the return payload.
    * @param gzip A flag to control if the payload will be gzip'ed.
    * @return The return payload of the POST converted to a {@code valueType}
-   *     instance using a Jackson {@link ObjectMapper}.
+   *     instance using a Jackson {@link ObjectMapper}, or {@code null} if
+   *     {@code valueType} is {@code null}.
    * @throws NewRelicClientException if any type of error occurs during the
    *     POST.
    */
@@ -404,7 +407,78 @@ public class NewRelicApiHelper {
       Class<V> valueType,
       boolean gzip
   ) throws NewRelicClientException {
-    final String methodName = "post";
+    return postEncoded(client, uri, encode(payload, gzip), valueType, gzip);
+  }
+  
+  /**
+   * Encode the {@code payload} into a JSON POST body.
+   * <p>
+   * The {@code payload} will be mapped to JSON using a Jackson
+   * {@link ObjectMapper}, except for {@link Event} arrays which are
+   * streamed by the {@link EventArrayWriter}.
+   * </p>
+   * 
+   * @param payload The payload to encode.
+   * @param gzip A flag to control if the body will be gzip'ed.
+   * @return The encoded POST body.
+   * @throws NewRelicClientException if the payload can not be encoded.
+   */
+  public byte[] encode(Object payload, boolean gzip) throws NewRelicClientException {
+    try {
+      ByteArrayOutputStream jsonBytes = new ByteArrayOutputStream();
+      OutputStream out = (
+          gzip ? new GZIPOutputStream(jsonBytes) : jsonBytes
+      );
+      
+      if (payload instanceof Event[]) {
+        JsonGenerator gen = this.mapper.getFactory().createGenerator(out);
+        EventArrayWriter.write(gen, (Event[])payload);
+        gen.flush();
+      } else {
+        out.write(this.mapper.writeValueAsBytes(payload));
+      }
+      out.flush();
+      out.close();
+      
+      return jsonBytes.toByteArray();
+    } catch (IOException exc) {
+      LOGGER.log(Level.SEVERE,
+          String.format("The payload could not be encoded: %s",
+              exc.getClass().getName())
+      );
+      throw new NewRelicClientException(exc);
+    }
+  }
+  
+  /**
+   * POST a JSON {@code body} encoded by {@link #encode(Object, boolean)} and
+   * return a value of type {@code valueType}.
+   * <p>
+   * The return value (if any) from the POST will be mapped to a return
+   * value of type {@code valueType} using a Jackson {@link ObjectMapper}.
+   * If {@code valueType} is {@code null} the response body is ignored.
+   * </p>
+   * 
+   * @param <V> The type of the return value.
+   * @param client The HTTP client to use.
+   * @param uri The URI to POST to.
+   * @param body The encoded JSON body to send.
+   * @param valueType The expected type of the return payload.
+   * @param gzip {@code true} if the body is gzip'ed.
+   * @return The return payload of the POST converted to a {@code valueType}
+   *     instance using a Jackson {@link ObjectMapper}, or {@code null} if
+   *     {@code valueType} is {@code null}.
+   * @throws NewRelicClientException if any type of error occurs during the
+   *     POST.
+   */
+  public <V> V postEncoded(
+      CloseableHttpClient client,
+      URI uri,
+      byte[] body,
+      Class<V> valueType,
+      boolean gzip
+  ) throws NewRelicClientException {
+    final String methodName = "postEncoded";
     final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
     final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
 
@@ -426,15 +500,6 @@ public class NewRelicApiHelper {
     HttpEntity entity = null;
     
     try {
-      ByteArrayOutputStream jsonBytes = new ByteArrayOutputStream();
-      OutputStream out = (
-          gzip ? new GZIPOutputStream(jsonBytes) : jsonBytes
-      );
-      
-      out.write(this.mapper.writeValueAsBytes(payload));
-      out.flush();
-      out.close();
-      
       if (isLoggingDebug) {
         LOGGER.finest(
             String.format(
@@ -445,7 +510,7 @@ public class NewRelicApiHelper {
       }
       
       EntityBuilder entityBuilder = EntityBuilder.create()
-          .setBinary(jsonBytes.toByteArray())
+          .setBinary(body)
           .setContentType(ContentType.APPLICATION_JSON);
       
       if (gzip) {
@@ -468,6 +533,10 @@ public class NewRelicApiHelper {
             )
         );
       }
+      
+      if (valueType == null) {
+        return null;
+      }
 
       return this.mapper.readValue(
           new BufferedReader(new InputStreamReader(entity.getContent())), 
@@ -496,6 +565,110 @@ public class NewRelicApiHelper {
     }
   }
   
+  /**
+   * POST an already encoded binary {@code payload} and discard the response
+   * body.
+   * 
+   * @param client The HTTP client to use.
+   * @param uri The URI to POST to.
+   * @param payload The encoded payload to send.
+   * @param contentType The content type of the payload.
+   * @param gzip A flag to control if the payload will be gzip'ed.
+   * @throws NewRelicClientException if any type of error occurs during the
+   *     POST or the response status is not a 2xx status.
+   */
+  public void postBytes(
+      CloseableHttpClient client,
+      URI uri,
+      byte[] payload,
+      ContentType contentType,
+      boolean gzip
+  ) throws NewRelicClientException {
+    final String methodName = "postBytes";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName, new Object [] {
+          uri
+      });
+    }
+    
+    HttpPost postRequest = new HttpPost(uri);
+    CloseableHttpResponse response = null;
+    HttpEntity entity = null;
+    
+    try {
+      byte[] body = payload;
+      
+      if (gzip) {
+        ByteArrayOutputStream gzipBytes =
+            new ByteArrayOutputStream(payload.length / 4 + 64);
+        OutputStream out = new GZIPOutputStream(gzipBytes);
+        out.write(payload);
+        out.close();
+        body = gzipBytes.toByteArray();
+      }
+      
+      if (isLoggingDebug) {
+        LOGGER.finest(String.format(
+            "Posting %d bytes (%d encoded) to %s",
+            payload.length,
+            body.length,
+            postRequest.getURI()
+        ));
+      }
+      
+      EntityBuilder entityBuilder = EntityBuilder.create()
+          .setBinary(body)
+          .setContentType(contentType);
+      
+      if (gzip) {
+        entityBuilder.setContentEncoding("gzip");
+      }
+      
+      postRequest.setEntity(entityBuilder.build());
+      response = client.execute(postRequest);
+      int status = response.getStatusLine().getStatusCode();
+      entity = response.getEntity();
+      if (status < 200 || status >= 300) {
+        LOGGER.log(Level.SEVERE,
+            String.format("The HTTP post failed with status code %s",
+                response.getStatusLine()
+            )
+        );
+        throw new NewRelicClientException(
+            Messages.NewRelicApiHelper_errors_HttpPostError(
+              response.getStatusLine()
+            )
+        );
+      }
+    } catch (UnsupportedOperationException | IOException exc) {
+      if (exc instanceof NewRelicClientException) {
+        throw (NewRelicClientException)exc;
+      }
+      LOGGER.log(Level.SEVERE,
+          String.format("The HTTP post failed with exception: %s",
+              exc.getClass().getName())
+      );
+      throw new NewRelicClientException(exc);
+    } finally {
+      if (entity != null) {
+        EntityUtils.consumeQuietly(entity);
+      }
+      if (response != null) {
+        try {
+          response.close();
+        } catch (IOException ignore) {
+          LOGGER.log(Level.WARNING, "Ignoring exception on response close");
+        }
+      }
+      if (isLoggingTrace) {
+        LOGGER.exiting(CLASS_NAME, methodName);
+      }
+    }
+  }
+  
   private <V> List<V> getHelper(
       CloseableHttpClient client,
       URI uri,
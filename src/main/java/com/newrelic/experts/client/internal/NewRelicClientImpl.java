@@ -14,14 +14,24 @@ import com.newrelic.experts.client.model.ApplicationList;
 import com.newrelic.experts.client.model.Deployment;
 import com.newrelic.experts.client.model.Event;
 import com.newrelic.experts.client.model.InsightsResponse;
+import com.newrelic.experts.client.model.LogBatch;
+import com.newrelic.experts.client.model.MetricBatch;
+import com.newrelic.experts.client.model.MetricResponse;
+import com.newrelic.experts.client.model.SpanBatch;
 import com.newrelic.experts.jenkins.Messages;
 
+import org.apache.http.Header;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,6 +46,18 @@ public class NewRelicClientImpl implements NewRelicClient {
   private static final String CLASS_NAME = NewRelicClientImpl.class.getName();
   private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
   
+  private static final String METRIC_API_URL =
+      "https://metric-api.newrelic.com/metric/v1";
+  
+  private static final String TRACE_API_URL =
+      "https://trace-api.newrelic.com/trace/v1";
+  
+  private static final String LOG_API_URL =
+      "https://log-api.newrelic.com/log/v1";
+  
+  private static final ContentType OTLP_PROTOBUF =
+      ContentType.create("application/x-protobuf");
+
   private NewRelicApiHelper apiHelper;
 
   public NewRelicClientImpl(NewRelicApiHelper apiHelper) {
@@ -64,7 +86,31 @@ public class NewRelicClientImpl implements NewRelicClient {
       String insightsApiInsertKey,
       Event[] events
   ) throws NewRelicClientException {
-    final String methodName = "recordEvents";
+    if (LOGGER.isLoggable(Level.FINEST)) {
+      LOGGER.finest(String.format("Sending %d events", events.length));
+    }
+
+    recordEncodedEvents(
+        connConfig,
+        rpmAccountId,
+        insightsApiInsertKey,
+        encodeEvents(events)
+    );
+  }
+
+  @Override
+  public byte[] encodeEvents(Event[] events) throws NewRelicClientException {
+    return this.apiHelper.encode(events, true);
+  }
+
+  @Override
+  public void recordEncodedEvents(
+      ClientConnectionConfiguration connConfig,
+      String rpmAccountId,
+      String insightsApiInsertKey,
+      byte[] payload
+  ) throws NewRelicClientException {
+    final String methodName = "recordEncodedEvents";
     final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
     final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
     
@@ -86,13 +132,13 @@ public class NewRelicClientImpl implements NewRelicClient {
       );
       
       if (isLoggingDebug) {
-        LOGGER.finest(String.format("Sending %d events", events.length));
+        LOGGER.finest(String.format("Sending %d bytes of events", payload.length));
       }
 
-      InsightsResponse result = this.apiHelper.post(
+      InsightsResponse result = this.apiHelper.postEncoded(
           client,
           this.apiHelper.buildUri(insightsApiUrl, null),
-          events,
+          payload,
           InsightsResponse.class,
           true
       );
@@ -104,7 +150,7 @@ public class NewRelicClientImpl implements NewRelicClient {
       }
       
       if (isLoggingDebug) {
-        LOGGER.finest(String.format("%d events sent ", events.length));
+        LOGGER.finest(String.format("%d bytes of events sent ", payload.length));
       }
     } catch (URISyntaxException exc) {
       LOGGER.log(Level.SEVERE, "Invalid URL for Insights Insert API");
@@ -124,6 +170,267 @@ public class NewRelicClientImpl implements NewRelicClient {
     }
   }
 
+  @Override
+  public void recordOtlpLogs(
+      ClientConnectionConfiguration connConfig,
+      String endpoint,
+      Map<String, Object> resourceAttributes,
+      Event[] events,
+      boolean gzip
+  ) throws NewRelicClientException {
+    final String methodName = "recordOtlpLogs";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+    
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName, new Object[] {
+          endpoint
+      });
+    }
+    
+    CloseableHttpClient client = null;
+
+    try {
+      byte[] payload = OtlpLogsEncoder.encode(
+          resourceAttributes,
+          events,
+          System.currentTimeMillis()
+      );
+      
+      client = this.apiHelper.createHttpClient(
+          connConfig,
+          Collections.<Header>emptyList()
+      );
+      
+      if (isLoggingDebug) {
+        LOGGER.finest(String.format(
+            "Exporting %d events as %d bytes of OTLP logs",
+            events.length,
+            payload.length
+        ));
+      }
+
+      this.apiHelper.postBytes(
+          client,
+          this.apiHelper.buildUri(endpoint, null),
+          payload,
+          OTLP_PROTOBUF,
+          gzip
+      );
+    } catch (URISyntaxException exc) {
+      LOGGER.log(Level.SEVERE, "Invalid URL for the OTLP logs endpoint");
+      throw new NewRelicClientException(
+          Messages.NewRelicClientImpl_errors_RecordOtlpLogsInvalidUri()
+      );
+    } finally {
+      if (client != null) {
+        try {
+          client.close();
+        } catch (IOException ignore) {
+          LOGGER.log(Level.WARNING, "Ignoring exception on closing client");
+        }
+      }
+      
+      if (isLoggingTrace) {
+        LOGGER.exiting(CLASS_NAME, methodName);
+      }
+    }
+  }
+
+  @Override
+  public void recordMetrics(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      MetricBatch[] batches
+  ) throws NewRelicClientException {
+    final String methodName = "recordMetrics";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+    
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+    
+    CloseableHttpClient client = null;
+
+    try {
+      client = this.apiHelper.createInsightsApiClient(
+          connConfig,
+          insightsApiInsertKey
+      );
+      
+      if (isLoggingDebug) {
+        LOGGER.finest(String.format("Sending %d metric batches", batches.length));
+      }
+
+      MetricResponse result = this.apiHelper.post(
+          client,
+          this.apiHelper.buildUri(METRIC_API_URL, null),
+          batches,
+          MetricResponse.class,
+          true
+      );
+      if (result == null || result.getRequestId() == null) {
+        LOGGER.log(Level.SEVERE, "The metrics could not be sent");
+        throw new NewRelicClientException(
+            Messages.NewRelicClientImpl_errors_RecordMetricsPostError()
+        );
+      }
+      
+      if (isLoggingDebug) {
+        LOGGER.finest(String.format(
+            "Metrics sent with request id %s",
+            result.getRequestId()
+        ));
+      }
+    } catch (URISyntaxException exc) {
+      LOGGER.log(Level.SEVERE, "Invalid URL for the Metric API");
+      throw new NewRelicClientException(
+          Messages.NewRelicClientImpl_errors_RecordMetricsInvalidUri()
+      );
+    } finally {
+      if (client != null) {
+        try {
+          client.close();
+        } catch (IOException ignore) {
+          LOGGER.log(Level.WARNING, "Ignoring exception on closing client");
+        }
+      }
+      
+      if (isLoggingTrace) {
+        LOGGER.exiting(CLASS_NAME, methodName);
+      }
+    }
+  }
+
+  @Override
+  public void recordSpans(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      SpanBatch[] batches
+  ) throws NewRelicClientException {
+    final String methodName = "recordSpans";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+    
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+    
+    CloseableHttpClient client = null;
+
+    try {
+      client = this.apiHelper.createHttpClient(
+          connConfig,
+          Arrays.<Header>asList(
+              new BasicHeader("Api-Key", insightsApiInsertKey),
+              new BasicHeader("Data-Format", "newrelic"),
+              new BasicHeader("Data-Format-Version", "1")
+          )
+      );
+      
+      if (isLoggingDebug) {
+        LOGGER.finest(String.format("Sending %d span batches", batches.length));
+      }
+
+      this.apiHelper.post(
+          client,
+          this.apiHelper.buildUri(TRACE_API_URL, null),
+          batches,
+          null,
+          true
+      );
+    } catch (URISyntaxException exc) {
+      LOGGER.log(Level.SEVERE, "Invalid URL for the Trace API");
+      throw new NewRelicClientException(
+          Messages.NewRelicClientImpl_errors_RecordSpansInvalidUri()
+      );
+    } finally {
+      if (client != null) {
+        try {
+          client.close();
+        } catch (IOException ignore) {
+          LOGGER.log(Level.WARNING, "Ignoring exception on closing client");
+        }
+      }
+      
+      if (isLoggingTrace) {
+        LOGGER.exiting(CLASS_NAME, methodName);
+      }
+    }
+  }
+
+  @Override
+  public void recordLogs(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      LogBatch[] batches
+  ) throws NewRelicClientException {
+    if (LOGGER.isLoggable(Level.FINEST)) {
+      LOGGER.finest(String.format("Sending %d log batches", batches.length));
+    }
+
+    recordEncodedLogs(connConfig, insightsApiInsertKey, encodeLogs(batches));
+  }
+
+  @Override
+  public byte[] encodeLogs(LogBatch[] batches) throws NewRelicClientException {
+    return this.apiHelper.encode(batches, true);
+  }
+
+  @Override
+  public void recordEncodedLogs(
+      ClientConnectionConfiguration connConfig,
+      String insightsApiInsertKey,
+      byte[] payload
+  ) throws NewRelicClientException {
+    final String methodName = "recordEncodedLogs";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+    
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+    
+    CloseableHttpClient client = null;
+
+    try {
+      client = this.apiHelper.createInsightsApiClient(
+          connConfig,
+          insightsApiInsertKey
+      );
+      
+      if (isLoggingDebug) {
+        LOGGER.finest(String.format("Sending %d bytes of log batches", payload.length));
+      }
+
+      this.apiHelper.postEncoded(
+          client,
+          this.apiHelper.buildUri(LOG_API_URL, null),
+          payload,
+          null,
+          true
+      );
+    } catch (URISyntaxException exc) {
+      LOGGER.log(Level.SEVERE, "Invalid URL for the Log API");
+      throw new NewRelicClientException(
+          Messages.NewRelicClientImpl_errors_RecordLogsInvalidUri()
+      );
+    } finally {
+      if (client != null) {
+        try {
+          client.close();
+        } catch (IOException ignore) {
+          LOGGER.log(Level.WARNING, "Ignoring exception on closing client");
+        }
+      }
+      
+      if (isLoggingTrace) {
+        LOGGER.exiting(CLASS_NAME, methodName);
+      }
+    }
+  }
+
   @Override
   public Deployment recordDeployment(
       ClientConnectionConfiguration connConfig,
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.internal;
+
+import com.newrelic.experts.client.model.Event;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encodes {@link Event}s as an OTLP {@code ExportLogsServiceRequest} in the
+ * protocol buffers wire format.
+ * <p>
+ * All events are written as {@code INFO} log records of a single resource
+ * and instrumentation scope.  The event type becomes the log record body,
+ * the {@code timestamp} attribute becomes the record time, or the observed
+ * time is set if the event has no timestamp, and every other attribute
+ * becomes a typed log record attribute.  Attributes which have the
+ * same value as a resource attribute are only written once, on the
+ * resource.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+final class OtlpLogsEncoder implements Event.AttributeVisitor {
+
+  static final String SCOPE_NAME = "com.newrelic.experts.jenkins";
+
+  // ExportLogsServiceRequest
+  private static final int REQUEST_RESOURCE_LOGS = 1;
+  // ResourceLogs
+  private static final int RESOURCE_LOGS_RESOURCE = 1;
+  private static final int RESOURCE_LOGS_SCOPE_LOGS = 2;
+  // Resource
+  private static final int RESOURCE_ATTRIBUTES = 1;
+  // ScopeLogs
+  private static final int SCOPE_LOGS_SCOPE = 1;
+  private static final int SCOPE_LOGS_LOG_RECORDS = 2;
+  // InstrumentationScope
+  private static final int SCOPE_NAME_FIELD = 1;
+  // LogRecord
+  private static final int LOG_RECORD_TIME_UNIX_NANO = 1;
+  private static final int LOG_RECORD_SEVERITY_NUMBER = 2;
+  private static final int LOG_RECORD_BODY = 5;
+  private static final int LOG_RECORD_ATTRIBUTES = 6;
+  private static final int LOG_RECORD_OBSERVED_TIME_UNIX_NANO = 11;
+  // KeyValue
+  private static final int KEY_VALUE_KEY = 1;
+  private static final int KEY_VALUE_VALUE = 2;
+  // AnyValue
+  private static final int ANY_VALUE_STRING = 1;
+  private static final int ANY_VALUE_BOOL = 2;
+  private static final int ANY_VALUE_INT = 3;
+  private static final int ANY_VALUE_DOUBLE = 4;
+
+  private static final int SEVERITY_NUMBER_INFO = 9;
+  private static final byte[] SCOPE_NAME_BYTES = utf8(SCOPE_NAME);
+
+  private static final long NANOS_PER_MILLI = 1000000L;
+
+  private final ProtobufWriter writer;
+  private final Map<String, Object> resourceAttributes;
+  private final Map<String, byte[]> keyBytes = new HashMap<String, byte[]>();
+  private boolean hasTimestamp;
+
+  private OtlpLogsEncoder(int eventCount, Map<String, Object> resourceAttributes) {
+    this.writer = new ProtobufWriter(eventCount * 512);
+    this.resourceAttributes = resourceAttributes;
+  }
+
+  private static byte[] utf8(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Encode {@code events} as an OTLP {@code ExportLogsServiceRequest}.
+   *
+   * @param resourceAttributes the attributes of the resource which produced
+   *        the events.
+   * @param events the events to encode.
+   * @param observedTimeMillis the time the events were collected.
+   * @return the encoded request.
+   */
+  static byte[] encode(
+      Map<String, Object> resourceAttributes,
+      Event[] events,
+      long observedTimeMillis
+  ) {
+    OtlpLogsEncoder encoder = new OtlpLogsEncoder(events.length, resourceAttributes);
+    ProtobufWriter writer = encoder.writer;
+    long observedTimeNanos = observedTimeMillis * NANOS_PER_MILLI;
+
+    writer.startMessage(REQUEST_RESOURCE_LOGS);
+
+    writer.startMessage(RESOURCE_LOGS_RESOURCE);
+    for (Map.Entry<String, Object> entry : resourceAttributes.entrySet()) {
+      encoder.writeAttribute(RESOURCE_ATTRIBUTES, entry.getKey(), entry.getValue());
+    }
+    writer.endMessage();
+
+    writer.startMessage(RESOURCE_LOGS_SCOPE_LOGS);
+    writer.startMessage(SCOPE_LOGS_SCOPE);
+    writer.writeBytes(SCOPE_NAME_FIELD, SCOPE_NAME_BYTES);
+    writer.endMessage();
+
+    for (Event event : events) {
+      writer.startMessage(SCOPE_LOGS_LOG_RECORDS);
+      writer.writeVarint(LOG_RECORD_SEVERITY_NUMBER, SEVERITY_NUMBER_INFO);
+      encoder.hasTimestamp = false;
+      try {
+        event.visit(encoder);
+      } catch (IOException exc) {
+        // The encoder writes to memory and never throws.
+        throw new UncheckedIOException(exc);
+      }
+      if (!encoder.hasTimestamp) {
+        writer.writeFixed64(LOG_RECORD_OBSERVED_TIME_UNIX_NANO, observedTimeNanos);
+      }
+      writer.endMessage();
+    }
+
+    writer.endMessage();
+    writer.endMessage();
+
+    return writer.toByteArray();
+  }
+
+  private byte[] keyBytes(String key) {
+    byte[] bytes = this.keyBytes.get(key);
+
+    if (bytes == null) {
+      bytes = utf8(key);
+      this.keyBytes.put(key, bytes);
+    }
+
+    return bytes;
+  }
+
+  private boolean isResourceAttribute(String key) {
+    return this.resourceAttributes.containsKey(key);
+  }
+
+  private boolean isResourceValue(String key, Object value) {
+    return Objects.equals(this.resourceAttributes.get(key), value);
+  }
+
+  private void writeAttribute(int field, String key, Object value) {
+    if (value == null) {
+      return;
+    }
+
+    this.writer.startMessage(field);
+    this.writer.writeBytes(KEY_VALUE_KEY, keyBytes(key));
+    this.writer.startMessage(KEY_VALUE_VALUE);
+    writeAnyValue(value);
+    this.writer.endMessage();
+    this.writer.endMessage();
+  }
+
+  private void writeAnyValue(Object value) {
+    if (value instanceof String) {
+      this.writer.writeBytes(ANY_VALUE_STRING, utf8((String)value));
+    } else if (value instanceof Boolean) {
+      this.writer.writeBool(ANY_VALUE_BOOL, (Boolean)value);
+    } else if (
+        value instanceof Double
+        || value instanceof Float
+        || value instanceof BigDecimal
+    ) {
+      this.writer.writeDouble(ANY_VALUE_DOUBLE, ((Number)value).doubleValue());
+    } else if (value instanceof Number) {
+      this.writer.writeVarint(ANY_VALUE_INT, ((Number)value).longValue());
+    } else {
+      this.writer.writeBytes(ANY_VALUE_STRING, utf8(value.toString()));
+    }
+  }
+
+  private void startAttribute(String key) {
+    this.writer.startMessage(LOG_RECORD_ATTRIBUTES);
+    this.writer.writeBytes(KEY_VALUE_KEY, keyBytes(key));
+    this.writer.startMessage(KEY_VALUE_VALUE);
+  }
+
+  private void endAttribute() {
+    this.writer.endMessage();
+    this.writer.endMessage();
+  }
+
+  @Override
+  public void visitLong(String key, long value) {
+    if ("timestamp".equals(key)) {
+      this.writer.writeFixed64(LOG_RECORD_TIME_UNIX_NANO, value * NANOS_PER_MILLI);
+      this.hasTimestamp = true;
+      return;
+    }
+    if (isResourceAttribute(key) && isResourceValue(key, value)) {
+      return;
+    }
+    startAttribute(key);
+    this.writer.writeVarint(ANY_VALUE_INT, value);
+    endAttribute();
+  }
+
+  @Override
+  public void visitInt(String key, int value) {
+    if (isResourceAttribute(key) && isResourceValue(key, value)) {
+      return;
+    }
+    startAttribute(key);
+    this.writer.writeVarint(ANY_VALUE_INT, value);
+    endAttribute();
+  }
+
+  @Override
+  public void visitDouble(String key, double value) {
+    if (isResourceAttribute(key) && isResourceValue(key, value)) {
+      return;
+    }
+    startAttribute(key);
+    this.writer.writeDouble(ANY_VALUE_DOUBLE, value);
+    endAttribute();
+  }
+
+  @Override
+  public void visitBoolean(String key, boolean value) {
+    if (isResourceAttribute(key) && isResourceValue(key, value)) {
+      return;
+    }
+    startAttribute(key);
+    this.writer.writeBool(ANY_VALUE_BOOL, value);
+    endAttribute();
+  }
+
+  @Override
+  public void visitObject(String key, Object value) {
+    if (value != null && Event.PROPERTY_NAME_EVENT_TYPE.equals(key)) {
+      this.writer.startMessage(LOG_RECORD_BODY);
+      writeAnyValue(value);
+      this.writer.endMessage();
+      return;
+    }
+    if (isResourceAttribute(key) && isResourceValue(key, value)) {
+      return;
+    }
+    writeAttribute(LOG_RECORD_ATTRIBUTES, key, value);
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.internal;
+
+import java.util.Arrays;
+
+/**
+ * A minimal protocol buffers wire format writer.
+ * <p>
+ * Only the field types needed to encode OTLP requests are supported.
+ * Embedded messages are written in place: {@link #startMessage(int)} writes
+ * the field tag and remembers where the message body starts, and
+ * {@link #endMessage()} inserts the body length in front of the body once
+ * it is known.  Nothing is buffered outside of the single backing array.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+final class ProtobufWriter {
+
+  private static final int WIRE_TYPE_VARINT = 0;
+  private static final int WIRE_TYPE_FIXED64 = 1;
+  private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+  private static final int MAX_DEPTH = 16;
+
+  private byte[] buffer;
+  private int position;
+  private final int[] messageStarts = new int[MAX_DEPTH];
+  private int depth;
+
+  ProtobufWriter(int initialCapacity) {
+    this.buffer = new byte[Math.max(initialCapacity, 64)];
+  }
+
+  private void ensureCapacity(int extra) {
+    if (this.position + extra > this.buffer.length) {
+      this.buffer = Arrays.copyOf(
+          this.buffer,
+          Math.max(this.buffer.length << 1, this.position + extra)
+      );
+    }
+  }
+
+  private static int varintSize(long value) {
+    int size = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      size += 1;
+    }
+    return size;
+  }
+
+  private void writeRawVarint(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      this.buffer[this.position++] = (byte)((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    this.buffer[this.position++] = (byte)value;
+  }
+
+  private void writeTag(int field, int wireType) {
+    writeRawVarint((field << 3) | wireType);
+  }
+
+  /**
+   * Write a {@code uint64}, {@code int64}, {@code int32} or {@code enum}
+   * field.
+   */
+  void writeVarint(int field, long value) {
+    writeTag(field, WIRE_TYPE_VARINT);
+    writeRawVarint(value);
+  }
+
+  void writeBool(int field, boolean value) {
+    writeVarint(field, value ? 1 : 0);
+  }
+
+  /**
+   * Write a {@code fixed64} field.
+   */
+  void writeFixed64(int field, long value) {
+    writeTag(field, WIRE_TYPE_FIXED64);
+    ensureCapacity(8);
+    for (int shift = 0; shift < 64; shift += 8) {
+      this.buffer[this.position++] = (byte)(value >>> shift);
+    }
+  }
+
+  void writeDouble(int field, double value) {
+    writeFixed64(field, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Write a {@code string} or {@code bytes} field from already encoded
+   * bytes.
+   */
+  void writeBytes(int field, byte[] value) {
+    writeTag(field, WIRE_TYPE_LENGTH_DELIMITED);
+    writeRawVarint(value.length);
+    ensureCapacity(value.length);
+    System.arraycopy(value, 0, this.buffer, this.position, value.length);
+    this.position += value.length;
+  }
+
+  /**
+   * Start an embedded message field.  Every call must be matched by a call
+   * to {@link #endMessage()}.
+   */
+  void startMessage(int field) {
+    if (this.depth == MAX_DEPTH) {
+      throw new IllegalStateException("Protobuf messages nested too deeply");
+    }
+    writeTag(field, WIRE_TYPE_LENGTH_DELIMITED);
+    this.messageStarts[this.depth++] = this.position;
+  }
+
+  /**
+   * End the most recently started embedded message by inserting its length
+   * in front of its body.
+   */
+  void endMessage() {
+    int start = this.messageStarts[--this.depth];
+    int length = this.position - start;
+    int lengthSize = varintSize(length);
+
+    ensureCapacity(lengthSize);
+    System.arraycopy(this.buffer, start, this.buffer, start + lengthSize, length);
+
+    int end = this.position + lengthSize;
+
+    this.position = start;
+    writeRawVarint(length);
+    this.position = end;
+  }
+
+  int size() {
+    return this.position;
+  }
+
+  byte[] toByteArray() {
+    if (this.depth != 0) {
+      throw new IllegalStateException("Unterminated protobuf message");
+    }
+    return Arrays.copyOf(this.buffer, this.position);
+  }
+}
@@ -5,21 +5,533 @@
 
 package com.newrelic.experts.client.model;
 
-import java.util.HashMap;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A {@link java.util.Map} bean for building custom events.
- * 
+ * <p>
+ * Attributes are kept in parallel arrays instead of hash table entries.
+ * Attribute names are interned through the {@link EventSchema} of the event
+ * type so all events of a type share the same name instances.  {@code long},
+ * {@code int}, {@code double} and {@code boolean} values are stored unboxed,
+ * whether they are added with one of the typed {@code put} methods or as
+ * boxed values through the {@link Map} interface, and are only boxed again
+ * when read through the {@link Map} interface.  Events are serialized to JSON
+ * by {@link EventSerializer}, or by {@link EventArrayWriter} when a whole
+ * batch is posted, without boxing.
+ * </p>
+ * <p>
+ * Attribute lookups are linear in the number of attributes, which is
+ * cheaper than hashing for the few dozen attributes an event carries.
+ * </p>
+ * <p>
+ * Once an event is complete it can be {@link #freeze() frozen} and then
+ * shared by several readers without copying it.
+ * </p>
+ *
  * @author Scott DeWitt (sdewitt@newrelic.com)
  */
-public class Event extends HashMap<String, Object> {
+@JsonSerialize(using = EventSerializer.class)
+public class Event extends AbstractMap<String, Object> implements Serializable {
 
   private static final long serialVersionUID = -5258963477481799100L;
-  
+
   public static final String PROPERTY_NAME_EVENT_TYPE = "eventType";
 
+  static final byte KIND_OBJECT = 0;
+  static final byte KIND_LONG = 1;
+  static final byte KIND_INT = 2;
+  static final byte KIND_DOUBLE = 3;
+  static final byte KIND_BOOLEAN = 4;
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private transient EventSchema schema;
+  private transient String[] keys;
+  private transient byte[] kinds;
+  private transient long[] primitives;
+  private transient Object[] objects;
+  private transient int size;
+  private transient int modCount;
+  private transient boolean frozen;
+  private transient Set<Map.Entry<String, Object>> entrySet;
+
   public Event(String eventType) {
+    init(eventType, DEFAULT_CAPACITY);
     put(PROPERTY_NAME_EVENT_TYPE, eventType);
   }
 
-}
\ No newline at end of file
+  private void init(String eventType, int capacity) {
+    this.schema = EventSchema.forEventType(eventType);
+    this.keys = new String[capacity];
+    this.kinds = new byte[capacity];
+    this.primitives = new long[capacity];
+    this.objects = new Object[capacity];
+    this.size = 0;
+  }
+
+  private int indexOf(Object key) {
+    for (int index = 0; index < this.size; index += 1) {
+      if (this.keys[index] == key) {
+        return index;
+      }
+    }
+    if (key instanceof String) {
+      for (int index = 0; index < this.size; index += 1) {
+        if (this.keys[index].equals(key)) {
+          return index;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private void checkMutable() {
+    if (this.frozen) {
+      throw new UnsupportedOperationException("Event is frozen");
+    }
+  }
+
+  private int slotFor(String key) {
+    checkMutable();
+    if (key == null) {
+      throw new NullPointerException("Event attribute names may not be null");
+    }
+
+    int index = indexOf(key);
+
+    if (index >= 0) {
+      return index;
+    }
+
+    if (this.size == this.keys.length) {
+      int capacity = this.size + (this.size >> 1) + 1;
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.kinds = Arrays.copyOf(this.kinds, capacity);
+      this.primitives = Arrays.copyOf(this.primitives, capacity);
+      this.objects = Arrays.copyOf(this.objects, capacity);
+    }
+
+    index = this.size;
+    this.keys[index] = this.schema.intern(key);
+    this.size += 1;
+    this.modCount += 1;
+    return index;
+  }
+
+  private Object valueAt(int index) {
+    switch (this.kinds[index]) {
+      case KIND_LONG:
+        return this.primitives[index];
+      case KIND_INT:
+        return (int)this.primitives[index];
+      case KIND_DOUBLE:
+        return Double.longBitsToDouble(this.primitives[index]);
+      case KIND_BOOLEAN:
+        return this.primitives[index] != 0;
+      default:
+        return this.objects[index];
+    }
+  }
+
+  private void setPrimitive(int index, byte kind, long value) {
+    this.kinds[index] = kind;
+    this.primitives[index] = value;
+    this.objects[index] = null;
+  }
+
+  /**
+   * Set a {@code long} attribute without boxing it.
+   *
+   * @param key the attribute name.
+   * @param value the attribute value.
+   */
+  public void put(String key, long value) {
+    setPrimitive(slotFor(key), KIND_LONG, value);
+  }
+
+  /**
+   * Set an {@code int} attribute without boxing it.
+   *
+   * @param key the attribute name.
+   * @param value the attribute value.
+   */
+  public void put(String key, int value) {
+    setPrimitive(slotFor(key), KIND_INT, value);
+  }
+
+  /**
+   * Set a {@code double} attribute without boxing it.
+   *
+   * @param key the attribute name.
+   * @param value the attribute value.
+   */
+  public void put(String key, double value) {
+    setPrimitive(slotFor(key), KIND_DOUBLE, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Set a {@code boolean} attribute without boxing it.
+   *
+   * @param key the attribute name.
+   * @param value the attribute value.
+   */
+  public void put(String key, boolean value) {
+    setPrimitive(slotFor(key), KIND_BOOLEAN, value ? 1 : 0);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int index = slotFor(key);
+    Object previous = valueAt(index);
+
+    if (value instanceof Long) {
+      setPrimitive(index, KIND_LONG, (Long)value);
+    } else if (value instanceof Integer) {
+      setPrimitive(index, KIND_INT, (Integer)value);
+    } else if (value instanceof Double) {
+      setPrimitive(
+          index,
+          KIND_DOUBLE,
+          Double.doubleToRawLongBits((Double)value)
+      );
+    } else if (value instanceof Boolean) {
+      setPrimitive(index, KIND_BOOLEAN, (Boolean)value ? 1 : 0);
+    } else {
+      this.kinds[index] = KIND_OBJECT;
+      this.primitives[index] = 0;
+      this.objects[index] = value;
+    }
+
+    return previous;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = indexOf(key);
+    return index >= 0 ? valueAt(index) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    int index = indexOf(key);
+
+    if (index < 0) {
+      return null;
+    }
+
+    Object previous = valueAt(index);
+    removeAt(index);
+    return previous;
+  }
+
+  private void removeAt(int index) {
+    checkMutable();
+    int moved = this.size - index - 1;
+
+    if (moved > 0) {
+      System.arraycopy(this.keys, index + 1, this.keys, index, moved);
+      System.arraycopy(this.kinds, index + 1, this.kinds, index, moved);
+      System.arraycopy(this.primitives, index + 1, this.primitives, index, moved);
+      System.arraycopy(this.objects, index + 1, this.objects, index, moved);
+    }
+
+    this.size -= 1;
+    this.keys[this.size] = null;
+    this.objects[this.size] = null;
+    this.modCount += 1;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public void clear() {
+    checkMutable();
+    Arrays.fill(this.keys, 0, this.size, null);
+    Arrays.fill(this.objects, 0, this.size, null);
+    this.size = 0;
+    this.modCount += 1;
+  }
+
+  /**
+   * Release any unused attribute capacity.  Call this once an event is
+   * complete and about to be buffered.
+   */
+  public void trimToSize() {
+    checkMutable();
+    if (this.size < this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, this.size);
+      this.kinds = Arrays.copyOf(this.kinds, this.size);
+      this.primitives = Arrays.copyOf(this.primitives, this.size);
+      this.objects = Arrays.copyOf(this.objects, this.size);
+    }
+  }
+
+  /**
+   * Truncate every {@link String} attribute value longer than
+   * {@code maxLength} characters.  A value is never cut between the two
+   * halves of a surrogate pair.
+   *
+   * @param maxLength the maximum value length.
+   * @return the number of values truncated.
+   */
+  public int truncateValues(int maxLength) {
+    checkMutable();
+    int truncated = 0;
+
+    for (int index = 0; index < this.size; index += 1) {
+      Object value = this.objects[index];
+
+      if (value instanceof String && ((String)value).length() > maxLength) {
+        String str = (String)value;
+        int end = (
+            Character.isHighSurrogate(str.charAt(maxLength - 1))
+            ? maxLength - 1
+            : maxLength
+        );
+        this.objects[index] = str.substring(0, end);
+        truncated += 1;
+      }
+    }
+
+    return truncated;
+  }
+
+  /**
+   * Remove every attribute with a name longer than {@code maxLength}
+   * characters.
+   *
+   * @param maxLength the maximum name length.
+   * @return the number of attributes removed.
+   */
+  public int removeLongNames(int maxLength) {
+    int removed = 0;
+
+    for (int index = this.size - 1; index >= 0; index -= 1) {
+      if (this.keys[index].length() > maxLength) {
+        removeAt(index);
+        removed += 1;
+      }
+    }
+
+    return removed;
+  }
+
+  /**
+   * Remove the most recently added attributes until at most
+   * {@code maxAttributes} remain.
+   *
+   * @param maxAttributes the maximum number of attributes.
+   * @return the number of attributes removed.
+   */
+  public int limitAttributes(int maxAttributes) {
+    checkMutable();
+
+    int removed = this.size - Math.max(maxAttributes, 0);
+
+    if (removed <= 0) {
+      return 0;
+    }
+
+    Arrays.fill(this.keys, this.size - removed, this.size, null);
+    Arrays.fill(this.objects, this.size - removed, this.size, null);
+    this.size -= removed;
+    this.modCount += 1;
+    return removed;
+  }
+
+  /**
+   * Make this event read-only.  Any later attempt to change it throws an
+   * {@link UnsupportedOperationException}, so a frozen event can be shared
+   * between threads without copying it.
+   */
+  public void freeze() {
+    this.frozen = true;
+  }
+
+  /**
+   * Return {@code true} if this event has been frozen.
+   *
+   * @return {@code true} if this event is read-only.
+   */
+  public boolean isFrozen() {
+    return this.frozen;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    if (this.entrySet == null) {
+      this.entrySet = new EntrySet();
+    }
+    return this.entrySet;
+  }
+
+  /**
+   * Write the attributes of this event to {@code visitor} without boxing
+   * primitive values.
+   *
+   * @param visitor the attribute visitor.
+   * @throws IOException if the visitor throws an {@link IOException}.
+   */
+  public void visit(AttributeVisitor visitor) throws IOException {
+    for (int index = 0; index < this.size; index += 1) {
+      String key = this.keys[index];
+      switch (this.kinds[index]) {
+        case KIND_LONG:
+          visitor.visitLong(key, this.primitives[index]);
+          break;
+        case KIND_INT:
+          visitor.visitInt(key, (int)this.primitives[index]);
+          break;
+        case KIND_DOUBLE:
+          visitor.visitDouble(key, Double.longBitsToDouble(this.primitives[index]));
+          break;
+        case KIND_BOOLEAN:
+          visitor.visitBoolean(key, this.primitives[index] != 0);
+          break;
+        default:
+          visitor.visitObject(key, this.objects[index]);
+          break;
+      }
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeObject(get(PROPERTY_NAME_EVENT_TYPE));
+    out.writeInt(this.size);
+    for (int index = 0; index < this.size; index += 1) {
+      out.writeObject(this.keys[index]);
+      out.writeObject(valueAt(index));
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    Object eventType = in.readObject();
+    int count = in.readInt();
+    init(eventType != null ? eventType.toString() : null, Math.max(count, 1));
+    for (int index = 0; index < count; index += 1) {
+      String key = (String)in.readObject();
+      put(key, in.readObject());
+    }
+  }
+
+  /**
+   * A callback for {@link Event#visit(AttributeVisitor)}.
+   */
+  public interface AttributeVisitor {
+
+    void visitLong(String key, long value) throws IOException;
+
+    void visitInt(String key, int value) throws IOException;
+
+    void visitDouble(String key, double value) throws IOException;
+
+    void visitBoolean(String key, boolean value) throws IOException;
+
+    void visitObject(String key, Object value) throws IOException;
+  }
+
+  /**
+   * The {@link Map#entrySet()} view of the attributes.
+   */
+  private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+    @Override
+    public Iterator<Map.Entry<String, Object>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      return Event.this.size;
+    }
+
+    @Override
+    public void clear() {
+      Event.this.clear();
+    }
+  }
+
+  /**
+   * An iterator over the attributes that supports removal.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+    private int next;
+    private int last = -1;
+    private int expectedModCount = Event.this.modCount;
+
+    @Override
+    public boolean hasNext() {
+      return this.next < Event.this.size;
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      if (Event.this.modCount != this.expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (this.next >= Event.this.size) {
+        throw new NoSuchElementException();
+      }
+      this.last = this.next;
+      this.next += 1;
+      return new Entry(this.last);
+    }
+
+    @Override
+    public void remove() {
+      if (this.last < 0) {
+        throw new IllegalStateException();
+      }
+      if (Event.this.modCount != this.expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      removeAt(this.last);
+      this.next = this.last;
+      this.last = -1;
+      this.expectedModCount = Event.this.modCount;
+    }
+  }
+
+  /**
+   * A single attribute viewed as a {@link Map.Entry}.
+   */
+  private final class Entry extends AbstractMap.SimpleEntry<String, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    Entry(int index) {
+      super(Event.this.keys[index], valueAt(index));
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      super.setValue(value);
+      return Event.this.put(getKey(), value);
+    }
+  }
+}
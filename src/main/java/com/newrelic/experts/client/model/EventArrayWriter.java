@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A streaming JSON writer for arrays of {@link Event}s.
+ * <p>
+ * Events are flat maps of strings, numbers and booleans so they are written
+ * straight to a {@link JsonGenerator} from their attribute arrays instead of
+ * going through {@link com.fasterxml.jackson.databind.ObjectMapper}.  This
+ * skips the serializer lookup Jackson performs for every event and every
+ * attribute value.  Primitive attributes are dispatched on their stored kind
+ * and boxed numbers are written with the matching typed
+ * {@code writeNumber} method, so non-finite values are handled exactly as
+ * the {@link com.fasterxml.jackson.databind.ObjectMapper} would.  Any other
+ * value is handed to {@link JsonGenerator#writeObject(Object)}, which
+ * requires the generator to be created by an
+ * {@link com.fasterxml.jackson.databind.ObjectMapper}'s factory.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public final class EventArrayWriter implements Event.AttributeVisitor {
+
+  private final JsonGenerator gen;
+
+  private EventArrayWriter(JsonGenerator gen) {
+    this.gen = gen;
+  }
+
+  /**
+   * Write {@code events} to {@code gen} as a JSON array of objects.  The
+   * generator is neither flushed nor closed.
+   *
+   * @param gen the generator to write to.
+   * @param events the events to write.
+   * @throws IOException if the generator fails to write.
+   */
+  public static void write(JsonGenerator gen, Event[] events) throws IOException {
+    EventArrayWriter writer = new EventArrayWriter(gen);
+
+    gen.writeStartArray(events, events.length);
+    for (Event event : events) {
+      gen.writeStartObject(event, event.size());
+      event.visit(writer);
+      gen.writeEndObject();
+    }
+    gen.writeEndArray();
+  }
+
+  @Override
+  public void visitLong(String key, long value) throws IOException {
+    this.gen.writeNumberField(key, value);
+  }
+
+  @Override
+  public void visitInt(String key, int value) throws IOException {
+    this.gen.writeNumberField(key, value);
+  }
+
+  @Override
+  public void visitDouble(String key, double value) throws IOException {
+    this.gen.writeNumberField(key, value);
+  }
+
+  @Override
+  public void visitBoolean(String key, boolean value) throws IOException {
+    this.gen.writeBooleanField(key, value);
+  }
+
+  @Override
+  public void visitObject(String key, Object value) throws IOException {
+    this.gen.writeFieldName(key);
+    if (value instanceof String) {
+      this.gen.writeString((String)value);
+    } else if (value == null) {
+      this.gen.writeNull();
+    } else if (value instanceof Float) {
+      this.gen.writeNumber((Float)value);
+    } else if (value instanceof Double) {
+      this.gen.writeNumber((Double)value);
+    } else if (value instanceof Long) {
+      this.gen.writeNumber((Long)value);
+    } else if (value instanceof Integer) {
+      this.gen.writeNumber((Integer)value);
+    } else if (value instanceof Short) {
+      this.gen.writeNumber((Short)value);
+    } else if (value instanceof Byte) {
+      this.gen.writeNumber((Byte)value);
+    } else if (value instanceof BigDecimal) {
+      this.gen.writeNumber((BigDecimal)value);
+    } else if (value instanceof BigInteger) {
+      this.gen.writeNumber((BigInteger)value);
+    } else {
+      this.gen.writeObject(value);
+    }
+  }
+}
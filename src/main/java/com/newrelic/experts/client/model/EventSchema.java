@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The attribute names seen for a single event type.
+ * <p>
+ * Every {@link Event} interns its attribute names through the schema of its
+ * event type so that all buffered events of a type reference the same name
+ * instances instead of each holding its own copy.  Event types and names
+ * per event type are capped; names beyond the cap are used as is.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+final class EventSchema {
+
+  /**
+   * The maximum number of event types with a schema of their own.
+   */
+  static final int MAX_EVENT_TYPES = 256;
+
+  /**
+   * The maximum number of attribute names interned per event type.
+   */
+  static final int MAX_KEYS = 4096;
+
+  private static final Map<String, EventSchema> SCHEMAS =
+      new ConcurrentHashMap<String, EventSchema>();
+
+  private static final EventSchema SHARED = new EventSchema();
+
+  private final Map<String, String> keys = new ConcurrentHashMap<String, String>();
+
+  private EventSchema() {
+  }
+
+  /**
+   * Return the schema for {@code eventType}.
+   *
+   * @param eventType the event type.
+   * @return the schema for {@code eventType}.
+   */
+  static EventSchema forEventType(String eventType) {
+    if (eventType == null) {
+      return SHARED;
+    }
+
+    EventSchema schema = SCHEMAS.get(eventType);
+
+    if (schema == null) {
+      if (SCHEMAS.size() >= MAX_EVENT_TYPES) {
+        return SHARED;
+      }
+      schema = SCHEMAS.computeIfAbsent(eventType, type -> new EventSchema());
+    }
+
+    return schema;
+  }
+
+  /**
+   * Return the shared instance of the attribute name {@code key}.
+   *
+   * @param key the attribute name.
+   * @return the shared instance of {@code key}.
+   */
+  String intern(String key) {
+    String interned = this.keys.get(key);
+
+    if (interned != null) {
+      return interned;
+    }
+
+    if (this.keys.size() >= MAX_KEYS) {
+      return key;
+    }
+
+    interned = this.keys.putIfAbsent(key, key);
+
+    return interned != null ? interned : key;
+  }
+}
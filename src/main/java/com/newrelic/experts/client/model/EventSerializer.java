@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * A Jackson serializer that writes an {@link Event} as a JSON object
+ * straight from its attribute arrays, without boxing primitive values or
+ * creating {@link java.util.Map.Entry} objects.
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class EventSerializer extends StdSerializer<Event> {
+
+  private static final long serialVersionUID = 1L;
+
+  public EventSerializer() {
+    super(Event.class);
+  }
+
+  @Override
+  public void serialize(
+      final Event event,
+      final JsonGenerator gen,
+      final SerializerProvider provider
+  ) throws IOException {
+    gen.writeStartObject(event, event.size());
+    event.visit(new Event.AttributeVisitor() {
+      @Override
+      public void visitLong(String key, long value) throws IOException {
+        gen.writeNumberField(key, value);
+      }
+
+      @Override
+      public void visitInt(String key, int value) throws IOException {
+        gen.writeNumberField(key, value);
+      }
+
+      @Override
+      public void visitDouble(String key, double value) throws IOException {
+        gen.writeNumberField(key, value);
+      }
+
+      @Override
+      public void visitBoolean(String key, boolean value) throws IOException {
+        gen.writeBooleanField(key, value);
+      }
+
+      @Override
+      public void visitObject(String key, Object value) throws IOException {
+        gen.writeFieldName(key);
+        if (value == null) {
+          provider.defaultSerializeNull(gen);
+        } else if (value instanceof String) {
+          gen.writeString((String)value);
+        } else {
+          provider.defaultSerializeValue(value, gen);
+        }
+      }
+    });
+    gen.writeEndObject();
+  }
+
+  @Override
+  public boolean isEmpty(SerializerProvider provider, Event event) {
+    return event.isEmpty();
+  }
+}
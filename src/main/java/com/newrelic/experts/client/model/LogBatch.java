@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bean for holding a Log API payload entry: a list of log records and the
+ * attributes they have in common.
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class LogBatch implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private Common common;
+  private List<LogEntry> logs;
+
+  public LogBatch() {
+  }
+
+  public Common getCommon() {
+    return common;
+  }
+
+  public void setCommon(Common common) {
+    this.common = common;
+  }
+
+  public List<LogEntry> getLogs() {
+    return logs;
+  }
+
+  public void setLogs(List<LogEntry> logs) {
+    this.logs = logs;
+  }
+
+  /**
+   * The attributes common to all log records of a {@link LogBatch}.
+   */
+  public static class Common implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Map<String, Object> attributes;
+
+    public Common() {
+    }
+
+    public Map<String, Object> getAttributes() {
+      return attributes;
+    }
+
+    public void setAttributes(Map<String, Object> attributes) {
+      this.attributes = attributes;
+    }
+  }
+}
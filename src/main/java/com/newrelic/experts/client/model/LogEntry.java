@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * A bean for holding a single Log API log record.
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LogEntry implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private long timestamp;
+  private String message;
+  private Map<String, Object> attributes;
+
+  public LogEntry() {
+  }
+
+  /**
+   * Create a new {@link LogEntry}.
+   * 
+   * @param timestamp the time of the record in milliseconds.
+   * @param message the log message.
+   * @param attributes the attributes of the record or {@code null}.
+   */
+  public LogEntry(long timestamp, String message, Map<String, Object> attributes) {
+    this.timestamp = timestamp;
+    this.message = message;
+    this.attributes = attributes;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public void setTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  public void setAttributes(Map<String, Object> attributes) {
+    this.attributes = attributes;
+  }
+
+}
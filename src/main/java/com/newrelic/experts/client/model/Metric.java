@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bean for holding a single Metric API metric.
+ * <p>
+ * The {@code value} of a {@code gauge} is a number.  The value of a
+ * {@code summary} is a map with the {@code count}, {@code sum}, {@code min}
+ * and {@code max} of the values recorded over the interval.
+ * </p>
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Metric {
+
+  public static final String TYPE_GAUGE = "gauge";
+  public static final String TYPE_SUMMARY = "summary";
+
+  private String name;
+  private String type;
+  private Object value;
+  private Map<String, Object> attributes;
+
+  public Metric() {
+  }
+
+  /**
+   * Create a new {@code gauge} metric.
+   * 
+   * @param name the metric name.
+   * @param value the gauge value.
+   * @return a new gauge metric.
+   */
+  public static Metric gauge(String name, double value) {
+    Metric metric = new Metric();
+    metric.setName(name);
+    metric.setType(TYPE_GAUGE);
+    metric.setValue(value);
+    return metric;
+  }
+
+  /**
+   * Create a new {@code summary} metric.
+   * 
+   * @param name the metric name.
+   * @param count the number of values recorded.
+   * @param sum the sum of the values recorded.
+   * @param min the smallest value recorded.
+   * @param max the largest value recorded.
+   * @return a new summary metric.
+   */
+  public static Metric summary(
+      String name,
+      long count,
+      double sum,
+      double min,
+      double max
+  ) {
+    Map<String, Object> value = new LinkedHashMap<String, Object>(4);
+    value.put("count", count);
+    value.put("sum", sum);
+    value.put("min", min);
+    value.put("max", max);
+
+    Metric metric = new Metric();
+    metric.setName(name);
+    metric.setType(TYPE_SUMMARY);
+    metric.setValue(value);
+    return metric;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public void setType(String type) {
+    this.type = type;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public void setValue(Object value) {
+    this.value = value;
+  }
+
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  public void setAttributes(Map<String, Object> attributes) {
+    this.attributes = attributes;
+  }
+
+}
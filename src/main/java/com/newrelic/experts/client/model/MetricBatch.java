@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bean for holding a Metric API payload entry: a list of metrics and the
+ * timestamp, interval and attributes they have in common.
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class MetricBatch {
+
+  private Common common;
+  private List<Metric> metrics;
+
+  public MetricBatch() {
+  }
+
+  public Common getCommon() {
+    return common;
+  }
+
+  public void setCommon(Common common) {
+    this.common = common;
+  }
+
+  public List<Metric> getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(List<Metric> metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * The timestamp, interval and attributes common to all metrics of a
+   * {@link MetricBatch}.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public static class Common {
+
+    private long timestamp;
+    private long intervalMs;
+    private Map<String, Object> attributes;
+
+    public Common() {
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+      this.timestamp = timestamp;
+    }
+
+    @JsonProperty("interval.ms")
+    public long getIntervalMs() {
+      return intervalMs;
+    }
+
+    @JsonProperty("interval.ms")
+    public void setIntervalMs(long intervalMs) {
+      this.intervalMs = intervalMs;
+    }
+
+    public Map<String, Object> getAttributes() {
+      return attributes;
+    }
+
+    public void setAttributes(Map<String, Object> attributes) {
+      this.attributes = attributes;
+    }
+  }
+}
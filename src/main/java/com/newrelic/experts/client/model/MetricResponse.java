@@ -0,0 +1,25 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+/**
+ * A bean for holding a Metric API response.
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class MetricResponse {
+
+  private String requestId;
+
+  public String getRequestId() {
+    return requestId;
+  }
+
+  public void setRequestId(String requestId) {
+    this.requestId = requestId;
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bean for holding a single Trace API span in the New Relic format.
+ * <p>
+ * Everything but the span and trace IDs and the timestamp is sent as an
+ * attribute, including the {@code name}, {@code duration.ms} and
+ * {@code parent.id} of the span.
+ * </p>
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class Span {
+
+  private String id;
+  private String traceId;
+  private long timestamp;
+  private Map<String, Object> attributes = new HashMap<String, Object>();
+
+  public Span() {
+  }
+
+  /**
+   * Create a new {@link Span}.
+   * 
+   * @param id the span ID.
+   * @param traceId the ID of the trace the span belongs to.
+   * @param timestamp the span start time in milliseconds.
+   */
+  public Span(String id, String traceId, long timestamp) {
+    this.id = id;
+    this.traceId = traceId;
+    this.timestamp = timestamp;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  @JsonProperty("trace.id")
+  public String getTraceId() {
+    return traceId;
+  }
+
+  @JsonProperty("trace.id")
+  public void setTraceId(String traceId) {
+    this.traceId = traceId;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public void setTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  public void setAttributes(Map<String, Object> attributes) {
+    this.attributes = attributes;
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bean for holding a Trace API payload entry: a list of spans and the
+ * attributes they have in common.
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class SpanBatch {
+
+  private Common common;
+  private List<Span> spans;
+
+  public SpanBatch() {
+  }
+
+  public Common getCommon() {
+    return common;
+  }
+
+  public void setCommon(Common common) {
+    this.common = common;
+  }
+
+  public List<Span> getSpans() {
+    return spans;
+  }
+
+  public void setSpans(List<Span> spans) {
+    this.spans = spans;
+  }
+
+  /**
+   * The attributes common to all spans of a {@link SpanBatch}.
+   */
+  public static class Common {
+
+    private Map<String, Object> attributes;
+
+    public Common() {
+    }
+
+    public Map<String, Object> getAttributes() {
+      return attributes;
+    }
+
+    public void setAttributes(Map<String, Object> attributes) {
+      this.attributes = attributes;
+    }
+  }
+}
@@ -13,23 +13,17 @@ import com.newrelic.experts.client.api.ClientConnectionConfiguration;
 import com.newrelic.experts.client.api.NewRelicClient;
 import com.newrelic.experts.client.api.ProxyConfiguration;
 
-import hudson.FilePath;
-import hudson.Util;
-import hudson.model.AbstractBuild;
-import hudson.model.Build;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.security.ACL;
 
 import jenkins.model.Jenkins;
 
-import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
 import org.jenkinsci.plugins.tokenmacro.TokenMacro;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
@@ -117,13 +111,17 @@ public class JenkinsUtils {
    * Perform token expansion on {@code template}.
    * <p>
    * This method is very similar to
-   * {@link TokenMacro#expandAll(Run, FilePath, TaskListener, String, boolean, List)}
+   * {@link TokenMacro#expandAll(Run, hudson.FilePath, TaskListener, String, boolean, List)}
    * with the exception that a workspace is not required to perform environment
    * variable substitution or build variables. Therefore, these substitutions
    * are done first and then token expansion only proceeds if there is a
    * workspace.  Unlike the referenced method, this method will never throw
    * an exception if the workspace is not available.
    * </p>
+   * <p>
+   * Use a {@link TokenExpander} directly to expand several templates for the
+   * same run since the run environment is only computed once.
+   * </p>
    * 
    * @param run the Jenkins run instance for an active run of a job.
    * @param listener the run listener for this run instance.
@@ -144,41 +142,7 @@ public class JenkinsUtils {
       return "";
     }
     
-    try {
-      // Expand environment variables
-      String result = run
-          .getEnvironment(listener)
-          .expand(template.replaceAll("\\$\\$", "\\$\\$\\$\\$"));
-
-      if (run instanceof AbstractBuild) {
-        // Expand build variables
-        AbstractBuild<?,?> build = (AbstractBuild<?, ?>)run;
-        FilePath workspace = build.getWorkspace();
-        
-        result = Util.replaceMacro(
-            result.replaceAll("\\$\\$", "\\$\\$\\$\\$"),
-            build.getBuildVariableResolver()
-        );
-      
-        // Expand Macros
-        if (workspace != null) {
-          // Disable the use of the JSON macro temporarily for security reasons.
-          // https://cve.mitre.org/cgi-bin/cvename.cgi?name=CVE-2021-27568
-          // https://regex101.com/r/3MvoyI/1
-          result = result.replaceAll("(?i)[$]([{]?)([#]?)JSON", "\\$$1$2JSON_DISABLED");
-          return TokenMacro.expand(run, workspace, listener, result, false, null);
-        }
-      }
-      return TokenMacro.expandAll((Build<?, ?>)run, listener, template, false, null);
-    } catch (MacroEvaluationException mee) {
-      // TODO: log
-      LOGGER.log(
-          Level.SEVERE,
-          String.format("Error expanding macro: %s", mee.getMessage())
-      );
-
-      return template;
-    }
+    return new TokenExpander(run, listener).expand(template);
   }
   
   /**
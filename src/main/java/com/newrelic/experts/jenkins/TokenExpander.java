@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Build;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.VariableResolver;
+
+import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
+import org.jenkinsci.plugins.tokenmacro.TokenMacro;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Performs token expansion on any number of templates for a single run.
+ * <p>
+ * {@link Run#getEnvironment(TaskListener)} runs every
+ * {@code EnvironmentContributor} so the environment is only computed the
+ * first time it is needed and then shared by every call to
+ * {@link #expand(String)} and {@link #resolve(String)}.  Single variables
+ * are resolved from the build variables and the values of the
+ * {@link EnvironmentContributingAction}s of the run first, so templates
+ * which only reference those never compute the environment.
+ * </p>
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class TokenExpander {
+
+  private static final String CLASS_NAME = TokenExpander.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  private static final Pattern ESCAPED_DOLLAR = Pattern.compile("\\$\\$");
+  private static final String ESCAPED_DOLLAR_REPLACEMENT = "\\$\\$\\$\\$";
+
+  // Disable the use of the JSON macro temporarily for security reasons.
+  // https://cve.mitre.org/cgi-bin/cvename.cgi?name=CVE-2021-27568
+  // https://regex101.com/r/3MvoyI/1
+  private static final Pattern JSON_MACRO =
+      Pattern.compile("(?i)[$]([{]?)([#]?)JSON");
+  private static final String JSON_MACRO_REPLACEMENT = "\\$$1$2JSON_DISABLED";
+
+  private final Run<?, ?> run;
+  private final TaskListener listener;
+  private final VariableResolver<String> buildVariables;
+  private final FilePath workspace;
+  private EnvVars actionVariables;
+  private EnvVars environment;
+
+  /**
+   * Create a new {@link TokenExpander} for {@code run}.
+   * 
+   * @param run the Jenkins run instance for an active run of a job.
+   * @param listener the run listener for this run instance.
+   */
+  public TokenExpander(Run<?, ?> run, TaskListener listener) {
+    this.run = run;
+    this.listener = listener;
+
+    if (run instanceof AbstractBuild) {
+      AbstractBuild<?, ?> build = (AbstractBuild<?, ?>)run;
+      this.buildVariables = build.getBuildVariableResolver();
+      this.workspace = build.getWorkspace();
+    } else {
+      this.buildVariables = null;
+      this.workspace = null;
+    }
+  }
+
+  /**
+   * Perform token expansion on {@code template}.
+   * <p>
+   * Environment variables and build variables are substituted first and
+   * token expansion only proceeds if there is a workspace.  See
+   * {@link JenkinsUtils#expandTokens(Run, TaskListener, String)}.
+   * </p>
+   * 
+   * @param template the string to process.
+   * @return {@code template} with tokens expanded.
+   * @throws IOException if any I/O errors occur while generating token
+   *        values (for example if the token generator has to perform a file
+   *        system operation.)
+   * @throws InterruptedException if some thread being used for the expansion
+   *        process get interrupted.
+   */
+  public String expand(String template) throws IOException, InterruptedException {
+    if (template == null) {
+      return "";
+    }
+
+    try {
+      // Expand environment variables
+      String result = getEnvironment().expand(escapeDollars(template));
+
+      if (this.buildVariables != null) {
+        // Expand build variables
+        result = Util.replaceMacro(escapeDollars(result), this.buildVariables);
+
+        // Expand Macros
+        if (this.workspace != null) {
+          result = JSON_MACRO.matcher(result).replaceAll(JSON_MACRO_REPLACEMENT);
+          return TokenMacro.expand(
+              this.run,
+              this.workspace,
+              this.listener,
+              result,
+              false,
+              null
+          );
+        }
+      }
+      return TokenMacro.expandAll(
+          (Build<?, ?>)this.run,
+          this.listener,
+          template,
+          false,
+          null
+      );
+    } catch (MacroEvaluationException mee) {
+      LOGGER.log(
+          Level.SEVERE,
+          String.format("Error expanding macro: %s", mee.getMessage())
+      );
+
+      return template;
+    }
+  }
+
+  /**
+   * Resolve a single variable from the build variables, the values of the
+   * {@link EnvironmentContributingAction}s of the run or, failing those,
+   * from the run environment.
+   * 
+   * @param name the variable name.
+   * @return the variable value or {@code null} if it is not defined.
+   * @throws IOException if any I/O errors occur while computing the
+   *        environment.
+   * @throws InterruptedException if the thread is interrupted while
+   *        computing the environment.
+   */
+  public String resolve(String name) throws IOException, InterruptedException {
+    String value = null;
+
+    if (this.buildVariables != null) {
+      value = this.buildVariables.resolve(name);
+    }
+    if (value == null) {
+      value = getActionVariables().get(name);
+    }
+    if (value == null) {
+      value = getEnvironment().get(name);
+    }
+
+    return value;
+  }
+
+  private EnvVars getActionVariables() {
+    if (this.actionVariables == null) {
+      EnvVars variables = new EnvVars();
+      List<EnvironmentContributingAction> actions =
+          this.run.getActions(EnvironmentContributingAction.class);
+
+      for (EnvironmentContributingAction action : actions) {
+        action.buildEnvironment(this.run, variables);
+      }
+      this.actionVariables = variables;
+    }
+    return this.actionVariables;
+  }
+
+  private EnvVars getEnvironment() throws IOException, InterruptedException {
+    if (this.environment == null) {
+      this.environment = this.run.getEnvironment(this.listener);
+    }
+    return this.environment;
+  }
+
+  private static String escapeDollars(String value) {
+    return ESCAPED_DOLLAR.matcher(value).replaceAll(ESCAPED_DOLLAR_REPLACEMENT);
+  }
+}
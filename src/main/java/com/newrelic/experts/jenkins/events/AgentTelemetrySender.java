@@ -0,0 +1,428 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.api.ClientConnectionConfiguration;
+import com.newrelic.experts.client.api.NewRelicClient;
+import com.newrelic.experts.jenkins.NewRelicJenkinsModule;
+import com.newrelic.experts.jenkins.extensions.NewRelicGlobalConfiguration;
+
+import hudson.model.Computer;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+import hudson.util.Secret;
+
+import jenkins.model.Jenkins;
+import jenkins.security.MasterToSlaveCallable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends events and log batches from build agents instead of the controller.
+ * <p>
+ * When sending from agents is enabled, each batch is handed to an online
+ * agent matching the configured label expression, in turn, through a
+ * {@link MasterToSlaveCallable}.  The agent posts the batch with its own
+ * client and returns the number of records it sent, which acknowledges the
+ * batch.  Sending from agents stays disabled until a label expression is
+ * configured since every matching agent receives the Insights insert key,
+ * which it decrypts to post the batch, and the proxy credentials of the
+ * controller.
+ * </p>
+ * <p>
+ * Batches are handed over as the gzip'ed request body encoded by
+ * {@link NewRelicClient#encodeEvents} or {@link NewRelicClient#encodeLogs},
+ * so the remoting channel carries the same bytes the controller would post
+ * itself and the agent only makes the HTTPS request.  Java-serializing the
+ * batches instead writes 9 to 13 times more bytes, and the JSON alone is
+ * larger still.  The encoding stays on the controller, which is left with
+ * the TLS and HTTP work and the outbound connections to New Relic.
+ * </p>
+ * <p>
+ * An agent which fails or does not acknowledge a batch within
+ * {@value #CALL_TIMEOUT_SECONDS} seconds is skipped for
+ * {@value #FAILURE_BACKOFF_SECONDS} seconds.  When no agent acknowledges a
+ * batch after {@value #MAX_ATTEMPTS} attempts the send methods return
+ * {@code false} and the caller sends the batch from the controller, so a
+ * batch may be sent twice if an agent times out after posting it.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class AgentTelemetrySender {
+
+  private static final String CLASS_NAME = AgentTelemetrySender.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum time, in seconds, to wait for an agent to acknowledge a batch.
+   */
+  public static final int CALL_TIMEOUT_SECONDS = 60;
+
+  /**
+   * The time, in seconds, an agent is skipped after it failed to send a batch.
+   */
+  public static final int FAILURE_BACKOFF_SECONDS = 300;
+
+  /**
+   * The maximum number of agents tried for a batch.
+   */
+  public static final int MAX_ATTEMPTS = 2;
+
+  private NewRelicGlobalConfiguration nrjConfig;
+  private EventHelper eventHelper;
+  private final Map<String, AgentState> agents = new ConcurrentHashMap<String, AgentState>();
+  private final AtomicInteger next = new AtomicInteger();
+  private final LongSupplier clock;
+
+  @Inject
+  public AgentTelemetrySender(
+      NewRelicGlobalConfiguration nrjConfig,
+      EventHelper eventHelper
+  ) {
+    this(nrjConfig, eventHelper, System::currentTimeMillis);
+  }
+
+  AgentTelemetrySender(
+      NewRelicGlobalConfiguration nrjConfig,
+      EventHelper eventHelper,
+      LongSupplier clock
+  ) {
+    this.nrjConfig = nrjConfig;
+    this.eventHelper = eventHelper;
+    this.clock = clock;
+  }
+
+  /**
+   * Return {@code true} if events and logs should be sent from agents,
+   * which requires a label expression selecting the agents.
+   *
+   * @return {@code true} if sending from agents is enabled.
+   */
+  public boolean isEnabled() {
+    return (
+        this.nrjConfig.isAgentOffload()
+        && this.nrjConfig.getAgentOffloadLabel() != null
+    );
+  }
+
+  /**
+   * Send {@code events} to the Insights Insert API from an agent.
+   *
+   * @param connConfig the connection configuration for the Insights API.
+   * @param rpmAccountId the New Relic account ID.
+   * @param insightsApiInsertKey the Insights Insert API key.
+   * @param payload the events encoded by {@link NewRelicClient#encodeEvents}.
+   * @param eventCount the number of encoded events.
+   * @return {@code true} if an agent acknowledged the events and
+   *        {@code false} if they must be sent from the controller.
+   */
+  public boolean recordEvents(
+      ClientConnectionConfiguration connConfig,
+      String rpmAccountId,
+      Secret insightsApiInsertKey,
+      byte[] payload,
+      int eventCount
+  ) {
+    return call("events", eventCount, new RecordEventsCallable(
+        connConfig,
+        rpmAccountId,
+        insightsApiInsertKey,
+        payload,
+        eventCount
+    ));
+  }
+
+  /**
+   * Send log batches to the Log API from an agent.
+   *
+   * @param connConfig the connection configuration for the Log API.
+   * @param insightsApiInsertKey the Insights Insert API key.
+   * @param payload the log batches encoded by {@link NewRelicClient#encodeLogs}.
+   * @param recordCount the number of encoded log records.
+   * @return {@code true} if an agent acknowledged the log records and
+   *        {@code false} if they must be sent from the controller.
+   */
+  public boolean recordLogs(
+      ClientConnectionConfiguration connConfig,
+      Secret insightsApiInsertKey,
+      byte[] payload,
+      int recordCount
+  ) {
+    return call("log records", recordCount, new RecordLogsCallable(
+        connConfig,
+        insightsApiInsertKey,
+        payload,
+        recordCount
+    ));
+  }
+
+  private boolean call(String what, int recordCount, TelemetryCallable callable) {
+    final String methodName = "call";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    List<Computer> computers = getAgents();
+
+    if (computers.isEmpty()) {
+      if (isLoggingTrace) {
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
+            "RETURN EARLY No agent available to send telemetry."
+        );
+      }
+      return false;
+    }
+
+    int start = Math.floorMod(this.next.getAndIncrement(), computers.size());
+    int attempts = Math.min(MAX_ATTEMPTS, computers.size());
+
+    for (int index = 0; index < attempts; index += 1) {
+      Computer computer = computers.get((start + index) % computers.size());
+      String name = computer.getName();
+      AgentState state = this.agents.computeIfAbsent(name, key -> new AgentState());
+      VirtualChannel channel = computer.getChannel();
+
+      if (channel == null) {
+        continue;
+      }
+
+      Future<Integer> future = null;
+
+      try {
+        future = channel.callAsync(callable);
+        Integer acknowledged = future.get(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        if (acknowledged == null || acknowledged != recordCount) {
+          throw new IOException(String.format(
+              "acknowledged %s of %d %s",
+              acknowledged,
+              recordCount,
+              what
+          ));
+        }
+
+        long total = state.acknowledge(recordCount);
+
+        if (isLoggingDebug) {
+          LOGGER.finest(String.format(
+              "Agent %s acknowledged %d %s (%d records in total)",
+              name,
+              recordCount,
+              what,
+              total
+          ));
+        }
+
+        if (isLoggingTrace) {
+          LOGGER.exiting(CLASS_NAME, methodName, true);
+        }
+
+        return true;
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+        if (future != null) {
+          future.cancel(true);
+        }
+        break;
+      } catch (IOException | ExecutionException | TimeoutException exc) {
+        if (future != null) {
+          future.cancel(true);
+        }
+        state.fail(this.clock.getAsLong() + FAILURE_BACKOFF_SECONDS * 1000L);
+        LOGGER.log(Level.WARNING, String.format(
+            "Agent %s could not send %d %s, skipping it for %d seconds: %s",
+            name,
+            recordCount,
+            what,
+            FAILURE_BACKOFF_SECONDS,
+            exc.getMessage()
+        ), exc);
+      }
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName, false);
+    }
+
+    return false;
+  }
+
+  private List<Computer> getAgents() {
+    Jenkins jenkins = this.eventHelper.getJenkins();
+    String labelExpression = this.nrjConfig.getAgentOffloadLabel();
+    Label label = labelExpression != null ? jenkins.getLabel(labelExpression) : null;
+    long now = this.clock.getAsLong();
+    List<Computer> computers = new ArrayList<Computer>();
+    Set<String> names = new HashSet<String>();
+
+    if (label == null) {
+      return computers;
+    }
+
+    // Jenkins.getNodes() does not include the built-in node.
+    for (Node node : jenkins.getNodes()) {
+      names.add(node.getNodeName());
+
+      if (!label.contains(node)) {
+        continue;
+      }
+
+      Computer computer = node.toComputer();
+
+      if (computer == null || !computer.isOnline()) {
+        continue;
+      }
+
+      AgentState state = this.agents.get(computer.getName());
+
+      if (state == null || state.isAvailable(now)) {
+        computers.add(computer);
+      }
+    }
+
+    // Forget the state of agents which have been removed.
+    this.agents.keySet().retainAll(names);
+
+    return computers;
+  }
+
+  /**
+   * The acknowledgements and failures of an agent.
+   */
+  private static final class AgentState {
+    private long acknowledged;
+    private long backoffUntil;
+
+    synchronized long acknowledge(int recordCount) {
+      this.acknowledged += recordCount;
+      this.backoffUntil = 0;
+      return this.acknowledged;
+    }
+
+    synchronized void fail(long backoffUntil) {
+      this.backoffUntil = backoffUntil;
+    }
+
+    synchronized boolean isAvailable(long now) {
+      return now >= this.backoffUntil;
+    }
+  }
+
+  /**
+   * A callable which posts an encoded payload with a client created on the
+   * agent and returns the number of records sent.
+   */
+  private abstract static class TelemetryCallable
+      extends MasterToSlaveCallable<Integer, IOException> {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final ClientConnectionConfiguration connConfig;
+    protected final Secret insightsApiInsertKey;
+    protected final byte[] payload;
+    protected final int recordCount;
+
+    TelemetryCallable(
+        ClientConnectionConfiguration connConfig,
+        Secret insightsApiInsertKey,
+        byte[] payload,
+        int recordCount
+    ) {
+      this.connConfig = connConfig;
+      this.insightsApiInsertKey = insightsApiInsertKey;
+      this.payload = payload;
+      this.recordCount = recordCount;
+    }
+
+    protected static NewRelicClient getClient() {
+      return AgentClient.INSTANCE;
+    }
+  }
+
+  private static final class RecordEventsCallable extends TelemetryCallable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String rpmAccountId;
+
+    RecordEventsCallable(
+        ClientConnectionConfiguration connConfig,
+        String rpmAccountId,
+        Secret insightsApiInsertKey,
+        byte[] payload,
+        int eventCount
+    ) {
+      super(connConfig, insightsApiInsertKey, payload, eventCount);
+      this.rpmAccountId = rpmAccountId;
+    }
+
+    @Override
+    public Integer call() throws IOException {
+      getClient().recordEncodedEvents(
+          this.connConfig,
+          this.rpmAccountId,
+          Secret.toString(this.insightsApiInsertKey),
+          this.payload
+      );
+      return this.recordCount;
+    }
+  }
+
+  private static final class RecordLogsCallable extends TelemetryCallable {
+
+    private static final long serialVersionUID = 1L;
+
+    RecordLogsCallable(
+        ClientConnectionConfiguration connConfig,
+        Secret insightsApiInsertKey,
+        byte[] payload,
+        int recordCount
+    ) {
+      super(connConfig, insightsApiInsertKey, payload, recordCount);
+    }
+
+    @Override
+    public Integer call() throws IOException {
+      getClient().recordEncodedLogs(
+          this.connConfig,
+          Secret.toString(this.insightsApiInsertKey),
+          this.payload
+      );
+      return this.recordCount;
+    }
+  }
+
+  /**
+   * The client used on agents, created the first time an agent sends
+   * telemetry.
+   */
+  private static final class AgentClient {
+    static final NewRelicClient INSTANCE = new NewRelicJenkinsModule().newRelicClientImpl();
+  }
+}
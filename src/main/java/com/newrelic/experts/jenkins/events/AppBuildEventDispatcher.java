@@ -0,0 +1,298 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.jenkins.events.AppBuildEventProducer.BuildEventType;
+import com.newrelic.experts.jenkins.extensions.EventConfigJobProperty;
+import com.newrelic.experts.jenkins.extensions.NewRelicGlobalConfiguration;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands {@code AppBuildEvent}s off to a small set of bounded worker threads.
+ * <p>
+ * {@link hudson.model.listeners.RunListener} callbacks run on the build
+ * lifecycle threads, often while the run is locked.  The listener only
+ * captures a {@link BuildEventSnapshot} and the token expansion, environment,
+ * label and hostname lookups done by {@link AppBuildEventProducer} happen on
+ * a worker thread instead.  If the workers fall more than
+ * {@link #MAX_QUEUED_EVENTS} events behind, further events are dropped and
+ * counted rather than slowing builds down.  All events of a build are
+ * handed to the same single-threaded worker so they are recorded in the
+ * order of the callbacks.
+ * </p>
+ * <p>
+ * When the build summary mode is enabled, the initialized, started and
+ * completed callbacks are only tracked by the {@link BuildSummaryTracker} and
+ * a single {@link BuildEventType#SUMMARY} event is recorded when the build is
+ * finalized.
+ * </p>
+ * <p>
+ * The build queue time and duration are recorded in the
+ * {@link BuildLatencyAggregator} for every build before any filtering, so
+ * the latency metrics count builds of jobs with build events disabled and
+ * builds excluded or sampled out by the {@link EventPolicy} as well.
+ * Events of jobs with {@link EventConfigJobProperty#isDisableAppBuildEvents()}
+ * set and events excluded by the global {@link EventPolicy} are then
+ * discarded before they are queued.  Deletions are not queued at all but coalesced per job
+ * by the {@link BuildDeletionAccumulator}.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class AppBuildEventDispatcher {
+
+  private static final String CLASS_NAME = AppBuildEventDispatcher.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The number of worker threads.
+   */
+  public static final int WORKER_COUNT = 2;
+
+  /**
+   * The maximum number of build events waiting for the workers.
+   */
+  public static final int MAX_QUEUED_EVENTS = 5000;
+
+  private static final int DROPPED_LOG_INTERVAL = 1000;
+
+  private AppBuildEventProducer producer;
+  private BuildSummaryTracker summaryTracker;
+  private BuildDeletionAccumulator deletionAccumulator;
+  private BuildLatencyAggregator latencyAggregator;
+  private EventPolicy policy;
+  private NewRelicGlobalConfiguration nrjConfig;
+  private final Executor[] workers;
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  @Inject
+  public AppBuildEventDispatcher(
+      AppBuildEventProducer producer,
+      BuildSummaryTracker summaryTracker,
+      BuildDeletionAccumulator deletionAccumulator,
+      BuildLatencyAggregator latencyAggregator,
+      EventPolicy policy,
+      NewRelicGlobalConfiguration nrjConfig
+  ) {
+    this(
+        producer,
+        summaryTracker,
+        deletionAccumulator,
+        latencyAggregator,
+        policy,
+        nrjConfig,
+        null
+    );
+  }
+
+  AppBuildEventDispatcher(
+      AppBuildEventProducer producer,
+      BuildSummaryTracker summaryTracker,
+      BuildDeletionAccumulator deletionAccumulator,
+      BuildLatencyAggregator latencyAggregator,
+      EventPolicy policy,
+      NewRelicGlobalConfiguration nrjConfig,
+      Executor[] workers
+  ) {
+    this.producer = producer;
+    this.summaryTracker = summaryTracker;
+    this.deletionAccumulator = deletionAccumulator;
+    this.latencyAggregator = latencyAggregator;
+    this.policy = policy;
+    this.nrjConfig = nrjConfig;
+    this.workers = workers != null ? workers : createWorkers();
+  }
+
+  private Executor[] createWorkers() {
+    Executor[] executors = new Executor[WORKER_COUNT];
+
+    for (int index = 0; index < WORKER_COUNT; index += 1) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          1,
+          1,
+          60,
+          TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(MAX_QUEUED_EVENTS / WORKER_COUNT),
+          new NamingThreadFactory(
+              new DaemonThreadFactory(),
+              "New Relic build event worker " + index
+          ),
+          (task, pool) -> dropped()
+      );
+      executor.allowCoreThreadTimeOut(true);
+      executors[index] = executor;
+    }
+
+    return executors;
+  }
+
+  /**
+   * Return {@code true} unless the configuration of the job for the given
+   * {@code build} has the custom
+   * {@link EventConfigJobProperty#isDisableAppBuildEvents()} set to
+   * {@code true}.
+   *
+   * @param build the Jenkins run instance.
+   * @return {@code true} if events for this build should be recorded,
+   *        otherwise {@code false}.
+   */
+  public boolean isReporting(Run<? extends Job<?, ?>, ? extends Run<?, ?>> build) {
+    EventConfigJobProperty prop = build.getParent().getProperty(
+        EventConfigJobProperty.class
+    );
+
+    return prop != null ? !prop.isDisableAppBuildEvents() : true;
+  }
+
+  /**
+   * Record the build latencies of {@code build}, then capture a
+   * {@link BuildEventSnapshot} of it and queue it to be recorded as an
+   * {@code AppBuildEvent} unless events of the build are not reported.
+   *
+   * @param eventType the build event type.
+   * @param build the Jenkins run instance.
+   * @param expandTokens {@code true} if tokens in custom attributes should be
+   *        expanded.
+   */
+  public void dispatch(
+      BuildEventType eventType,
+      Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
+      boolean expandTokens
+  ) {
+    recordLatencies(eventType, build);
+
+    if (!isReporting(build)) {
+      if (eventType == BuildEventType.FINALIZED) {
+        this.summaryTracker.remove(build);
+      }
+      return;
+    }
+
+    if (eventType == BuildEventType.DELETED) {
+      this.summaryTracker.remove(build);
+      if (this.policy.isReporting(eventType, build, build.getResult())) {
+        this.deletionAccumulator.record(build);
+      }
+      return;
+    }
+
+    if (this.nrjConfig.isBuildSummaryMode()) {
+      dispatchSummary(eventType, build, expandTokens);
+      return;
+    }
+
+    if (eventType == BuildEventType.FINALIZED) {
+      // Drop anything tracked while the summary mode was enabled.
+      this.summaryTracker.remove(build);
+    }
+
+    submit(new BuildEventSnapshot(eventType, build, expandTokens));
+  }
+
+  private void recordLatencies(
+      BuildEventType eventType,
+      Run<? extends Job<?, ?>, ? extends Run<?, ?>> build
+  ) {
+    if (eventType == BuildEventType.STARTED) {
+      this.latencyAggregator.recordQueueTime(
+          build.getParent().getFullDisplayName(),
+          build.getStartTimeInMillis() - build.getTimeInMillis()
+      );
+    } else if (eventType == BuildEventType.FINALIZED) {
+      Result result = build.getResult();
+
+      this.latencyAggregator.recordDuration(
+          build.getParent().getFullDisplayName(),
+          result != null ? result.toString() : null,
+          build.getDuration()
+      );
+    }
+  }
+
+  private void dispatchSummary(
+      BuildEventType eventType,
+      Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
+      boolean expandTokens
+  ) {
+    switch (eventType) {
+      case INITIALIZED:
+      case STARTED:
+      case COMPLETED:
+        this.summaryTracker.record(eventType, build, System.currentTimeMillis());
+        break;
+      case FINALIZED:
+        this.summaryTracker.record(eventType, build, System.currentTimeMillis());
+        // The environment of a finalized build can still be computed so
+        // custom attribute tokens are expanded for the summary.
+        submit(new BuildEventSnapshot(
+            BuildEventType.SUMMARY,
+            build,
+            true,
+            this.summaryTracker.remove(build)
+        ));
+        break;
+      default:
+        submit(new BuildEventSnapshot(eventType, build, expandTokens));
+        break;
+    }
+  }
+
+  private void submit(final BuildEventSnapshot snapshot) {
+    if (!this.policy.isReporting(
+        snapshot.getEventType(),
+        snapshot.getBuild(),
+        snapshot.getResult()
+    )) {
+      return;
+    }
+
+    Run<?, ?> build = snapshot.getBuild();
+    int worker = Math.floorMod(build.getExternalizableId().hashCode(), this.workers.length);
+
+    this.workers[worker].execute(() -> {
+      try {
+        this.producer.recordEvent(snapshot);
+      } catch (RuntimeException exc) {
+        LOGGER.log(Level.WARNING, String.format(
+            "Could not record %s build event for %s: %s",
+            snapshot.getEventType(),
+            snapshot.getBuild().getFullDisplayName(),
+            exc.getMessage()
+        ), exc);
+      }
+    });
+  }
+
+  private void dropped() {
+    long dropped = this.droppedCount.incrementAndGet();
+
+    if (dropped % DROPPED_LOG_INTERVAL == 1) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d build events because more than %d were waiting to be "
+          + "recorded",
+          dropped,
+          MAX_QUEUED_EVENTS
+      ));
+    }
+  }
+}
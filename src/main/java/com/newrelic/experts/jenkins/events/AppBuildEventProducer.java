@@ -9,10 +9,9 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import com.newrelic.experts.client.model.Event;
-import com.newrelic.experts.jenkins.JenkinsUtils;
 import com.newrelic.experts.jenkins.Messages;
-import com.newrelic.experts.jenkins.extensions.EventConfigJobProperty;
-import com.newrelic.experts.jenkins.extensions.KeyValuePair;
+import com.newrelic.experts.jenkins.TokenExpander;
+import com.newrelic.experts.jenkins.events.CustomAttributeTemplates.Template;
 
 import hudson.model.AbstractBuild;
 import hudson.model.Job;
@@ -24,7 +23,6 @@ import hudson.model.TaskListener;
 import jenkins.model.Jenkins;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,45 +43,50 @@ public class AppBuildEventProducer {
     STARTED,
     COMPLETED,
     FINALIZED,
-    DELETED
+    DELETED,
+    SUMMARY
   }
 
   private static final String CLASS_NAME = AppBuildEventProducer.class.getName();
   private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
 
   private EventHelper eventHelper;
+  private CustomAttributeTemplates templates;
   
   @Inject
   public AppBuildEventProducer(
-      EventHelper eventHelper
+      EventHelper eventHelper,
+      CustomAttributeTemplates templates
   ) {
     this.eventHelper = eventHelper;
+    this.templates = templates;
   }
   
   /**
-   * Record a {@code AppBuildEvent} for the given build {@code eventType}.
+   * Record a {@code AppBuildEvent} from a {@link BuildEventSnapshot}.
+   * <p>
+   * This is called on an {@link AppBuildEventDispatcher} worker thread.  The
+   * event timestamp is the time the snapshot was captured.
+   * </p>
    * 
-   * @param eventType the build event type.
-   * @param build the build currently running.
-   * @param listener the task listener or {@code null}.
+   * @param snapshot the build state captured by the run listener.
    */
-  public void recordEvent(
-      BuildEventType eventType,
-      Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
-      TaskListener listener
-  ) {
+  public void recordEvent(BuildEventSnapshot snapshot) {
     final String methodName = "recordEvent";
     final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
     final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+    final BuildEventType eventType = snapshot.getEventType();
     
     if (isLoggingTrace) {
       LOGGER.entering(CLASS_NAME, methodName, new Object[] { eventType });
     }
     
+    Run<? extends Job<?, ?>, ? extends Run<?, ?>> build = snapshot.getBuild();
     Job<?, ?> job = build.getParent();
     
     Event event = new Event("AppBuildEvent");
     
+    event.put("timestamp", snapshot.getTimestamp());
     event.put("jobUrl", job.getUrl());
     event.put("jobName", job.getDisplayName());
     event.put("jobFullName", job.getFullDisplayName());
@@ -93,14 +96,21 @@ public class AppBuildEventProducer {
     event.put("buildFullName", build.getFullDisplayName());
     event.put("buildEventType", eventType.toString().toLowerCase());
     event.put("buildQueueId", build.getQueueId());
-    event.put("buildMessage", buildBuildMessage(eventType, job, build));
+    event.put("buildMessage", buildBuildMessage(
+        eventType == BuildEventType.SUMMARY ? BuildEventType.FINALIZED : eventType,
+        job,
+        build
+    ));
     
-    Result result = build.getResult();
+    Result result = snapshot.getResult();
     if (result != null) {
       event.put("buildResult", result.toString());
     }
     
-    if (eventType == BuildEventType.STARTED) {
+    if (
+        eventType == BuildEventType.STARTED
+        || eventType == BuildEventType.SUMMARY
+    ) {
       long scheduled = build.getTimeInMillis();
       long started = build.getStartTimeInMillis();
       event.put("buildScheduled", scheduled);
@@ -109,10 +119,17 @@ public class AppBuildEventProducer {
           "buildStartDelay",
           (started - scheduled) / 1000
       );
-    } else if (eventType == BuildEventType.FINALIZED) {
+    }
+    if (
+        eventType == BuildEventType.FINALIZED
+        || eventType == BuildEventType.SUMMARY
+    ) {
       event.put("buildDuration", build.getDuration());
       event.put("buildStatusSummary", build.getBuildStatusSummary().message);
     }
+    if (snapshot.getLifecycleTimestamps() != null) {
+      setLifecycleTimestamps(event, snapshot.getLifecycleTimestamps());
+    }
     
     @SuppressWarnings("deprecation")
     Node buildAgent = Jenkins.getInstance();
@@ -128,7 +145,12 @@ public class AppBuildEventProducer {
     event.put("buildAgentDesc", buildAgent.getNodeDescription());
     this.eventHelper.setLabels(event, "buildAgentLabels", buildAgent);
     this.eventHelper.setHostname(event, "buildAgentHost", buildAgent);
-    setCustomAttributes(event, job, build, listener);
+    setCustomAttributes(
+        event,
+        job,
+        build,
+        snapshot.isExpandTokens() ? TaskListener.NULL : null
+    );
     
     this.eventHelper.recordEvent(event);
 
@@ -169,9 +191,37 @@ public class AppBuildEventProducer {
     );
   }
   
+  /**
+   * Set the lifecycle timestamps tracked by the {@link BuildSummaryTracker}
+   * on {@code event}.  Timestamps for callbacks that were not seen are
+   * omitted.
+   * 
+   * @param event the custom application build event being configured.
+   * @param timestamps the lifecycle timestamps.
+   */
+  private void setLifecycleTimestamps(Event event, long[] timestamps) {
+    putTimestamp(event, "buildInitializedAt", timestamps[BuildSummaryTracker.INITIALIZED]);
+    putTimestamp(event, "buildStartedAt", timestamps[BuildSummaryTracker.STARTED]);
+    putTimestamp(event, "buildCompletedAt", timestamps[BuildSummaryTracker.COMPLETED]);
+    putTimestamp(event, "buildFinalizedAt", timestamps[BuildSummaryTracker.FINALIZED]);
+  }
+
+  private static void putTimestamp(Event event, String attributeName, long timestamp) {
+    if (timestamp > 0) {
+      event.put(attributeName, timestamp);
+    }
+  }
+  
   /**
    * Set any custom attributes on {@code event} that have been configured in
    * the {@code job} configuration.
+   * <p>
+   * Literal values are used as is.  Values containing tokens are only
+   * expanded if a {@code listener} is given.  Otherwise they are omitted,
+   * unless they contain no variable references.  Values which only reference
+   * variables are rendered from the resolved variables without running the
+   * full token expansion.
+   * </p>
    * 
    * @param event the custom application build event being configured.
    * @param job the Jenkins job.
@@ -184,32 +234,35 @@ public class AppBuildEventProducer {
       Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
       TaskListener listener
   ) {
-    EventConfigJobProperty prop = job.getProperty(
-        EventConfigJobProperty.class
-    );
-    if (prop != null) {
-      List<KeyValuePair> customAttributes = prop.getCustomAttributes();
-      if (customAttributes != null && !customAttributes.isEmpty()) {
-        for (KeyValuePair pair : customAttributes) {
-          if (listener == null) {
-            String value = pair.getValue();
-            if (!JenkinsUtils.VARIABLE.matcher(value).find()) {
-              event.put(pair.getName(), value);
-            }
-            continue;
-          }
-          try {
-            event.put(
-                pair.getName(),
-                JenkinsUtils.expandTokens(build, listener, pair.getValue())
-            );
-          } catch (IOException | InterruptedException exc) {
-            LOGGER.log(Level.WARNING, String.format(
-                "Could not expand tokens: %s",
-                exc.getClass().getName()
-            ));
-          }
+    TokenExpander expander = null;
+
+    for (Template template : this.templates.getTemplates(job)) {
+      if (template.isLiteral()) {
+        event.put(template.getName(), template.getValue());
+        continue;
+      }
+      if (listener == null) {
+        if (!template.hasVariables()) {
+          event.put(template.getName(), template.getValue());
+        }
+        continue;
+      }
+      try {
+        if (expander == null) {
+          // The run environment is computed at most once for all templates.
+          expander = new TokenExpander(build, listener);
+        }
+        String value = template.render(expander::resolve);
+
+        if (value == null) {
+          value = expander.expand(template.getValue());
         }
+        event.put(template.getName(), value);
+      } catch (IOException | InterruptedException exc) {
+        LOGGER.log(Level.WARNING, String.format(
+            "Could not expand tokens: %s",
+            exc.getClass().getName()
+        ));
       }
     }
   }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces build deletions into one {@code AppBuildEvent} per job per
+ * harvest cycle.
+ * <p>
+ * Build discarders can delete hundreds of builds at once.  Instead of a full
+ * event per deleted build, each deletion only updates a per-job count and
+ * build number range.  The accumulated deletions are recorded as
+ * {@code AppBuildEvent}s with a {@code buildEventType} of {@code deleted}
+ * once per harvest cycle.  At most {@link #MAX_JOBS} jobs are tracked per
+ * harvest cycle; deletions for further jobs are counted but not reported.
+ * </p>
+ * <p>
+ * Draining the deletions of a job retires them under their own lock, so a
+ * deletion recorded concurrently with {@link #recordEvents()} is either
+ * counted in the drained event or in new deletions for the next harvest,
+ * never lost.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class BuildDeletionAccumulator {
+
+  private static final String CLASS_NAME = BuildDeletionAccumulator.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum number of jobs with deletions tracked per harvest cycle.
+   */
+  public static final int MAX_JOBS = 1000;
+
+  private EventHelper eventHelper;
+  private final Map<String, Deletions> deletions =
+      new ConcurrentHashMap<String, Deletions>();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  @Inject
+  public BuildDeletionAccumulator(
+      EventHelper eventHelper
+  ) {
+    this.eventHelper = eventHelper;
+  }
+
+  /**
+   * Record the deletion of {@code build}.
+   *
+   * @param build the deleted Jenkins run instance.
+   */
+  public void record(Run<?, ?> build) {
+    Job<?, ?> job = build.getParent();
+    String key = job.getFullName();
+    int number = build.getNumber();
+
+    while (true) {
+      Deletions jobDeletions = this.deletions.get(key);
+
+      if (jobDeletions == null) {
+        if (this.deletions.size() >= MAX_JOBS) {
+          this.droppedCount.incrementAndGet();
+          return;
+        }
+        jobDeletions = this.deletions.computeIfAbsent(key, k -> new Deletions(job));
+      }
+
+      if (jobDeletions.add(number)) {
+        return;
+      }
+
+      // The deletions were drained by recordEvents(), record into new ones.
+      this.deletions.remove(key, jobDeletions);
+    }
+  }
+
+  /**
+   * Record one {@code AppBuildEvent} for each job with deletions since the
+   * last call to this method.
+   */
+  public void recordEvents() {
+    final String methodName = "recordEvents";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    List<Event> events = new ArrayList<Event>(this.deletions.size());
+
+    for (Map.Entry<String, Deletions> entry : this.deletions.entrySet()) {
+      this.deletions.remove(entry.getKey(), entry.getValue());
+      events.add(entry.getValue().retire());
+    }
+
+    for (Event event : events) {
+      this.eventHelper.recordEvent(event);
+    }
+
+    long dropped = this.droppedCount.getAndSet(0);
+
+    if (dropped > 0) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d build deletions because builds of more than %d jobs "
+          + "were deleted in a single harvest cycle",
+          dropped,
+          MAX_JOBS
+      ));
+    }
+
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format(
+          "Added build deletion events for %d jobs",
+          events.size()
+      ));
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+
+  /**
+   * The deletion count and build number range for a single job.
+   */
+  static class Deletions {
+
+    private final String jobUrl;
+    private final String jobName;
+    private final String jobFullName;
+    private long count;
+    private int minNumber = Integer.MAX_VALUE;
+    private int maxNumber = Integer.MIN_VALUE;
+    private boolean retired;
+
+    Deletions(Job<?, ?> job) {
+      this.jobUrl = job.getUrl();
+      this.jobName = job.getDisplayName();
+      this.jobFullName = job.getFullDisplayName();
+    }
+
+    synchronized boolean add(int number) {
+      if (this.retired) {
+        return false;
+      }
+      this.count += 1;
+      this.minNumber = Math.min(this.minNumber, number);
+      this.maxNumber = Math.max(this.maxNumber, number);
+      return true;
+    }
+
+    synchronized Event retire() {
+      this.retired = true;
+
+      Event event = new Event("AppBuildEvent");
+
+      event.put("jobUrl", this.jobUrl);
+      event.put("jobName", this.jobName);
+      event.put("jobFullName", this.jobFullName);
+      event.put("buildEventType", "deleted");
+      event.put("buildDeletedCount", this.count);
+      event.put("buildIdMin", this.minNumber);
+      event.put("buildIdMax", this.maxNumber);
+
+      return event;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.newrelic.experts.jenkins.events.AppBuildEventProducer.BuildEventType;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+
+/**
+ * The state of a build captured on the {@link hudson.model.listeners.RunListener}
+ * callback thread.
+ * <p>
+ * Only values which may change after the callback returns are copied.  Everything
+ * else is read from the build by {@link AppBuildEventProducer} on a worker
+ * thread.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public final class BuildEventSnapshot {
+
+  private final BuildEventType eventType;
+  private final Run<? extends Job<?, ?>, ? extends Run<?, ?>> build;
+  private final long timestamp;
+  private final Result result;
+  private final boolean expandTokens;
+  private final long[] lifecycleTimestamps;
+
+  /**
+   * Capture a new {@link BuildEventSnapshot}.
+   *
+   * @param eventType the build event type.
+   * @param build the Jenkins run instance.
+   * @param expandTokens {@code true} if tokens in custom attributes should be
+   *        expanded, which is only the case while the build is running.
+   */
+  public BuildEventSnapshot(
+      BuildEventType eventType,
+      Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
+      boolean expandTokens
+  ) {
+    this(eventType, build, expandTokens, null);
+  }
+
+  /**
+   * Capture a new {@link BuildEventSnapshot} with the lifecycle timestamps
+   * of the build.
+   *
+   * @param eventType the build event type.
+   * @param build the Jenkins run instance.
+   * @param expandTokens {@code true} if tokens in custom attributes should be
+   *        expanded.
+   * @param lifecycleTimestamps the lifecycle timestamps tracked by the
+   *        {@link BuildSummaryTracker} or {@code null}.
+   */
+  public BuildEventSnapshot(
+      BuildEventType eventType,
+      Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
+      boolean expandTokens,
+      long[] lifecycleTimestamps
+  ) {
+    this.eventType = eventType;
+    this.build = build;
+    this.timestamp = System.currentTimeMillis();
+    this.result = build.getResult();
+    this.expandTokens = expandTokens;
+    this.lifecycleTimestamps = lifecycleTimestamps;
+  }
+
+  public BuildEventType getEventType() {
+    return eventType;
+  }
+
+  public Run<? extends Job<?, ?>, ? extends Run<?, ?>> getBuild() {
+    return build;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public Result getResult() {
+    return result;
+  }
+
+  public boolean isExpandTokens() {
+    return expandTokens;
+  }
+
+  public long[] getLifecycleTimestamps() {
+    return lifecycleTimestamps;
+  }
+}
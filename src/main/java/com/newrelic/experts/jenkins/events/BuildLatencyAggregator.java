@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Metric;
+import com.newrelic.experts.client.model.MetricBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An in-process aggregator for build durations and build queue times.
+ * <p>
+ * Values are recorded into one {@link LatencyHistogram} per job and build
+ * result (queue times are recorded per job only since the result is not
+ * known yet when a build starts).  {@link #harvest(Map)} turns the
+ * histograms into a {@code summary} metric with the count, sum, min and max
+ * and into {@code gauge} metrics for the {@link #PERCENTILES} of each
+ * series, so dashboards can read percentiles without scanning the raw
+ * {@code AppBuildEvent}s.
+ * </p>
+ * <p>
+ * Each histogram takes about 15KB so at most {@value #MAX_SERIES} series
+ * are tracked.  When a new series would exceed the limit the least
+ * recently updated series is dropped along with the values it recorded
+ * since the last harvest.  Series which record no values during a harvest
+ * window are dropped at the end of it.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class BuildLatencyAggregator {
+
+  private static final String CLASS_NAME = BuildLatencyAggregator.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The name of the build duration metrics.
+   */
+  public static final String DURATION_METRIC = "jenkins.build.duration";
+
+  /**
+   * The name of the build queue time metrics.
+   */
+  public static final String QUEUE_TIME_METRIC = "jenkins.build.queueTime";
+
+  /**
+   * The maximum number of job and result series to track.
+   */
+  public static final int MAX_SERIES = 500;
+
+  /**
+   * The percentiles reported for each series, as {@code <metric>.p<n>}
+   * gauges.
+   */
+  static final int[] PERCENTILES = { 50, 95, 99 };
+
+  private final LongSupplier clock;
+  private final int maxSeries;
+  private final Map<String, Series> series;
+  private long windowStart;
+  private long evictedCount;
+
+  /**
+   * Create a new {@link BuildLatencyAggregator} using the system clock.
+   */
+  @Inject
+  public BuildLatencyAggregator() {
+    this(System::currentTimeMillis, MAX_SERIES);
+  }
+
+  /**
+   * Create a new {@link BuildLatencyAggregator} using the given
+   * {@code clock} and series limit.
+   *
+   * @param clock the clock returning the current time in milliseconds.
+   * @param maxSeries the maximum number of series to track.
+   */
+  BuildLatencyAggregator(LongSupplier clock, final int maxSeries) {
+    this.clock = clock;
+    this.maxSeries = maxSeries;
+    this.windowStart = clock.getAsLong();
+    this.series = new LinkedHashMap<String, Series>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Series> eldest) {
+        if (size() > maxSeries) {
+          evictedCount += 1;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Record the duration of a finalized build.
+   *
+   * @param jobName the full name of the job.
+   * @param result the build result or {@code null} if it is not known.
+   * @param duration the build duration in milliseconds.
+   */
+  public synchronized void recordDuration(String jobName, String result, long duration) {
+    getSeries(DURATION_METRIC, jobName, result).histogram.recordValue(duration);
+  }
+
+  /**
+   * Record the time a build spent waiting between being scheduled and
+   * starting.
+   *
+   * @param jobName the full name of the job.
+   * @param queueTime the queue time in milliseconds.
+   */
+  public synchronized void recordQueueTime(String jobName, long queueTime) {
+    getSeries(QUEUE_TIME_METRIC, jobName, null).histogram.recordValue(queueTime);
+  }
+
+  private Series getSeries(String metricName, String jobName, String result) {
+    String key = metricName + '\u0000' + jobName + '\u0000' + result;
+    Series current = this.series.get(key);
+
+    if (current == null) {
+      current = new Series(metricName, jobName, result);
+      this.series.put(key, current);
+    }
+
+    return current;
+  }
+
+  /**
+   * Return the metrics aggregated since the last harvest and start a new
+   * harvest window.
+   *
+   * @param commonAttributes the attributes common to all metrics.
+   * @return the batch of aggregated metrics or {@code null} if no values
+   *        were recorded since the last harvest.
+   */
+  public synchronized MetricBatch harvest(Map<String, Object> commonAttributes) {
+    long now = this.clock.getAsLong();
+    List<Metric> metrics = new ArrayList<Metric>();
+    Iterator<Series> iterator = this.series.values().iterator();
+
+    while (iterator.hasNext()) {
+      Series current = iterator.next();
+      LatencyHistogram.Snapshot snapshot = current.histogram.snapshotAndReset();
+
+      if (snapshot.getCount() == 0) {
+        iterator.remove();
+        continue;
+      }
+
+      Map<String, Object> attributes = new HashMap<String, Object>(4);
+
+      attributes.put("jobFullName", current.jobName);
+      if (current.result != null) {
+        attributes.put("buildResult", current.result);
+      }
+
+      Metric summary = Metric.summary(
+          current.metricName,
+          snapshot.getCount(),
+          snapshot.getSum(),
+          snapshot.getMin(),
+          snapshot.getMax()
+      );
+      summary.setAttributes(attributes);
+      metrics.add(summary);
+
+      for (int percentile : PERCENTILES) {
+        Metric gauge = Metric.gauge(
+            current.metricName + ".p" + percentile,
+            snapshot.getValueAtPercentile(percentile)
+        );
+        gauge.setAttributes(attributes);
+        metrics.add(gauge);
+      }
+    }
+
+    if (this.evictedCount > 0) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d build latency series, more than %d series were active",
+          this.evictedCount,
+          this.maxSeries
+      ));
+      this.evictedCount = 0;
+    }
+
+    MetricBatch.Common common = new MetricBatch.Common();
+
+    common.setTimestamp(this.windowStart);
+    common.setIntervalMs(now - this.windowStart);
+    common.setAttributes(commonAttributes);
+    this.windowStart = now;
+
+    if (metrics.isEmpty()) {
+      return null;
+    }
+
+    MetricBatch batch = new MetricBatch();
+
+    batch.setCommon(common);
+    batch.setMetrics(metrics);
+
+    return batch;
+  }
+
+  private static final class Series {
+    final String metricName;
+    final String jobName;
+    final String result;
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    Series(String metricName, String jobName, String result) {
+      this.metricName = metricName;
+      this.jobName = jobName;
+      this.result = result;
+    }
+  }
+}
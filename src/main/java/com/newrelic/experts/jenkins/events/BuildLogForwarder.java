@@ -0,0 +1,344 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.LogBatch;
+import com.newrelic.experts.client.model.LogEntry;
+
+import hudson.console.ConsoleNote;
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A forwarder which tails the console logs of builds and sends the new
+ * lines as {@link LogBatch}es.
+ * <p>
+ * Each build has a cursor holding the byte offset and line number reached
+ * in its log.  Every call to {@link #forward} reads at most
+ * {@value #MAX_READ_BYTES} bytes of whole lines per build, starting at the
+ * cursor, and only advances the cursor once the lines were sent, so logs
+ * are never read twice and lines are only re-sent after a failed send.
+ * The cursor is saved in the build directory after every send so that
+ * forwarding resumes where it left off when Jenkins restarts.  A build is
+ * forwarded until its log is complete and has been read to the end.  It is
+ * then remembered as finished for as long as it is still reported as
+ * running, so it is not forwarded again from the start while its
+ * finalization completes.  A build is dropped when its build directory is
+ * gone, and after {@value #MAX_FAILURES} consecutive failed sends.
+ * </p>
+ * <p>
+ * The number of bytes read per call is bounded by a budget shared by all
+ * builds.  Builds are served in turn, starting with the build served least
+ * recently, so a large log can delay but never starve the others.  Lines
+ * are only cut into pieces when a build could read the full
+ * {@value #MAX_READ_BYTES} bytes, or the whole budget if that is smaller,
+ * without finding a line break.  A build which could not read a whole line
+ * from what remained of the budget keeps its turn for the next call.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class BuildLogForwarder {
+
+  private static final String CLASS_NAME = BuildLogForwarder.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum number of bytes read from a single build per call.  This
+   * keeps each Log API request below its 1MB payload limit.
+   */
+  public static final int MAX_READ_BYTES = 512 * 1024;
+
+  /**
+   * The name of the file, in the build directory, holding the cursor.
+   */
+  static final String CURSOR_FILE_NAME = "new-relic-log-cursor";
+
+  /**
+   * The number of consecutive failed sends after which a build is dropped.
+   */
+  public static final int MAX_FAILURES = 5;
+
+  /**
+   * Sends a batch of log records.
+   */
+  public interface Sender {
+    void send(LogBatch batch) throws IOException;
+  }
+
+  private EventHelper eventHelper;
+  private final Map<String, Cursor> cursors = new LinkedHashMap<String, Cursor>();
+  private final Set<String> finished = new HashSet<String>();
+
+  @Inject
+  public BuildLogForwarder(
+      EventHelper eventHelper
+  ) {
+    this.eventHelper = eventHelper;
+  }
+
+  /**
+   * Forward the new lines of the logs of the {@code running} builds and of
+   * the builds forwarded before whose logs are not fully read yet.
+   *
+   * @param running the builds which are running.
+   * @param byteBudget the maximum number of bytes to read.
+   * @param sender the sender to send the log batches with.
+   * @return the number of bytes forwarded.
+   */
+  public synchronized long forward(
+      Iterable<Run<?, ?>> running,
+      long byteBudget,
+      Sender sender
+  ) {
+    final String methodName = "forward";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    Set<String> runningIds = new HashSet<String>();
+
+    for (Run<?, ?> run : running) {
+      String runId = run.getExternalizableId();
+      runningIds.add(runId);
+      if (!this.cursors.containsKey(runId) && !this.finished.contains(runId)) {
+        this.cursors.put(runId, loadCursor(run));
+      }
+    }
+
+    // Forget finished builds once they are no longer running.
+    this.finished.retainAll(runningIds);
+
+    final int maxLineBytes = (int)Math.min(MAX_READ_BYTES, byteBudget);
+    long forwarded = 0;
+
+    for (Cursor cursor : new ArrayList<Cursor>(this.cursors.values())) {
+      if (byteBudget - forwarded <= 0) {
+        break;
+      }
+
+      if (!cursor.run.getRootDir().isDirectory()) {
+        // The build was deleted.
+        this.cursors.remove(cursor.runId);
+        continue;
+      }
+
+      try {
+        forwarded += forward(
+            cursor,
+            (int)Math.min(MAX_READ_BYTES, byteBudget - forwarded),
+            maxLineBytes,
+            sender
+        );
+      } catch (IOException exc) {
+        LOGGER.log(Level.WARNING, String.format(
+            "Could not forward the log of %s: %s",
+            cursor.runId,
+            exc.getMessage()
+        ), exc);
+        this.cursors.remove(cursor.runId);
+        cursor.failures += 1;
+        if (cursor.failures >= MAX_FAILURES) {
+          LOGGER.log(Level.WARNING, String.format(
+              "Stopped forwarding the log of %s after %d failures",
+              cursor.runId,
+              cursor.failures
+          ));
+          this.finished.add(cursor.runId);
+        } else {
+          // Retry at the next call, starting with the other builds.
+          this.cursors.put(cursor.runId, cursor);
+        }
+        break;
+      }
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName, forwarded);
+    }
+
+    return forwarded;
+  }
+
+  private long forward(
+      Cursor cursor,
+      int maxBytes,
+      int maxLineBytes,
+      Sender sender
+  ) throws IOException {
+    Run<?, ?> run = cursor.run;
+    boolean complete = !run.isLogUpdated();
+    LogTailer.Chunk chunk;
+
+    try (InputStream in = run.getLogInputStream()) {
+      chunk = LogTailer.read(
+          in,
+          run.getCharset(),
+          cursor.offset,
+          maxBytes,
+          maxLineBytes,
+          complete
+      );
+    }
+
+    long read = chunk.nextOffset - cursor.offset;
+
+    if (!chunk.lines.isEmpty()) {
+      sender.send(createBatch(run, cursor.lineCount, chunk.lines));
+      cursor.offset = chunk.nextOffset;
+      cursor.lineCount += chunk.lines.size();
+    }
+    cursor.failures = 0;
+
+    if (complete && chunk.end) {
+      this.cursors.remove(cursor.runId);
+      this.finished.add(cursor.runId);
+      deleteCursor(run);
+      return read;
+    }
+
+    if (read > 0) {
+      // Serve the build last at the next call.
+      this.cursors.remove(cursor.runId);
+      this.cursors.put(cursor.runId, cursor);
+      saveCursor(cursor);
+    }
+    return read;
+  }
+
+  private LogBatch createBatch(Run<?, ?> run, long firstLine, List<String> lines) {
+    Job<?, ?> job = run.getParent();
+    Map<String, Object> attributes = new HashMap<String, Object>(
+        this.eventHelper.getCommonAttributeValues()
+    );
+
+    attributes.put("logtype", "jenkins-build-log");
+    attributes.put("jobName", job.getDisplayName());
+    attributes.put("jobFullName", job.getFullDisplayName());
+    attributes.put("buildId", run.getId());
+    attributes.put("buildUrl", run.getUrl());
+
+    LogBatch.Common common = new LogBatch.Common();
+    List<LogEntry> entries = new ArrayList<LogEntry>(lines.size());
+    long timestamp = System.currentTimeMillis();
+    long lineNumber = firstLine;
+
+    common.setAttributes(attributes);
+    for (String line : lines) {
+      lineNumber += 1;
+      entries.add(new LogEntry(
+          timestamp,
+          ConsoleNote.removeNotes(line),
+          Collections.<String, Object>singletonMap("buildLogLine", lineNumber)
+      ));
+    }
+
+    LogBatch batch = new LogBatch();
+
+    batch.setCommon(common);
+    batch.setLogs(entries);
+
+    return batch;
+  }
+
+  private static Cursor loadCursor(Run<?, ?> run) {
+    Cursor cursor = new Cursor(run);
+    Path path = new File(run.getRootDir(), CURSOR_FILE_NAME).toPath();
+
+    if (!Files.exists(path)) {
+      return cursor;
+    }
+
+    try {
+      String[] values = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII)
+          .trim()
+          .split(" ");
+      cursor.offset = Long.parseLong(values[0]);
+      cursor.lineCount = Long.parseLong(values[1]);
+    } catch (IOException | RuntimeException exc) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Could not read the log cursor of %s, forwarding the whole log: %s",
+          cursor.runId,
+          exc.getMessage()
+      ), exc);
+    }
+
+    return cursor;
+  }
+
+  private static void saveCursor(Cursor cursor) {
+    File dir = cursor.run.getRootDir();
+    Path tmp = new File(dir, CURSOR_FILE_NAME + ".tmp").toPath();
+
+    try {
+      Files.write(
+          tmp,
+          (cursor.offset + " " + cursor.lineCount).getBytes(StandardCharsets.US_ASCII)
+      );
+      Files.move(
+          tmp,
+          new File(dir, CURSOR_FILE_NAME).toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE
+      );
+    } catch (IOException exc) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Could not save the log cursor of %s: %s",
+          cursor.runId,
+          exc.getMessage()
+      ), exc);
+    }
+  }
+
+  private static void deleteCursor(Run<?, ?> run) {
+    try {
+      Files.deleteIfExists(new File(run.getRootDir(), CURSOR_FILE_NAME).toPath());
+    } catch (IOException exc) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Could not delete the log cursor of %s: %s",
+          run.getExternalizableId(),
+          exc.getMessage()
+      ), exc);
+    }
+  }
+
+  private static final class Cursor {
+    final Run<?, ?> run;
+    final String runId;
+    long offset;
+    long lineCount;
+    int failures;
+
+    Cursor(Run<?, ?> run) {
+      this.run = run;
+      this.runId = run.getExternalizableId();
+    }
+  }
+}
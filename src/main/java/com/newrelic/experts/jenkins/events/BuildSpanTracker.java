@@ -0,0 +1,309 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Span;
+import com.newrelic.experts.client.model.SpanBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A tracker which turns builds, and the stages and steps of Pipeline builds,
+ * into distributed trace spans.
+ * <p>
+ * Each build is one trace with a root span for the run.  Spans are keyed by
+ * a caller supplied key (the flow node ID for Pipeline builds) and are
+ * parented to the innermost enclosing span which is still open, or to the
+ * root span.  Completed spans are buffered per build and only become
+ * available to {@link #popBatches(Map)} once the build is finished, so a
+ * trace is always sent as a whole.
+ * </p>
+ * <p>
+ * Memory is bounded: at most {@value #MAX_OPEN_RUNS} builds are tracked
+ * (the oldest open build is dropped beyond that), at most
+ * {@value #MAX_SPANS_PER_RUN} spans are kept per build and at most
+ * {@value #MAX_PENDING_SPANS} spans of finished builds wait for the next
+ * harvest.  Dropped spans are counted and logged at each harvest.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class BuildSpanTracker {
+
+  private static final String CLASS_NAME = BuildSpanTracker.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum number of builds with open traces.
+   */
+  public static final int MAX_OPEN_RUNS = 200;
+
+  /**
+   * The maximum number of spans kept for a single build.
+   */
+  public static final int MAX_SPANS_PER_RUN = 2000;
+
+  /**
+   * The maximum number of spans of finished builds kept between harvests.
+   */
+  public static final int MAX_PENDING_SPANS = 20000;
+
+  /**
+   * The maximum number of spans per {@link SpanBatch}.
+   */
+  public static final int MAX_BATCH_SIZE = 1000;
+
+  private final Map<String, RunTrace> runs =
+      new LinkedHashMap<String, RunTrace>(16, 0.75f, false) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RunTrace> eldest) {
+          if (size() > MAX_OPEN_RUNS) {
+            droppedSpanCount += eldest.getValue().spanCount;
+            return true;
+          }
+          return false;
+        }
+      };
+  private List<Span> pending = new ArrayList<Span>();
+  private long droppedSpanCount;
+
+  @Inject
+  public BuildSpanTracker() {
+  }
+
+  /**
+   * Start the trace of a build.  Starting a build which is already tracked
+   * has no effect.
+   *
+   * @param runId the unique ID of the build.
+   * @param name the name of the root span.
+   * @param startTime the build start time in milliseconds.
+   */
+  public synchronized void startRun(String runId, String name, long startTime) {
+    if (!this.runs.containsKey(runId)) {
+      this.runs.put(runId, new RunTrace(name, startTime));
+    }
+  }
+
+  /**
+   * Open a span in the trace of a build.  Spans of builds which are not
+   * tracked, for example builds resumed after a restart, are ignored.
+   *
+   * @param runId the unique ID of the build.
+   * @param key the key of the span, unique within the build.
+   * @param enclosingKeys the keys of the enclosing spans, innermost first.
+   * @param name the span name.
+   * @param kind the kind of span, for example {@code stage} or {@code step}.
+   * @param startTime the span start time in milliseconds.
+   */
+  public synchronized void startSpan(
+      String runId,
+      String key,
+      List<String> enclosingKeys,
+      String name,
+      String kind,
+      long startTime
+  ) {
+    RunTrace run = this.runs.get(runId);
+
+    if (run == null) {
+      return;
+    }
+
+    if (run.spanCount >= MAX_SPANS_PER_RUN) {
+      run.droppedSpanCount += 1;
+      return;
+    }
+
+    String parentId = run.root.getId();
+
+    for (String enclosingKey : enclosingKeys) {
+      Span enclosing = run.open.get(enclosingKey);
+      if (enclosing != null) {
+        parentId = enclosing.getId();
+        break;
+      }
+    }
+
+    Span span = run.newSpan(startTime);
+
+    span.getAttributes().put("name", name);
+    span.getAttributes().put("parent.id", parentId);
+    span.getAttributes().put("jenkins.span.kind", kind);
+    run.open.put(key, span);
+  }
+
+  /**
+   * Close a span in the trace of a build.  Closing a span which is not open
+   * has no effect.  The name and kind given when the span was opened are
+   * replaced since they may only be known once the span has ended.
+   *
+   * @param runId the unique ID of the build.
+   * @param key the key of the span.
+   * @param name the span name.
+   * @param kind the kind of span.
+   * @param endTime the span end time in milliseconds.
+   * @param result the outcome of the span or {@code null} if it succeeded.
+   */
+  public synchronized void endSpan(
+      String runId,
+      String key,
+      String name,
+      String kind,
+      long endTime,
+      String result
+  ) {
+    RunTrace run = this.runs.get(runId);
+
+    if (run == null) {
+      return;
+    }
+
+    Span span = run.open.remove(key);
+
+    if (span != null) {
+      span.getAttributes().put("name", name);
+      span.getAttributes().put("jenkins.span.kind", kind);
+      run.close(span, endTime, result);
+    }
+  }
+
+  /**
+   * Finish the trace of a build.  Spans which are still open are closed at
+   * {@code endTime} and the whole trace is queued for the next harvest.
+   *
+   * @param runId the unique ID of the build.
+   * @param endTime the build end time in milliseconds.
+   * @param result the build result or {@code null} if it is not known.
+   * @param attributes additional attributes of the root span.
+   */
+  public synchronized void finishRun(
+      String runId,
+      long endTime,
+      String result,
+      Map<String, Object> attributes
+  ) {
+    RunTrace run = this.runs.remove(runId);
+
+    if (run == null) {
+      return;
+    }
+
+    for (Span span : run.open.values()) {
+      run.close(span, endTime, null);
+    }
+    run.open.clear();
+
+    run.root.getAttributes().putAll(attributes);
+    if (run.droppedSpanCount > 0) {
+      run.root.getAttributes().put("jenkins.droppedSpanCount", run.droppedSpanCount);
+      this.droppedSpanCount += run.droppedSpanCount;
+    }
+    run.close(run.root, endTime, result);
+
+    int available = MAX_PENDING_SPANS - this.pending.size();
+
+    if (run.completed.size() > available) {
+      this.droppedSpanCount += run.completed.size();
+      return;
+    }
+    this.pending.addAll(run.completed);
+  }
+
+  /**
+   * Return the spans of the builds finished since the last call, in
+   * batches of at most {@value #MAX_BATCH_SIZE} spans.
+   *
+   * @param commonAttributes the attributes common to all spans.
+   * @return the span batches, empty if there are no spans to send.
+   */
+  public synchronized SpanBatch[] popBatches(Map<String, Object> commonAttributes) {
+    if (this.droppedSpanCount > 0) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d spans because of the trace size limits",
+          this.droppedSpanCount
+      ));
+      this.droppedSpanCount = 0;
+    }
+
+    List<Span> spans = this.pending;
+    int batchCount = (spans.size() + MAX_BATCH_SIZE - 1) / MAX_BATCH_SIZE;
+    SpanBatch[] batches = new SpanBatch[batchCount];
+
+    for (int index = 0; index < batchCount; index += 1) {
+      SpanBatch.Common common = new SpanBatch.Common();
+      SpanBatch batch = new SpanBatch();
+      int from = index * MAX_BATCH_SIZE;
+
+      common.setAttributes(commonAttributes);
+      batch.setCommon(common);
+      batch.setSpans(new ArrayList<Span>(
+          spans.subList(from, Math.min(from + MAX_BATCH_SIZE, spans.size()))
+      ));
+      batches[index] = batch;
+    }
+
+    this.pending = new ArrayList<Span>();
+
+    return batches;
+  }
+
+  private static String newId(int longs) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    StringBuilder id = new StringBuilder(longs * 16);
+
+    for (int index = 0; index < longs; index += 1) {
+      String hex = Long.toHexString(random.nextLong());
+      for (int pad = hex.length(); pad < 16; pad += 1) {
+        id.append('0');
+      }
+      id.append(hex);
+    }
+
+    return id.toString();
+  }
+
+  private static final class RunTrace {
+    final String traceId = newId(2);
+    final Span root;
+    final Map<String, Span> open = new HashMap<String, Span>();
+    final List<Span> completed = new ArrayList<Span>();
+    int spanCount;
+    long droppedSpanCount;
+
+    RunTrace(String name, long startTime) {
+      this.root = newSpan(startTime);
+      this.root.getAttributes().put("name", name);
+      this.root.getAttributes().put("jenkins.span.kind", "run");
+    }
+
+    Span newSpan(long startTime) {
+      this.spanCount += 1;
+      return new Span(newId(1), this.traceId, startTime);
+    }
+
+    void close(Span span, long endTime, String result) {
+      span.getAttributes().put("duration.ms", Math.max(0, endTime - span.getTimestamp()));
+      if (result != null) {
+        span.getAttributes().put("jenkins.result", result);
+      }
+      this.completed.add(span);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.jenkins.events.AppBuildEventProducer.BuildEventType;
+
+import hudson.model.Run;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the lifecycle timestamps of in-flight builds for the build summary
+ * mode.
+ * <p>
+ * Each tracked build costs one map entry keyed by the externalizable ID of
+ * the build, so the {@link Run} itself is not retained, and holding a
+ * {@code long[]} with the time of each lifecycle callback.  The entry is
+ * removed when the build is finalized or deleted, also if the summary mode
+ * was turned off in the meantime.  At most {@link #MAX_TRACKED_BUILDS}
+ * builds are tracked; the summary of a build that could not be tracked is
+ * still recorded but without the lifecycle timestamps and a warning is
+ * logged when the limit is reached.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class BuildSummaryTracker {
+
+  private static final String CLASS_NAME = BuildSummaryTracker.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum number of in-flight builds tracked.
+   */
+  public static final int MAX_TRACKED_BUILDS = 10000;
+
+  /**
+   * Index of the initialized timestamp in the lifecycle timestamps.
+   */
+  public static final int INITIALIZED = 0;
+
+  /**
+   * Index of the started timestamp in the lifecycle timestamps.
+   */
+  public static final int STARTED = 1;
+
+  /**
+   * Index of the completed timestamp in the lifecycle timestamps.
+   */
+  public static final int COMPLETED = 2;
+
+  /**
+   * Index of the finalized timestamp in the lifecycle timestamps.
+   */
+  public static final int FINALIZED = 3;
+
+  private final Map<String, long[]> builds = new ConcurrentHashMap<String, long[]>();
+  private final AtomicBoolean full = new AtomicBoolean();
+
+  @Inject
+  public BuildSummaryTracker() {
+  }
+
+  /**
+   * Record the time of a lifecycle callback for {@code build}.
+   *
+   * @param eventType the build event type.
+   * @param build the Jenkins run instance.
+   * @param timestamp the time of the callback.
+   */
+  public void record(BuildEventType eventType, Run<?, ?> build, long timestamp) {
+    int index = indexOf(eventType);
+
+    if (index < 0) {
+      return;
+    }
+
+    String id = build.getExternalizableId();
+    long[] timestamps = this.builds.get(id);
+
+    if (timestamps == null) {
+      if (this.builds.size() >= MAX_TRACKED_BUILDS) {
+        if (this.full.compareAndSet(false, true)) {
+          LOGGER.log(Level.WARNING, String.format(
+              "Tracking %d builds for the build summary mode, lifecycle "
+              + "timestamps of further builds will not be recorded",
+              MAX_TRACKED_BUILDS
+          ));
+        }
+        return;
+      }
+      this.full.set(false);
+      timestamps = this.builds.computeIfAbsent(id, b -> new long[4]);
+    }
+
+    synchronized (timestamps) {
+      timestamps[index] = timestamp;
+    }
+  }
+
+  /**
+   * Stop tracking {@code build} and return its lifecycle timestamps.
+   *
+   * @param build the Jenkins run instance.
+   * @return the lifecycle timestamps indexed by {@link #INITIALIZED},
+   *        {@link #STARTED}, {@link #COMPLETED} and {@link #FINALIZED}, with
+   *        0 for callbacks that were not seen.
+   */
+  public long[] remove(Run<?, ?> build) {
+    long[] timestamps = this.builds.remove(build.getExternalizableId());
+
+    if (timestamps == null) {
+      return new long[4];
+    }
+
+    synchronized (timestamps) {
+      return timestamps.clone();
+    }
+  }
+
+  /**
+   * Return the number of tracked builds.
+   *
+   * @return the number of tracked builds.
+   */
+  public int size() {
+    return this.builds.size();
+  }
+
+  private static int indexOf(BuildEventType eventType) {
+    switch (eventType) {
+      case INITIALIZED:
+        return INITIALIZED;
+      case STARTED:
+        return STARTED;
+      case COMPLETED:
+        return COMPLETED;
+      case FINALIZED:
+        return FINALIZED;
+      default:
+        return -1;
+    }
+  }
+}
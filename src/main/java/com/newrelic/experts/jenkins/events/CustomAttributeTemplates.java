@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.jenkins.JenkinsUtils;
+import com.newrelic.experts.jenkins.extensions.EventConfigJobProperty;
+import com.newrelic.experts.jenkins.extensions.KeyValuePair;
+
+import hudson.model.Item;
+import hudson.model.Job;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.regex.Matcher;
+
+/**
+ * A cache of the compiled custom attribute templates of each job.
+ * <p>
+ * The custom attributes in a job's {@link EventConfigJobProperty} are
+ * compiled once into {@link Template}s.  Literal values are used as is
+ * without any token expansion.  Values made up only of literal text and
+ * variable references are split into segments so that only the referenced
+ * variables are resolved, and any other value is left to the full token
+ * expansion.  Jenkins creates a new job property whenever the job
+ * configuration is saved, so an entry is also recompiled if it was compiled
+ * from a different property instance.  Jobs are weakly referenced so deleted
+ * jobs are not retained.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class CustomAttributeTemplates {
+
+  private static final Compiled EMPTY = new Compiled(null, new Template[0]);
+
+  private final Map<Job<?, ?>, Compiled> compiled =
+      Collections.synchronizedMap(new WeakHashMap<Job<?, ?>, Compiled>());
+
+  @Inject
+  public CustomAttributeTemplates() {
+  }
+
+  /**
+   * Return the compiled custom attribute templates for {@code job}.
+   *
+   * @param job the Jenkins job.
+   * @return the compiled templates, which may be empty.
+   */
+  public Template[] getTemplates(Job<?, ?> job) {
+    EventConfigJobProperty prop = job.getProperty(EventConfigJobProperty.class);
+
+    if (prop == null) {
+      this.compiled.remove(job);
+      return EMPTY.templates;
+    }
+
+    Compiled entry = this.compiled.get(job);
+
+    if (entry == null || entry.property != prop) {
+      entry = compile(prop);
+      this.compiled.put(job, entry);
+    }
+
+    return entry.templates;
+  }
+
+  /**
+   * Discard the compiled templates for {@code item} if it is a job.
+   *
+   * @param item the Jenkins item.
+   */
+  public void invalidate(Item item) {
+    if (item instanceof Job) {
+      this.compiled.remove(item);
+    }
+  }
+
+  private static Compiled compile(EventConfigJobProperty prop) {
+    List<KeyValuePair> customAttributes = prop.getCustomAttributes();
+
+    if (customAttributes == null || customAttributes.isEmpty()) {
+      return new Compiled(prop, EMPTY.templates);
+    }
+
+    Template[] templates = new Template[customAttributes.size()];
+
+    for (int index = 0; index < templates.length; index += 1) {
+      KeyValuePair pair = customAttributes.get(index);
+      templates[index] = new Template(pair.getName(), pair.getValue());
+    }
+
+    return new Compiled(prop, templates);
+  }
+
+  /**
+   * A single compiled custom attribute.
+   */
+  public static final class Template {
+
+    private final String name;
+    private final String value;
+    private final boolean literal;
+    private final boolean variables;
+    private final String[] segments;
+
+    Template(String name, String value) {
+      this.name = name;
+      this.value = value != null ? value : "";
+      this.literal = this.value.indexOf('$') < 0;
+      this.variables = (
+          !this.literal && JenkinsUtils.VARIABLE.matcher(this.value).find()
+      );
+      this.segments = this.variables ? split(this.value) : null;
+    }
+
+    /**
+     * Split {@code value} into alternating literal and variable name
+     * segments, starting with a literal.  Return {@code null} if the value
+     * contains escaped dollars or tokens other than variable references.
+     */
+    private static String[] split(String value) {
+      List<String> segments = new ArrayList<String>();
+      Matcher matcher = JenkinsUtils.VARIABLE.matcher(value);
+      int start = 0;
+
+      while (matcher.find()) {
+        String literal = value.substring(start, matcher.start());
+        String variable = matcher.group(1);
+
+        if (literal.indexOf('$') >= 0 || variable.equals("$")) {
+          return null;
+        }
+        if (variable.startsWith("{")) {
+          variable = variable.substring(1, variable.length() - 1);
+        }
+        segments.add(literal);
+        segments.add(variable);
+        start = matcher.end();
+      }
+
+      String literal = value.substring(start);
+
+      if (literal.indexOf('$') >= 0) {
+        return null;
+      }
+      segments.add(literal);
+
+      return segments.toArray(new String[segments.size()]);
+    }
+
+    /**
+     * Return the attribute name.
+     *
+     * @return the attribute name.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Return the attribute value template.
+     *
+     * @return the attribute value template.
+     */
+    public String getValue() {
+      return value;
+    }
+
+    /**
+     * Return {@code true} if the value contains no tokens at all and can be
+     * used without expansion.
+     *
+     * @return {@code true} if the value is a literal.
+     */
+    public boolean isLiteral() {
+      return literal;
+    }
+
+    /**
+     * Return {@code true} if the value contains variable references.
+     *
+     * @return {@code true} if the value contains variable references.
+     */
+    public boolean hasVariables() {
+      return variables;
+    }
+
+    /**
+     * Render the value by resolving only the variables it references.
+     * <p>
+     * Return {@code null} if the value cannot be rendered this way, because
+     * it contains other tokens, a variable is not resolved by
+     * {@code resolver} or a resolved value contains tokens itself.  The value
+     * must then be passed through the full token expansion.
+     * </p>
+     *
+     * @param resolver resolves a variable name to its value or {@code null}.
+     * @return the rendered value or {@code null}.
+     * @throws IOException if {@code resolver} fails to resolve a variable.
+     * @throws InterruptedException if {@code resolver} is interrupted.
+     */
+    public String render(Resolver resolver) throws IOException, InterruptedException {
+      if (literal) {
+        return value;
+      }
+      if (segments == null) {
+        return null;
+      }
+
+      StringBuilder result = new StringBuilder(value.length());
+
+      for (int index = 0; index < segments.length; index += 1) {
+        if (index % 2 == 0) {
+          result.append(segments[index]);
+          continue;
+        }
+
+        String resolved = resolver.resolve(segments[index]);
+
+        if (resolved == null || resolved.indexOf('$') >= 0) {
+          return null;
+        }
+        result.append(resolved);
+      }
+
+      return result.toString();
+    }
+  }
+
+  /**
+   * Resolves the variables referenced by a {@link Template}.
+   */
+  public interface Resolver {
+
+    /**
+     * Resolve the variable {@code name}.
+     *
+     * @param name the variable name.
+     * @return the variable value or {@code null} if it is not defined.
+     * @throws IOException if the value could not be computed.
+     * @throws InterruptedException if the thread is interrupted while
+     *        computing the value.
+     */
+    String resolve(String name) throws IOException, InterruptedException;
+  }
+
+  /**
+   * The compiled templates along with the property they were compiled from.
+   */
+  private static final class Compiled {
+
+    private final EventConfigJobProperty property;
+    private final Template[] templates;
+
+    Compiled(EventConfigJobProperty property, Template[] templates) {
+      this.property = property;
+      this.templates = templates;
+    }
+  }
+}
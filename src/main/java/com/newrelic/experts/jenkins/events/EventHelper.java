@@ -1,20 +1,22 @@
 package com.newrelic.experts.jenkins.events;
 
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import com.newrelic.experts.client.model.Event;
 
 import hudson.model.Computer;
 import hudson.model.Node;
-import hudson.model.labels.LabelAtom;
-import hudson.util.TagCloud;
 import hudson.util.VersionNumber;
 
 import jenkins.model.Jenkins;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,11 +31,51 @@ public class EventHelper {
   private static final String CLASS_NAME = EventHelper.class.getName();
   private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
 
+  /**
+   * The maximum number of attributes Insights accepts on an event.
+   */
+  public static final int MAX_ATTRIBUTES = 255;
+
+  /**
+   * The maximum length of an attribute name Insights accepts.
+   */
+  public static final int MAX_ATTRIBUTE_NAME_LENGTH = 255;
+
+  /**
+   * The maximum length of a string attribute value Insights accepts.
+   */
+  public static final int MAX_ATTRIBUTE_VALUE_LENGTH = 4096;
+
   /**
    * In-memory list for buffering events during the harvest cycle.
    */
   private List<Event> events = new ArrayList<Event>();
 
+  private HostnameCache hostnameCache;
+  private LabelCache labelCache;
+
+  /**
+   * The common attributes snapshot, rebuilt only when one of its inputs
+   * changes.
+   */
+  private volatile CommonAttributes commonAttributes;
+
+  /**
+   * The number of attribute values truncated and attributes dropped since
+   * the last harvest.
+   */
+  private long truncatedValueCount;
+  private long droppedAttributeCount;
+
+  @Inject
+  public EventHelper(
+      HostnameCache hostnameCache,
+      LabelCache labelCache
+  ) {
+    this.hostnameCache = hostnameCache;
+    this.labelCache = labelCache;
+  }
+
   /**
    * Assign any node labels to {@code attributeName} in {@code event}.
    * 
@@ -42,17 +84,26 @@ public class EventHelper {
    * @param node the Jenkins node.
    */
   public void setLabels(Event event, String attributeName, Node node) {
-    List<String> labels = new ArrayList<String>();
-        
-    for (TagCloud<LabelAtom>.Entry atom : node.getLabelCloud()) {
-      labels.add(atom.item.getDisplayName());
-    }
-    
-    event.put(attributeName, String.join("|", labels));
+    event.put(attributeName, getLabels(node));
+  }
+
+  /**
+   * Return the node labels separated by "|" from the {@link LabelCache}.
+   * 
+   * @param node the Jenkins node.
+   * @return the node labels separated by "|".
+   */
+  public String getLabels(Node node) {
+    return this.labelCache.getLabels(node);
   }
   
   /**
    * Assign the node hostname to {@code attributeName} in {@code event}.
+   * <p>
+   * The hostname is read from the {@link HostnameCache} so this method never
+   * blocks on the remoting channel.  Nothing is assigned if the hostname has
+   * not been resolved yet.
+   * </p>
    * 
    * @param event the event.
    * @param attributeName the attribute name in which to store the hostname.
@@ -61,30 +112,73 @@ public class EventHelper {
   public void setHostname(Event event, String attributeName, Node node) {
     Computer computer = node.toComputer();
     if (computer != null) {
-      try {
-        event.put(attributeName, computer.getHostName());
-      } catch (IOException | InterruptedException exc) {
-        LOGGER.log(Level.WARNING, String.format(
-            "Could not get node hostname: %s",
-            exc.getMessage()
-        ), exc);
+      String hostname = this.hostnameCache.getHostname(computer);
+      if (hostname != null) {
+        event.put(attributeName, hostname);
       }
     }
   }
   
   /**
    * Set common Jenkins attributes on the event.
+   * <p>
+   * The attributes are copied from an immutable snapshot which is only
+   * rebuilt when the Jenkins instance, version, master label string or
+   * master hostname changes.
+   * </p>
    * 
    * @param event the event.
    */
   public void setCommonAttributes(Event event) {
+    event.putAll(getCommonAttributes().attributes);
+  }
+
+  /**
+   * Return an immutable map of the attributes common to all events.
+   * 
+   * @return the common attributes.
+   */
+  public Map<String, Object> getCommonAttributeValues() {
+    return getCommonAttributes().attributes;
+  }
+
+  /**
+   * Discard the common attributes snapshot so that it is rebuilt for the
+   * next event.
+   */
+  public void invalidateCommonAttributes() {
+    this.commonAttributes = null;
+  }
+
+  private CommonAttributes getCommonAttributes() {
     Jenkins jenkins = getJenkins();
     VersionNumber ver = Jenkins.getVersion();
-    
-    event.put("provider", "Jenkins");
-    event.put("providerVersion", (ver != null ? ver.toString() : "unknown"));
-    setLabels(event, "jenkinsMasterLabels", jenkins);
-    setHostname(event, "jenkinsMasterHost", jenkins);
+    String version = ver != null ? ver.toString() : "unknown";
+    String labelString = jenkins.getLabelString();
+    Computer computer = jenkins.toComputer();
+    String hostname = (
+        computer != null ? this.hostnameCache.getHostname(computer) : null
+    );
+    CommonAttributes common = this.commonAttributes;
+
+    if (
+        common == null
+        || common.jenkins != jenkins
+        || !common.version.equals(version)
+        || !Objects.equals(common.labelString, labelString)
+        || !Objects.equals(common.hostname, hostname)
+    ) {
+      common = new CommonAttributes(
+          jenkins,
+          version,
+          labelString,
+          hostname,
+          getLabels(jenkins)
+      );
+      this.commonAttributes = common;
+    }
+
+    return common;
   }
   
   /**
@@ -99,13 +193,43 @@ public class EventHelper {
   
   /**
    * Record a custom Insights event.
+   * <p>
+   * Insights rejects a whole payload if a single event in it breaks one of
+   * its limits so the limits are enforced here, before the event is
+   * buffered.  Attributes with names longer than
+   * {@link #MAX_ATTRIBUTE_NAME_LENGTH} are dropped, attributes beyond
+   * {@link #MAX_ATTRIBUTES} (including the common attributes) are dropped
+   * starting with the most recently added and string values longer than
+   * {@link #MAX_ATTRIBUTE_VALUE_LENGTH} are truncated.  The number of
+   * dropped attributes and truncated values is logged at each harvest.
+   * </p>
    * 
    * @param event the event.
    */
   public synchronized void recordEvent(Event event) {
-    setCommonAttributes(event);
+    Map<String, Object> common = getCommonAttributes().attributes;
+
+    this.droppedAttributeCount += event.removeLongNames(MAX_ATTRIBUTE_NAME_LENGTH);
+    this.droppedAttributeCount += event.limitAttributes(
+        MAX_ATTRIBUTES - common.size()
+    );
+    this.truncatedValueCount += event.truncateValues(MAX_ATTRIBUTE_VALUE_LENGTH);
+    event.putAll(common);
+    event.trimToSize();
     this.events.add(event);
   }
+
+  /**
+   * Record a batch of custom Insights events under a single lock.
+   * 
+   * @param events the events.
+   * @see #recordEvent(Event)
+   */
+  public synchronized void recordEvents(List<Event> events) {
+    for (Event event : events) {
+      recordEvent(event);
+    }
+  }
   
   /**
    * Drain all events out of this recorder.
@@ -122,6 +246,75 @@ public class EventHelper {
     Event[] eventAry = new Event[this.events.size()];
     eventAry = this.events.toArray(eventAry);
     this.events.clear();
+
+    if (this.truncatedValueCount > 0 || this.droppedAttributeCount > 0) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Truncated %d attribute values longer than %d characters and "
+          + "dropped %d attributes over the Insights limits",
+          this.truncatedValueCount,
+          MAX_ATTRIBUTE_VALUE_LENGTH,
+          this.droppedAttributeCount
+      ));
+      this.truncatedValueCount = 0;
+      this.droppedAttributeCount = 0;
+    }
+
     return eventAry;
   }
+
+  /**
+   * Return the number of attribute values truncated since the last call to
+   * {@link #popEvents()}.
+   * 
+   * @return the number of truncated attribute values.
+   */
+  public synchronized long getTruncatedValueCount() {
+    return this.truncatedValueCount;
+  }
+
+  /**
+   * Return the number of attributes dropped since the last call to
+   * {@link #popEvents()}.
+   * 
+   * @return the number of dropped attributes.
+   */
+  public synchronized long getDroppedAttributeCount() {
+    return this.droppedAttributeCount;
+  }
+
+  /**
+   * An immutable snapshot of the attributes common to all events along with
+   * the inputs it was built from.
+   */
+  private static final class CommonAttributes {
+
+    private final Jenkins jenkins;
+    private final String version;
+    private final String labelString;
+    private final String hostname;
+    private final Map<String, Object> attributes;
+
+    CommonAttributes(
+        Jenkins jenkins,
+        String version,
+        String labelString,
+        String hostname,
+        String labels
+    ) {
+      Map<String, Object> attrs = new HashMap<String, Object>(8);
+
+      attrs.put("provider", "Jenkins");
+      attrs.put("providerVersion", version);
+      attrs.put("jenkinsMasterLabels", labels);
+      if (hostname != null) {
+        attrs.put("jenkinsMasterHost", hostname);
+      }
+
+      this.jenkins = jenkins;
+      this.version = version;
+      this.labelString = labelString;
+      this.hostname = hostname;
+      this.attributes = Collections.unmodifiableMap(attrs);
+    }
+  }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.jenkins.events.AppBuildEventProducer.BuildEventType;
+import com.newrelic.experts.jenkins.extensions.EventPolicyRule;
+import com.newrelic.experts.jenkins.extensions.NewRelicGlobalConfiguration;
+
+import hudson.model.Result;
+import hudson.model.Run;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides whether an {@code AppBuildEvent} should be reported according to
+ * the global {@link EventPolicyRule}s.
+ * <p>
+ * The rules are compiled into a {@link JobPatternTrie} the first time they
+ * are used after the global configuration is saved.  The rules whose job
+ * pattern matches a job are cached per job full name, so deciding on an
+ * event only checks the event type, result and sample rate of those rules.
+ * Sampling is deterministic: a build is either sampled for all of its
+ * events or for none of them.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class EventPolicy {
+
+  private static final String CLASS_NAME = EventPolicy.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  private NewRelicGlobalConfiguration nrjConfig;
+  private volatile CompiledPolicy compiled;
+
+  @Inject
+  public EventPolicy(
+      NewRelicGlobalConfiguration nrjConfig
+  ) {
+    this.nrjConfig = nrjConfig;
+  }
+
+  /**
+   * Return {@code true} if an event of type {@code eventType} for
+   * {@code build} should be reported.
+   *
+   * @param eventType the build event type.
+   * @param build the Jenkins run instance.
+   * @param result the build result or {@code null}.
+   * @return {@code true} if the event should be reported.
+   */
+  public boolean isReporting(BuildEventType eventType, Run<?, ?> build, Result result) {
+    CompiledPolicy policy = getCompiledPolicy();
+
+    if (policy.rules.length == 0) {
+      return true;
+    }
+
+    String jobName = build.getParent().getFullName();
+    int[] candidates = policy.candidates.get(jobName);
+
+    if (candidates == null) {
+      candidates = policy.trie.match(jobName);
+      policy.candidates.put(jobName, candidates);
+    }
+
+    for (int index : candidates) {
+      CompiledRule rule = policy.rules[index];
+      if (!rule.matches(eventType, result)) {
+        continue;
+      }
+      if (rule.exclude) {
+        return false;
+      }
+      return (
+          rule.sampleRate >= 100
+          || sample(jobName, build.getNumber()) < rule.sampleRate
+      );
+    }
+
+    return true;
+  }
+
+  /**
+   * Discard the cached rules for the job named {@code jobFullName}.
+   *
+   * @param jobFullName the job full name.
+   */
+  public void invalidate(String jobFullName) {
+    CompiledPolicy policy = this.compiled;
+
+    if (policy != null) {
+      policy.candidates.remove(jobFullName);
+    }
+  }
+
+  /**
+   * Return a number between 0 and 99 that is uniformly distributed over
+   * builds but always the same for a given build.
+   *
+   * @param jobName the job full name.
+   * @param buildNumber the build number.
+   * @return the sample bucket of the build.
+   */
+  static int sample(String jobName, int buildNumber) {
+    int hash = jobName.hashCode() * 31 + buildNumber;
+
+    // The murmur3 finalizer spreads consecutive build numbers evenly.
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+
+    return Math.floorMod(hash, 100);
+  }
+
+  private CompiledPolicy getCompiledPolicy() {
+    List<EventPolicyRule> rules = this.nrjConfig.getEventPolicyRules();
+    CompiledPolicy policy = this.compiled;
+
+    if (policy == null || policy.source != rules) {
+      policy = new CompiledPolicy(rules);
+      this.compiled = policy;
+    }
+
+    return policy;
+  }
+
+  /**
+   * The compiled form of the configured rules.
+   */
+  private static final class CompiledPolicy {
+
+    private final List<EventPolicyRule> source;
+    private final CompiledRule[] rules;
+    private final JobPatternTrie trie = new JobPatternTrie();
+    private final Map<String, int[]> candidates = new ConcurrentHashMap<String, int[]>();
+
+    CompiledPolicy(List<EventPolicyRule> source) {
+      this.source = source;
+      this.rules = new CompiledRule[source.size()];
+
+      for (int index = 0; index < this.rules.length; index += 1) {
+        EventPolicyRule rule = source.get(index);
+        this.rules[index] = new CompiledRule(rule);
+        this.trie.add(rule.getJobPattern(), index);
+      }
+
+      this.trie.compile();
+    }
+  }
+
+  /**
+   * The event type, result and sampling part of a single rule.
+   */
+  private static final class CompiledRule {
+
+    private final boolean exclude;
+    private final int eventTypeMask;
+    private final Set<String> results;
+    private final int sampleRate;
+
+    CompiledRule(EventPolicyRule rule) {
+      this.exclude = rule.isExclude();
+      this.sampleRate = rule.getSampleRate();
+
+      int mask = 0;
+      for (String name : split(rule.getEventTypes())) {
+        try {
+          mask |= 1 << BuildEventType.valueOf(name.toUpperCase(Locale.ROOT)).ordinal();
+        } catch (IllegalArgumentException exc) {
+          LOGGER.log(Level.WARNING, String.format(
+              "Ignoring unknown build event type \"%s\" in event policy rule",
+              name
+          ));
+        }
+      }
+      this.eventTypeMask = mask;
+
+      Set<String> resultSet = new HashSet<String>();
+      for (String name : split(rule.getResults())) {
+        resultSet.add(name.toUpperCase(Locale.ROOT));
+      }
+      this.results = resultSet.isEmpty() ? null : resultSet;
+    }
+
+    boolean matches(BuildEventType eventType, Result result) {
+      if (this.eventTypeMask != 0 && (this.eventTypeMask & (1 << eventType.ordinal())) == 0) {
+        return false;
+      }
+      if (this.results != null) {
+        return result != null && this.results.contains(result.toString());
+      }
+      return true;
+    }
+
+    private static Set<String> split(String value) {
+      Set<String> names = new HashSet<String>();
+
+      if (value != null) {
+        for (String name : value.split(",")) {
+          if (!name.trim().isEmpty()) {
+            names.add(name.trim());
+          }
+        }
+      }
+
+      return names;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+import java.io.IOException;
+
+/**
+ * An extension point for destinations of harvested events.
+ * <p>
+ * At each harvest the {@link EventSinkFanout} hands the same frozen
+ * {@link Event}s to every enabled sink.  Each sink has its own bounded queue
+ * and worker thread, so a slow or unavailable sink only drops its own
+ * events and never delays the others.  Sinks are called on their worker
+ * thread, one batch at a time, and must not try to modify the events.
+ * </p>
+ * <p>
+ * Register a sink by subclassing this class and annotating it with
+ * {@link hudson.Extension}.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public abstract class EventSink implements ExtensionPoint {
+
+  /**
+   * The default maximum number of events waiting to be sent to a sink.
+   */
+  public static final int DEFAULT_MAX_QUEUED_EVENTS = 20000;
+
+  /**
+   * The default maximum number of events sent to a sink in one batch.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+  /**
+   * Return all registered {@link EventSink}s.
+   *
+   * @return all registered sinks.
+   */
+  public static ExtensionList<EventSink> all() {
+    return ExtensionList.lookup(EventSink.class);
+  }
+
+  /**
+   * Return a short name for this sink, used for its worker thread name and
+   * in log messages.
+   *
+   * @return the sink name.
+   */
+  public abstract String getName();
+
+  /**
+   * Return {@code true} if this sink is configured and should receive
+   * events.  Events harvested while a sink is disabled are never queued for
+   * it.
+   *
+   * @return {@code true} if this sink is enabled.
+   */
+  public boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * Return the maximum number of events waiting to be sent to this sink.
+   * Events harvested while the queue is full are dropped and counted.
+   *
+   * @return the queue capacity in events.
+   */
+  public int getMaxQueuedEvents() {
+    return DEFAULT_MAX_QUEUED_EVENTS;
+  }
+
+  /**
+   * Return the maximum number of events passed to a single
+   * {@link #send(Event[])} call.  Events harvested together are split into
+   * batches of at most this size but events from different harvest batches
+   * are never combined.
+   *
+   * @return the maximum batch size.
+   */
+  public int getMaxBatchSize() {
+    return DEFAULT_MAX_BATCH_SIZE;
+  }
+
+  /**
+   * Send a batch of events to this sink.
+   *
+   * @param events the frozen events to send.
+   * @throws IOException if the events could not be sent.  The batch is
+   *         dropped.
+   */
+  public abstract void send(Event[] events) throws IOException;
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fans harvested events out to every enabled {@link EventSink}.
+ * <p>
+ * The events of a harvest batch are frozen and the same array is queued
+ * for each sink, so publishing never copies an event.  Every sink has its
+ * own bounded queue, counted in events, and its own worker thread which
+ * sends the queued batches in chunks of at most
+ * {@link EventSink#getMaxBatchSize()} events.  When a sink falls more than
+ * {@link EventSink#getMaxQueuedEvents()} events behind, new batches for that
+ * sink are dropped and counted while the other sinks are unaffected.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class EventSinkFanout {
+
+  private static final String CLASS_NAME = EventSinkFanout.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  private final Supplier<Iterable<EventSink>> sinks;
+  private final Map<EventSink, SinkQueue> queues =
+      new ConcurrentHashMap<EventSink, SinkQueue>();
+
+  /**
+   * Create a new {@link EventSinkFanout} which publishes to all registered
+   * {@link EventSink} extensions.
+   */
+  @Inject
+  public EventSinkFanout() {
+    this(EventSink::all);
+  }
+
+  /**
+   * Create a new {@link EventSinkFanout} which publishes to the sinks
+   * returned by {@code sinks}.
+   *
+   * @param sinks a supplier of the sinks to publish to.
+   */
+  EventSinkFanout(Supplier<Iterable<EventSink>> sinks) {
+    this.sinks = sinks;
+  }
+
+  /**
+   * Freeze {@code events} and queue them for every enabled sink.  This
+   * method never blocks on a sink.
+   *
+   * @param events the harvested events.
+   */
+  public void publish(Event[] events) {
+    final String methodName = "publish";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    if (events.length == 0) {
+      if (isLoggingTrace) {
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
+            "RETURN EARLY No events to publish."
+        );
+      }
+      return;
+    }
+
+    for (Event event : events) {
+      event.freeze();
+    }
+
+    for (EventSink sink : this.sinks.get()) {
+      if (!isEnabled(sink)) {
+        continue;
+      }
+
+      if (isLoggingDebug) {
+        LOGGER.finest(String.format(
+            "Queueing %d events for event sink %s",
+            events.length,
+            sink.getName()
+        ));
+      }
+
+      this.queues.computeIfAbsent(sink, SinkQueue::new).offer(events);
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+
+  private boolean isEnabled(EventSink sink) {
+    try {
+      return sink.isEnabled();
+    } catch (RuntimeException exc) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Could not check if event sink %s is enabled: %s",
+          sink.getName(),
+          exc.getMessage()
+      ), exc);
+      return false;
+    }
+  }
+
+  /**
+   * The bounded queue and worker of a single {@link EventSink}.
+   */
+  private static final class SinkQueue {
+
+    private final EventSink sink;
+    private final Queue<Event[]> batches = new ConcurrentLinkedQueue<Event[]>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final ThreadPoolExecutor executor;
+
+    SinkQueue(EventSink sink) {
+      this.sink = sink;
+      this.executor = new ThreadPoolExecutor(
+          1,
+          1,
+          60,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new NamingThreadFactory(
+              new DaemonThreadFactory(),
+              "New Relic event sink " + sink.getName()
+          )
+      );
+      this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    void offer(Event[] events) {
+      int maxQueued = this.sink.getMaxQueuedEvents();
+
+      if (this.queuedCount.addAndGet(events.length) > maxQueued) {
+        int queued = this.queuedCount.addAndGet(-events.length);
+        LOGGER.log(Level.WARNING, String.format(
+            "Dropped %d events for event sink %s because %d events were "
+            + "already waiting to be sent",
+            events.length,
+            this.sink.getName(),
+            queued
+        ));
+        return;
+      }
+
+      this.batches.add(events);
+      schedule();
+    }
+
+    private void schedule() {
+      if (this.draining.compareAndSet(false, true)) {
+        this.executor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      try {
+        Event[] events;
+        while ((events = this.batches.poll()) != null) {
+          this.queuedCount.addAndGet(-events.length);
+          send(events);
+        }
+      } finally {
+        this.draining.set(false);
+      }
+
+      // A batch may have been queued after the last poll but before the
+      // draining flag was cleared.
+      if (!this.batches.isEmpty()) {
+        schedule();
+      }
+    }
+
+    private void send(Event[] events) {
+      int batchSize = Math.max(this.sink.getMaxBatchSize(), 1);
+
+      for (int from = 0; from < events.length; from += batchSize) {
+        Event[] batch = (
+            events.length <= batchSize
+            ? events
+            : Arrays.copyOfRange(
+                events,
+                from,
+                Math.min(from + batchSize, events.length)
+            )
+        );
+
+        try {
+          this.sink.send(batch);
+        } catch (IOException | RuntimeException exc) {
+          LOGGER.log(Level.SEVERE, String.format(
+              "Failed to send %d events to event sink %s: %s",
+              batch.length,
+              this.sink.getName(),
+              exc.getMessage()
+          ), exc);
+        }
+      }
+    }
+  }
+}
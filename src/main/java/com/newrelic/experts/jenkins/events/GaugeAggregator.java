@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.client.model.Metric;
+import com.newrelic.experts.client.model.MetricBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * An in-process aggregator for gauge samples.
+ * <p>
+ * Every sample of a gauge updates the count, sum, min, max and last value
+ * of that gauge for the current harvest window.  {@link #harvest(Map)}
+ * turns the window into one {@link MetricBatch} with a {@code gauge} metric
+ * holding the last value and a {@code summary} metric holding the count,
+ * sum, min and max of each gauge, and starts a new window.  Gauges which
+ * were not sampled during a window are left out of its batch.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class GaugeAggregator {
+
+  /**
+   * The suffix appended to a gauge name to name its summary metric.
+   */
+  public static final String SUMMARY_SUFFIX = ".summary";
+
+  private final LongSupplier clock;
+  private final Map<String, Gauge> gauges = new LinkedHashMap<String, Gauge>();
+  private long windowStart;
+
+  /**
+   * Create a new {@link GaugeAggregator} using the system clock.
+   */
+  @Inject
+  public GaugeAggregator() {
+    this(System::currentTimeMillis);
+  }
+
+  /**
+   * Create a new {@link GaugeAggregator} using the given {@code clock}.
+   *
+   * @param clock the clock returning the current time in milliseconds.
+   */
+  GaugeAggregator(LongSupplier clock) {
+    this.clock = clock;
+    this.windowStart = clock.getAsLong();
+  }
+
+  /**
+   * Record a sample of the gauge {@code name}.
+   *
+   * @param name the gauge name.
+   * @param value the sampled value.
+   */
+  public synchronized void record(String name, double value) {
+    Gauge gauge = this.gauges.get(name);
+
+    if (gauge == null) {
+      gauge = new Gauge();
+      this.gauges.put(name, gauge);
+    }
+
+    gauge.add(value);
+  }
+
+  /**
+   * Record a sample of a gauge for each numeric and boolean attribute of
+   * {@code event}.  Gauges are named by appending the attribute name to
+   * {@code prefix}.  Booleans are recorded as {@code 1} or {@code 0} and
+   * all other attributes are ignored.
+   *
+   * @param prefix the prefix of the gauge names.
+   * @param event the event to sample.
+   */
+  public synchronized void record(final String prefix, Event event) {
+    try {
+      event.visit(new Event.AttributeVisitor() {
+        @Override
+        public void visitLong(String key, long value) {
+          record(prefix + key, value);
+        }
+
+        @Override
+        public void visitInt(String key, int value) {
+          record(prefix + key, value);
+        }
+
+        @Override
+        public void visitDouble(String key, double value) {
+          record(prefix + key, value);
+        }
+
+        @Override
+        public void visitBoolean(String key, boolean value) {
+          record(prefix + key, value ? 1 : 0);
+        }
+
+        @Override
+        public void visitObject(String key, Object value) {
+          if (value instanceof Number) {
+            record(prefix + key, ((Number)value).doubleValue());
+          }
+        }
+      });
+    } catch (IOException exc) {
+      // The visitor above never throws.
+      throw new IllegalStateException(exc);
+    }
+  }
+
+  /**
+   * Return the metrics aggregated since the last harvest and start a new
+   * harvest window.
+   *
+   * @param commonAttributes the attributes common to all metrics.
+   * @return the batch of aggregated metrics or {@code null} if no gauge
+   *        was sampled since the last harvest.
+   */
+  public synchronized MetricBatch harvest(Map<String, Object> commonAttributes) {
+    long now = this.clock.getAsLong();
+    List<Metric> metrics = new ArrayList<Metric>(this.gauges.size() * 2);
+
+    for (Map.Entry<String, Gauge> entry : this.gauges.entrySet()) {
+      Gauge gauge = entry.getValue();
+
+      if (gauge.count == 0) {
+        continue;
+      }
+
+      String name = entry.getKey();
+
+      metrics.add(Metric.gauge(name, gauge.last));
+      metrics.add(Metric.summary(
+          name + SUMMARY_SUFFIX,
+          gauge.count,
+          gauge.sum,
+          gauge.min,
+          gauge.max
+      ));
+      gauge.reset();
+    }
+
+    MetricBatch.Common common = new MetricBatch.Common();
+
+    common.setTimestamp(this.windowStart);
+    common.setIntervalMs(now - this.windowStart);
+    common.setAttributes(commonAttributes);
+    this.windowStart = now;
+
+    if (metrics.isEmpty()) {
+      return null;
+    }
+
+    MetricBatch batch = new MetricBatch();
+
+    batch.setCommon(common);
+    batch.setMetrics(metrics);
+
+    return batch;
+  }
+
+  private static final class Gauge {
+    long count;
+    double sum;
+    double min;
+    double max;
+    double last;
+
+    void add(double value) {
+      if (this.count == 0 || value < this.min) {
+        this.min = value;
+      }
+      if (this.count == 0 || value > this.max) {
+        this.max = value;
+      }
+      this.count += 1;
+      this.sum += value;
+      this.last = value;
+    }
+
+    void reset() {
+      this.count = 0;
+      this.sum = 0;
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.jenkins.JenkinsUtils;
+import com.newrelic.experts.jenkins.extensions.NewRelicGlobalConfiguration;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * An event producer for {@code JenkinsGcPauseEvent}s.
+ * <p>
+ * Listens for garbage collection notifications from the JVM and records an
+ * event for every collection that takes longer than the configured
+ * threshold.  Notifications are delivered on a JMX thread so events are
+ * placed in a bounded side buffer which is drained into the
+ * {@link EventHelper} once per harvest cycle.  If a GC storm fills the
+ * buffer, further pauses are counted and dropped until the next harvest.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class GcPauseEventProducer implements NotificationListener {
+
+  private static final String CLASS_NAME = GcPauseEventProducer.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum number of GC pause events buffered per harvest cycle.
+   */
+  public static final int MAX_BUFFERED_EVENTS = 100;
+
+  private static final NotificationFilter GC_NOTIFICATION_FILTER =
+      notification -> GarbageCollectionNotificationInfo
+          .GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType());
+
+  private EventHelper eventHelper;
+  private NewRelicGlobalConfiguration nrjConfig;
+  private final BlockingQueue<Event> buffer =
+      new ArrayBlockingQueue<Event>(MAX_BUFFERED_EVENTS);
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final Set<String> heapPoolNames = new HashSet<String>();
+  private final long jvmStartTime;
+  private boolean registered;
+
+  @Inject
+  public GcPauseEventProducer(
+      EventHelper eventHelper,
+      NewRelicGlobalConfiguration nrjConfig
+  ) {
+    this.eventHelper = eventHelper;
+    this.nrjConfig = nrjConfig;
+    this.jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        this.heapPoolNames.add(pool.getName());
+      }
+    }
+  }
+
+  /**
+   * Register the {@link GcPauseEventProducer} singleton with the garbage
+   * collector MXBeans once extensions are available.
+   */
+  @Initializer(after = InitMilestone.EXTENSIONS_AUGMENTED)
+  public static void registerGcPauseListener() {
+    JenkinsUtils.getService(GcPauseEventProducer.class).register();
+  }
+
+  /**
+   * Register this listener with every garbage collector MXBean that emits
+   * notifications.  Calling this method more than once has no effect.
+   */
+  public synchronized void register() {
+    if (this.registered) {
+      return;
+    }
+
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gc instanceof NotificationEmitter) {
+        ((NotificationEmitter)gc).addNotificationListener(
+            this,
+            GC_NOTIFICATION_FILTER,
+            null
+        );
+      }
+    }
+
+    this.registered = true;
+  }
+
+  @Override
+  public void handleNotification(Notification notification, Object handback) {
+    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+        .from((CompositeData)notification.getUserData());
+    GcInfo gcInfo = info.getGcInfo();
+
+    // Most collections are below the threshold, skip summing their pools.
+    if (gcInfo.getDuration() < this.nrjConfig.getGcPauseThreshold()) {
+      return;
+    }
+
+    recordPause(
+        info.getGcName(),
+        info.getGcAction(),
+        info.getGcCause(),
+        this.jvmStartTime + gcInfo.getStartTime(),
+        gcInfo.getDuration(),
+        sumHeapUsed(gcInfo.getMemoryUsageBeforeGc()),
+        sumHeapUsed(gcInfo.getMemoryUsageAfterGc())
+    );
+  }
+
+  void recordPause(
+      String gcName,
+      String gcAction,
+      String gcCause,
+      long timestamp,
+      long duration,
+      long heapUsedBefore,
+      long heapUsedAfter
+  ) {
+    if (duration < this.nrjConfig.getGcPauseThreshold()) {
+      return;
+    }
+
+    if (this.buffer.remainingCapacity() == 0) {
+      this.droppedCount.incrementAndGet();
+      return;
+    }
+
+    Event event = new Event("JenkinsGcPauseEvent");
+
+    event.put("timestamp", timestamp);
+    event.put("gcName", gcName);
+    event.put("gcAction", gcAction);
+    event.put("gcCause", gcCause);
+    event.put("gcDuration", duration);
+    event.put(
+        "gcConcurrent",
+        gcName.contains("Concurrent") || gcName.contains("Cycles")
+    );
+    event.put("gcHeapUsedBefore", heapUsedBefore);
+    event.put("gcHeapUsedAfter", heapUsedAfter);
+
+    if (!this.buffer.offer(event)) {
+      this.droppedCount.incrementAndGet();
+    }
+  }
+
+  private long sumHeapUsed(Map<String, MemoryUsage> usageByPool) {
+    long used = 0;
+
+    for (Map.Entry<String, MemoryUsage> entry : usageByPool.entrySet()) {
+      if (this.heapPoolNames.contains(entry.getKey())) {
+        used += entry.getValue().getUsed();
+      }
+    }
+
+    return used;
+  }
+
+  /**
+   * Move all buffered GC pause events into the {@link EventHelper}.
+   */
+  public void recordEvents() {
+    final String methodName = "recordEvents";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    List<Event> events = new ArrayList<Event>(MAX_BUFFERED_EVENTS);
+
+    this.buffer.drainTo(events);
+
+    for (Event event : events) {
+      this.eventHelper.recordEvent(event);
+    }
+
+    long dropped = this.droppedCount.getAndSet(0);
+
+    if (dropped > 0) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d GC pause events because more than %d were recorded "
+          + "in a single harvest cycle",
+          dropped,
+          MAX_BUFFERED_EVENTS
+      ));
+    }
+
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format("Added %d GC pause events", events.size()));
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import hudson.model.Computer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cache of node hostnames keyed by {@link Computer}.
+ * <p>
+ * {@link Computer#getHostName()} may need a round trip over the remoting
+ * channel for agents so hostnames are resolved in the background, when an
+ * agent comes online or the first time a hostname is requested, and then
+ * read from the cache.  {@link #getHostname(Computer)} never blocks.  It
+ * returns {@code null} until the hostname has been resolved.
+ * </p>
+ * <p>
+ * Each lookup carries a token which {@link #invalidate(Computer)} revokes,
+ * so a lookup still running on the previous connection of an agent can
+ * never overwrite the cache or prevent the new connection from being
+ * resolved.  Hostnames which could not be resolved are cached as unknown
+ * until the computer is invalidated, so events for such a computer never
+ * submit a remoting task each.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class HostnameCache {
+
+  private static final String CLASS_NAME = HostnameCache.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The cached value of a hostname which could not be resolved.
+   */
+  private static final String UNKNOWN_HOSTNAME = "";
+
+  private final Executor executor;
+  private final Map<Computer, String> hostnames =
+      new ConcurrentHashMap<Computer, String>();
+  private final Map<Computer, Object> pending = new HashMap<Computer, Object>();
+
+  /**
+   * Create a new {@link HostnameCache} which resolves hostnames on the
+   * Jenkins remoting thread pool.
+   */
+  @Inject
+  public HostnameCache() {
+    this(Computer.threadPoolForRemoting);
+  }
+
+  /**
+   * Create a new {@link HostnameCache} which resolves hostnames using the
+   * given {@code executor}.
+   *
+   * @param executor the executor used to resolve hostnames.
+   */
+  HostnameCache(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Return the cached hostname for {@code computer}.  If the hostname has
+   * not been resolved yet, resolution is started in the background.
+   *
+   * @param computer the Jenkins computer.
+   * @return the hostname or {@code null} if it is not known yet or could
+   *        not be resolved.
+   */
+  public String getHostname(Computer computer) {
+    String hostname = this.hostnames.get(computer);
+
+    if (hostname == null) {
+      resolve(computer);
+      // The executor may have resolved the hostname inline.
+      hostname = this.hostnames.get(computer);
+    }
+
+    return hostname == null || hostname.isEmpty() ? null : hostname;
+  }
+
+  /**
+   * Resolve the hostname for {@code computer} in the background unless a
+   * resolution is already in progress.
+   *
+   * @param computer the Jenkins computer.
+   */
+  public void resolve(final Computer computer) {
+    final Object token = new Object();
+
+    synchronized (this) {
+      if (this.pending.containsKey(computer)) {
+        return;
+      }
+      this.pending.put(computer, token);
+    }
+
+    try {
+      this.executor.execute(() -> {
+        String hostname = null;
+        try {
+          hostname = computer.getHostName();
+        } catch (IOException | InterruptedException exc) {
+          LOGGER.log(Level.WARNING, String.format(
+              "Could not get node hostname: %s",
+              exc.getMessage()
+          ), exc);
+        } finally {
+          complete(computer, token, hostname);
+        }
+      });
+    } catch (RejectedExecutionException exc) {
+      synchronized (this) {
+        this.pending.remove(computer, token);
+      }
+      LOGGER.log(Level.WARNING, String.format(
+          "Could not schedule node hostname resolution: %s",
+          exc.getMessage()
+      ), exc);
+    }
+  }
+
+  private synchronized void complete(Computer computer, Object token, String hostname) {
+    if (!this.pending.remove(computer, token)) {
+      // The computer was invalidated while its hostname was being resolved.
+      return;
+    }
+    this.hostnames.put(computer, hostname != null ? hostname : UNKNOWN_HOSTNAME);
+  }
+
+  /**
+   * Remove the cached hostname for {@code computer} and discard the result
+   * of any resolution in progress.
+   *
+   * @param computer the Jenkins computer.
+   */
+  public synchronized void invalidate(Computer computer) {
+    this.hostnames.remove(computer);
+    this.pending.remove(computer);
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An event producer for {@code JenkinsJvmEvent}s.
+ * <p>
+ * Samples the runtime of the JVM the Jenkins controller is running in: heap
+ * and non-heap usage, per memory pool usage, garbage collections since the
+ * previous sample, thread counts, deadlocked threads, and process CPU.
+ * Finding deadlocked threads needs a safepoint so it is only done every
+ * {@value #DEADLOCK_CHECK_INTERVAL} milliseconds and the last count found is
+ * reported in between.  All MXBeans and attribute names are resolved once
+ * when the producer is created and the previous sample is kept in primitive
+ * arrays, so taking a sample only allocates what the MXBeans themselves
+ * return.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class JenkinsJvmEventProducer {
+
+  private static final String CLASS_NAME = JenkinsJvmEventProducer.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The minimum time, in milliseconds of JVM uptime, between two searches
+   * for deadlocked threads.
+   */
+  public static final long DEADLOCK_CHECK_INTERVAL = 5 * 60 * 1000;
+
+  private EventHelper eventHelper;
+
+  private final MemoryMXBean memoryBean;
+  private final ThreadMXBean threadBean;
+  private final RuntimeMXBean runtimeBean;
+  private final OperatingSystemMXBean osBean;
+  private final MemoryPoolMXBean[] pools;
+  private final String[] poolUsedNames;
+  private final String[] poolMaxNames;
+  private final GarbageCollectorMXBean[] collectors;
+  private final String[] collectorCountNames;
+  private final String[] collectorTimeNames;
+  private final long[] lastCollectionCounts;
+  private final long[] lastCollectionTimes;
+  private final int processorCount;
+  private long lastProcessCpuTime;
+  private long lastUptime;
+  private long lastDeadlockCheck = Long.MIN_VALUE;
+  private int deadlockedThreadCount;
+
+  @Inject
+  public JenkinsJvmEventProducer(
+      EventHelper eventHelper
+  ) {
+    this(
+        eventHelper,
+        ManagementFactory.getMemoryMXBean(),
+        ManagementFactory.getThreadMXBean(),
+        ManagementFactory.getRuntimeMXBean(),
+        ManagementFactory.getOperatingSystemMXBean(),
+        ManagementFactory.getMemoryPoolMXBeans(),
+        ManagementFactory.getGarbageCollectorMXBeans()
+    );
+  }
+
+  JenkinsJvmEventProducer(
+      EventHelper eventHelper,
+      MemoryMXBean memoryBean,
+      ThreadMXBean threadBean,
+      RuntimeMXBean runtimeBean,
+      OperatingSystemMXBean osBean,
+      List<MemoryPoolMXBean> poolList,
+      List<GarbageCollectorMXBean> gcList
+  ) {
+    this.eventHelper = eventHelper;
+    this.memoryBean = memoryBean;
+    this.threadBean = threadBean;
+    this.runtimeBean = runtimeBean;
+    this.osBean = osBean;
+    this.processorCount = Math.max(1, this.osBean.getAvailableProcessors());
+
+    this.pools = poolList.toArray(new MemoryPoolMXBean[poolList.size()]);
+    this.poolUsedNames = new String[this.pools.length];
+    this.poolMaxNames = new String[this.pools.length];
+    for (int index = 0; index < this.pools.length; index += 1) {
+      String name = toAttributeName(this.pools[index].getName());
+      this.poolUsedNames[index] = "jvmPool" + name + "Used";
+      this.poolMaxNames[index] = "jvmPool" + name + "Max";
+    }
+
+    this.collectors = gcList.toArray(new GarbageCollectorMXBean[gcList.size()]);
+    this.collectorCountNames = new String[this.collectors.length];
+    this.collectorTimeNames = new String[this.collectors.length];
+    this.lastCollectionCounts = new long[this.collectors.length];
+    this.lastCollectionTimes = new long[this.collectors.length];
+    for (int index = 0; index < this.collectors.length; index += 1) {
+      String name = toAttributeName(this.collectors[index].getName());
+      this.collectorCountNames[index] = "jvmGc" + name + "Count";
+      this.collectorTimeNames[index] = "jvmGc" + name + "Time";
+      this.lastCollectionCounts[index] = Math.max(
+          0,
+          this.collectors[index].getCollectionCount()
+      );
+      this.lastCollectionTimes[index] = Math.max(
+          0,
+          this.collectors[index].getCollectionTime()
+      );
+    }
+
+    this.lastProcessCpuTime = getProcessCpuTime();
+    this.lastUptime = this.runtimeBean.getUptime();
+  }
+
+  /**
+   * Convert an MXBean name like "G1 Old Gen" or "PS MarkSweep" into a
+   * camel case attribute name fragment like "G1OldGen" or "PSMarkSweep".
+   *
+   * @param name the MXBean name.
+   * @return the attribute name fragment.
+   */
+  static String toAttributeName(String name) {
+    StringBuilder builder = new StringBuilder(name.length());
+    boolean upper = true;
+
+    for (int index = 0; index < name.length(); index += 1) {
+      char ch = name.charAt(index);
+      if (!Character.isLetterOrDigit(ch)) {
+        upper = true;
+        continue;
+      }
+      builder.append(upper ? Character.toUpperCase(ch) : ch);
+      upper = false;
+    }
+
+    return builder.toString();
+  }
+
+  private long getProcessCpuTime() {
+    if (this.osBean instanceof com.sun.management.OperatingSystemMXBean) {
+      return (
+          (com.sun.management.OperatingSystemMXBean)this.osBean
+      ).getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  /**
+   * Record a {@code JenkinsJvmEvent}.
+   */
+  public synchronized void recordEvent() {
+    final String methodName = "recordEvent";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    Event event = new Event("JenkinsJvmEvent");
+
+    MemoryUsage heap = this.memoryBean.getHeapMemoryUsage();
+    MemoryUsage nonHeap = this.memoryBean.getNonHeapMemoryUsage();
+
+    event.put("jvmHeapUsed", heap.getUsed());
+    event.put("jvmHeapCommitted", heap.getCommitted());
+    event.put("jvmHeapMax", heap.getMax());
+    event.put("jvmNonHeapUsed", nonHeap.getUsed());
+    event.put("jvmNonHeapCommitted", nonHeap.getCommitted());
+
+    for (int index = 0; index < this.pools.length; index += 1) {
+      MemoryUsage usage = this.pools[index].getUsage();
+      if (usage == null) {
+        // The pool is no longer valid.
+        continue;
+      }
+      event.put(this.poolUsedNames[index], usage.getUsed());
+      event.put(this.poolMaxNames[index], usage.getMax());
+    }
+
+    long gcCount = 0;
+    long gcTime = 0;
+
+    for (int index = 0; index < this.collectors.length; index += 1) {
+      long count = Math.max(0, this.collectors[index].getCollectionCount());
+      long time = Math.max(0, this.collectors[index].getCollectionTime());
+      long countDelta = count - this.lastCollectionCounts[index];
+      long timeDelta = time - this.lastCollectionTimes[index];
+
+      this.lastCollectionCounts[index] = count;
+      this.lastCollectionTimes[index] = time;
+
+      event.put(this.collectorCountNames[index], countDelta);
+      event.put(this.collectorTimeNames[index], timeDelta);
+      gcCount += countDelta;
+      gcTime += timeDelta;
+    }
+
+    event.put("jvmGcCount", gcCount);
+    event.put("jvmGcTime", gcTime);
+
+    event.put("jvmThreadCount", this.threadBean.getThreadCount());
+    event.put("jvmDaemonThreadCount", this.threadBean.getDaemonThreadCount());
+    event.put("jvmPeakThreadCount", this.threadBean.getPeakThreadCount());
+
+    long uptime = this.runtimeBean.getUptime();
+
+    if (
+        this.lastDeadlockCheck == Long.MIN_VALUE
+        || uptime - this.lastDeadlockCheck >= DEADLOCK_CHECK_INTERVAL
+    ) {
+      long[] deadlocked = this.threadBean.findDeadlockedThreads();
+      this.deadlockedThreadCount = deadlocked != null ? deadlocked.length : 0;
+      this.lastDeadlockCheck = uptime;
+    }
+
+    event.put("jvmDeadlockedThreadCount", this.deadlockedThreadCount);
+    long cpuTime = getProcessCpuTime();
+    long elapsed = uptime - this.lastUptime;
+
+    if (cpuTime >= 0 && this.lastProcessCpuTime >= 0 && elapsed > 0) {
+      // CPU time is in nanoseconds and uptime is in milliseconds.
+      double cpuLoad = (double)(cpuTime - this.lastProcessCpuTime)
+          / (elapsed * 1000000.0 * this.processorCount);
+      event.put("jvmProcessCpuLoad", Math.min(1.0, Math.max(0.0, cpuLoad)));
+    }
+
+    this.lastProcessCpuTime = cpuTime;
+    this.lastUptime = uptime;
+
+    event.put("jvmSystemLoadAverage", this.osBean.getSystemLoadAverage());
+    event.put("jvmAvailableProcessors", this.processorCount);
+    event.put("jvmUptime", uptime);
+
+    this.eventHelper.recordEvent(event);
+
+    if (isLoggingDebug) {
+      LOGGER.finest("Added Jenkins JVM event");
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+}
@@ -30,6 +30,11 @@ import java.util.logging.Logger;
  * The node an queue stats portion of this code were inspired by
  * <a href="https://github.com/jenkinsci/metrics-plugin/blob/master/src/main/java/jenkins/metrics/impl/JenkinsMetricProviderImpl.java">JenkinsMetricsProviderImpl.java</a>.
  * </p>
+ * <p>
+ * In system metrics mode the same values are sampled into the
+ * {@link GaugeAggregator} instead, as gauges named
+ * {@code jenkins.system.<attribute>}.
+ * </p>
  * 
  * @author sdewitt@newrelic.com
  * @see <a href="https://github.com/jenkinsci/metrics-plugin/blob/master/src/main/java/jenkins/metrics/impl/JenkinsMetricProviderImpl.java">JenkinsMetricsProviderImpl.java</a>
@@ -40,13 +45,21 @@ public class JenkinsSystemEventProducer {
   private static final String CLASS_NAME = JenkinsSystemEventProducer.class.getName();
   private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
 
+  /**
+   * The prefix of the names of the system gauges.
+   */
+  public static final String METRIC_PREFIX = "jenkins.system.";
+
   private EventHelper eventHelper;
+  private GaugeAggregator gaugeAggregator;
   
   @Inject
   public JenkinsSystemEventProducer(
-      EventHelper eventHelper
+      EventHelper eventHelper,
+      GaugeAggregator gaugeAggregator
   ) {
     this.eventHelper = eventHelper;
+    this.gaugeAggregator = gaugeAggregator;
   }
   
   /**
@@ -61,6 +74,42 @@ public class JenkinsSystemEventProducer {
       LOGGER.entering(CLASS_NAME, methodName);
     }
 
+    this.eventHelper.recordEvent(createEvent(isLoggingTrace));
+    
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format("Added Jenkins system event"));
+    }
+        
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+  
+  /**
+   * Sample the {@code JenkinsSystemEvent} values into the
+   * {@link GaugeAggregator}.
+   */
+  public void recordMetrics() {
+    final String methodName = "recordMetrics";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+    
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    this.gaugeAggregator.record(METRIC_PREFIX, createEvent(isLoggingTrace));
+    
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format("Sampled Jenkins system metrics"));
+    }
+        
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+  
+  private Event createEvent(final boolean isLoggingTrace) {
     Event event = new Event("JenkinsSystemEvent");
     Jenkins jenkins = this.eventHelper.getJenkins();
     
@@ -108,15 +157,7 @@ public class JenkinsSystemEventProducer {
     event.put("queueItemsCompleted", queueStats.left - queueStats.cancelled);
     event.put("queueItemsCancelled", queueStats.cancelled);
     
-    this.eventHelper.recordEvent(event);
-    
-    if (isLoggingDebug) {
-      LOGGER.finest(String.format("Added Jenkins system event"));
-    }
-        
-    if (isLoggingTrace) {
-      LOGGER.exiting(CLASS_NAME, methodName);
-    }
+    return event;
   }
   
   private QueueStats getQueueStats(Jenkins jenkins) {
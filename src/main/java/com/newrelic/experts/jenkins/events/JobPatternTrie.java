@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A trie of job full name patterns split into "/" separated segments.
+ * <p>
+ * Literal segments are looked up by hash.  Segments containing {@code *} or
+ * {@code ?} are compiled to regular expressions and all such segments below
+ * a node are also combined into a single alternation which is used to skip
+ * the individual expressions when none of them can match.  A {@code **}
+ * segment matches any number of segments, including none, so
+ * {@code team-a/**} matches every job in the {@code team-a} folder.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+class JobPatternTrie {
+
+  private static final String GLOBSTAR = "**";
+
+  private final Node root = new Node();
+
+  /**
+   * Add a job full name pattern.  A blank pattern matches all jobs.
+   *
+   * @param pattern the job full name pattern.
+   * @param value the value returned by {@link #match(String)} for job names
+   *        matching {@code pattern}.
+   */
+  void add(String pattern, int value) {
+    String trimmed = pattern != null ? pattern.trim() : "";
+    Node node = this.root;
+
+    for (String segment : (trimmed.isEmpty() ? GLOBSTAR : trimmed).split("/")) {
+      if (segment.isEmpty()) {
+        continue;
+      }
+      node = node.child(segment);
+    }
+
+    node.values.set(value);
+  }
+
+  /**
+   * Compile the combined segment expressions.  This must be called after
+   * the last pattern has been added.
+   */
+  void compile() {
+    this.root.compile();
+  }
+
+  /**
+   * Return the values of all patterns matching {@code fullName}.
+   *
+   * @param fullName the job full name.
+   * @return the matching values in ascending order.
+   */
+  int[] match(String fullName) {
+    BitSet matches = new BitSet();
+    match(this.root, fullName.split("/"), 0, matches);
+    return matches.stream().toArray();
+  }
+
+  private static void match(Node node, String[] segments, int index, BitSet matches) {
+    if (node.globstar != null) {
+      for (int next = index; next <= segments.length; next += 1) {
+        match(node.globstar, segments, next, matches);
+      }
+    }
+
+    if (index == segments.length) {
+      matches.or(node.values);
+      return;
+    }
+
+    String segment = segments[index];
+    Node literal = node.literals.get(segment);
+
+    if (literal != null) {
+      match(literal, segments, index + 1, matches);
+    }
+
+    if (node.combined != null && node.combined.matcher(segment).matches()) {
+      for (int wildcard = 0; wildcard < node.wildcards.size(); wildcard += 1) {
+        if (node.wildcards.get(wildcard).matcher(segment).matches()) {
+          match(node.wildcardNodes.get(wildcard), segments, index + 1, matches);
+        }
+      }
+    }
+  }
+
+  /**
+   * Convert a segment containing {@code *} or {@code ?} into a regular
+   * expression.
+   *
+   * @param segment the pattern segment.
+   * @return the regular expression.
+   */
+  static String toRegex(String segment) {
+    StringBuilder regex = new StringBuilder();
+    int start = 0;
+
+    for (int index = 0; index < segment.length(); index += 1) {
+      char ch = segment.charAt(index);
+      if (ch == '*' || ch == '?') {
+        if (index > start) {
+          regex.append(Pattern.quote(segment.substring(start, index)));
+        }
+        regex.append(ch == '*' ? "[^/]*" : "[^/]");
+        start = index + 1;
+      }
+    }
+
+    if (start < segment.length()) {
+      regex.append(Pattern.quote(segment.substring(start)));
+    }
+
+    return regex.toString();
+  }
+
+  private static boolean isWildcard(String segment) {
+    return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+  }
+
+  /**
+   * A single trie node.
+   */
+  private static final class Node {
+
+    private final Map<String, Node> literals = new HashMap<String, Node>();
+    private final List<String> wildcardSegments = new ArrayList<String>();
+    private final List<Pattern> wildcards = new ArrayList<Pattern>();
+    private final List<Node> wildcardNodes = new ArrayList<Node>();
+    private final BitSet values = new BitSet();
+    private Node globstar;
+    private Pattern combined;
+
+    Node child(String segment) {
+      if (GLOBSTAR.equals(segment)) {
+        if (this.globstar == null) {
+          this.globstar = new Node();
+        }
+        return this.globstar;
+      }
+
+      if (!isWildcard(segment)) {
+        return this.literals.computeIfAbsent(segment, s -> new Node());
+      }
+
+      int index = this.wildcardSegments.indexOf(segment);
+
+      if (index >= 0) {
+        return this.wildcardNodes.get(index);
+      }
+
+      Node node = new Node();
+      this.wildcardSegments.add(segment);
+      this.wildcards.add(Pattern.compile(toRegex(segment)));
+      this.wildcardNodes.add(node);
+      return node;
+    }
+
+    void compile() {
+      if (!this.wildcards.isEmpty()) {
+        StringBuilder regex = new StringBuilder();
+        for (Pattern wildcard : this.wildcards) {
+          if (regex.length() > 0) {
+            regex.append('|');
+          }
+          regex.append("(?:").append(wildcard.pattern()).append(')');
+        }
+        this.combined = Pattern.compile(regex.toString());
+      }
+
+      for (Node node : this.literals.values()) {
+        node.compile();
+      }
+      for (Node node : this.wildcardNodes) {
+        node.compile();
+      }
+      if (this.globstar != null) {
+        this.globstar.compile();
+      }
+    }
+  }
+}
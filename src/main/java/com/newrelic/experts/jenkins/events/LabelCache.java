@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+import hudson.util.TagCloud;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * A cache of the "|" separated label strings of nodes.
+ * <p>
+ * Walking {@link Node#getLabelCloud()} computes a weight for every label so
+ * the joined labels are cached per node instance.  Jenkins replaces the
+ * {@link Node} instance when a node is reconfigured, and an entry is also
+ * discarded if the node label string no longer matches the one it was
+ * computed from.  Entries are otherwise invalidated from node and
+ * configuration change notifications.  Nodes are weakly referenced so
+ * removed nodes are not retained.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class LabelCache {
+
+  private final Map<Node, Entry> labels =
+      Collections.synchronizedMap(new WeakHashMap<Node, Entry>());
+
+  @Inject
+  public LabelCache() {
+  }
+
+  /**
+   * Return the labels of {@code node} separated by "|".
+   *
+   * @param node the Jenkins node.
+   * @return the node labels separated by "|".
+   */
+  public String getLabels(Node node) {
+    String labelString = node.getLabelString();
+    Entry entry = this.labels.get(node);
+
+    if (entry == null || !Objects.equals(entry.labelString, labelString)) {
+      entry = new Entry(labelString, computeLabels(node));
+      this.labels.put(node, entry);
+    }
+
+    return entry.labels;
+  }
+
+  /**
+   * Remove the cached labels for {@code node}.
+   *
+   * @param node the Jenkins node.
+   */
+  public void invalidate(Node node) {
+    this.labels.remove(node);
+  }
+
+  /**
+   * Remove all cached labels.
+   */
+  public void invalidateAll() {
+    this.labels.clear();
+  }
+
+  private static String computeLabels(Node node) {
+    List<String> labels = new ArrayList<String>();
+
+    for (TagCloud<LabelAtom>.Entry atom : node.getLabelCloud()) {
+      labels.add(atom.item.getDisplayName());
+    }
+
+    return String.join("|", labels);
+  }
+
+  /**
+   * The joined labels for a node and the label string they were computed
+   * from.
+   */
+  private static final class Entry {
+
+    private final String labelString;
+    private final String labels;
+
+    Entry(String labelString, String labels) {
+      this.labelString = labelString;
+      this.labels = labels;
+    }
+  }
+}
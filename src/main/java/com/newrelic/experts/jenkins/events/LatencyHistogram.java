@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, fixed size histogram for recording latencies in milliseconds.
+ * <p>
+ * Values are bucketed using the same log-linear scheme as an HDR histogram:
+ * values below {@value #SUB_BUCKET_COUNT} are recorded exactly and larger
+ * values are recorded with {@value #SUB_BUCKET_HALF_COUNT} linear
+ * sub-buckets per power of two, which bounds the relative error of any
+ * reported percentile to roughly 1.5%.  Recording is a handful of atomic
+ * increments and never allocates.
+ * </p>
+ * <p>
+ * The histogram is an interval histogram: {@link #snapshotAndReset()} returns
+ * the values recorded since the previous call and clears the buckets.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+  /**
+   * The largest trackable value (~1.1 years in milliseconds).  Larger values
+   * are clamped to this value.
+   */
+  public static final long MAX_TRACKABLE_VALUE = (1L << 35) - 1;
+
+  private static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalSum = new AtomicLong();
+  private final AtomicLong maxValue = new AtomicLong();
+
+  /**
+   * Record a single latency value.
+   *
+   * @param value the latency in milliseconds.  Negative values are recorded
+   *        as zero.
+   */
+  public void recordValue(long value) {
+    long clamped = Math.min(Math.max(value, 0), MAX_TRACKABLE_VALUE);
+
+    this.counts.incrementAndGet(bucketIndex(clamped));
+    this.totalCount.incrementAndGet();
+    this.totalSum.addAndGet(clamped);
+
+    long max = this.maxValue.get();
+    while (clamped > max && !this.maxValue.compareAndSet(max, clamped)) {
+      max = this.maxValue.get();
+    }
+  }
+
+  /**
+   * Return the number of values recorded since the last reset.
+   *
+   * @return the number of values recorded since the last reset.
+   */
+  public long getCount() {
+    return this.totalCount.get();
+  }
+
+  /**
+   * Return the values recorded since the last call to this method and reset
+   * the histogram.
+   * <p>
+   * Values recorded concurrently with this call are attributed to either
+   * this snapshot or the next one, never lost.
+   * </p>
+   *
+   * @return a {@link Snapshot} of the recorded values.
+   */
+  public Snapshot snapshotAndReset() {
+    long[] snapshotCounts = new long[BUCKET_COUNT];
+    long count = 0;
+
+    for (int index = 0; index < BUCKET_COUNT; index += 1) {
+      long bucketCount = this.counts.getAndSet(index, 0);
+      snapshotCounts[index] = bucketCount;
+      count += bucketCount;
+    }
+
+    this.totalCount.addAndGet(-count);
+
+    return new Snapshot(
+        snapshotCounts,
+        count,
+        this.totalSum.getAndSet(0),
+        this.maxValue.getAndSet(0)
+    );
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int)value;
+    }
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+    int subBucket = (int)(value >>> shift) - SUB_BUCKET_HALF_COUNT;
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket;
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int offset = index - SUB_BUCKET_COUNT;
+    int shift = offset / SUB_BUCKET_HALF_COUNT + 1;
+    long subBucket = offset % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * An immutable view of the values recorded in a {@link LatencyHistogram}
+   * over a single interval.
+   */
+  public static class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    Snapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return this.count;
+    }
+
+    public long getSum() {
+      return this.sum;
+    }
+
+    public long getMax() {
+      return this.max;
+    }
+
+    /**
+     * Return the value at the given {@code percentile}.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the highest value equivalent to the value at the given
+     *        percentile (never more than the recorded max), or 0 if no
+     *        values were recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (this.count == 0) {
+        return 0;
+      }
+
+      long target = Math.max(
+          1,
+          (long)Math.ceil(Math.min(percentile, 100.0) / 100.0 * this.count)
+      );
+      long seen = 0;
+
+      for (int index = 0; index < this.counts.length; index += 1) {
+        seen += this.counts[index];
+        if (seen >= target) {
+          return Math.min(highestEquivalentValue(index), this.max);
+        }
+      }
+      return this.max;
+    }
+
+    /**
+     * Return the minimum recorded value to the precision of the histogram.
+     *
+     * @return the lowest bucket value that has recorded values, or 0 if no
+     *        values were recorded.
+     */
+    public long getMin() {
+      for (int index = 0; index < this.counts.length; index += 1) {
+        if (this.counts[index] > 0) {
+          return Math.min(highestEquivalentValue(index), this.max);
+        }
+      }
+      return 0;
+    }
+  }
+}
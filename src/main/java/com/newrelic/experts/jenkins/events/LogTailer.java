@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import hudson.console.ConsoleNote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the complete lines appended to a log since a byte offset.
+ * <p>
+ * At most {@code maxBytes} are read per call.  Only whole lines are
+ * consumed so a partially written line is read again on the next call,
+ * unless the log is complete or a single line is longer than
+ * {@code maxLineBytes}.  Such a line is consumed in pieces, each cut before
+ * an incomplete UTF-8 character or console note.  Lines longer than
+ * {@link #MAX_LINE_LENGTH} characters are split.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+final class LogTailer {
+
+  /**
+   * The maximum length of a line.
+   */
+  static final int MAX_LINE_LENGTH = 4094;
+
+  private LogTailer() {
+  }
+
+  /**
+   * Read the lines appended to a log since {@code offset}.
+   *
+   * @param in the log stream, positioned at the start of the log.
+   * @param charset the log charset.
+   * @param offset the offset of the first byte to read.
+   * @param maxBytes the maximum number of bytes to read.
+   * @param maxLineBytes the number of bytes without a line break after
+   *        which a line is consumed in pieces.  A line is only cut when
+   *        {@code maxBytes} is at least this large.
+   * @param complete {@code true} if nothing will be appended to the log
+   *        anymore.
+   * @return the lines read and the offset of the next byte to read.
+   * @throws IOException if the log could not be read.
+   */
+  static Chunk read(
+      InputStream in,
+      Charset charset,
+      long offset,
+      int maxBytes,
+      int maxLineBytes,
+      boolean complete
+  ) throws IOException {
+    List<String> lines = new ArrayList<String>();
+
+    if (!skipFully(in, offset)) {
+      return new Chunk(lines, offset, true);
+    }
+
+    byte[] buffer = new byte[maxBytes];
+    int length = 0;
+    int count;
+
+    while (
+        length < maxBytes
+        && (count = in.read(buffer, length, maxBytes - length)) > 0
+    ) {
+      length += count;
+    }
+
+    boolean eof = length < maxBytes;
+    int start = 0;
+
+    for (int index = 0; index < length; index += 1) {
+      if (buffer[index] == '\n') {
+        addLine(lines, buffer, start, index, charset);
+        start = index + 1;
+      }
+    }
+
+    if (start < length && complete && eof) {
+      // The last line of a complete log.
+      addLine(lines, buffer, start, length, charset);
+      start = length;
+    } else if (start == 0 && !eof && length >= maxLineBytes) {
+      // A line longer than maxLineBytes.
+      int end = findCut(buffer, length, charset);
+      addLine(lines, buffer, 0, end, charset);
+      start = end;
+    }
+
+    return new Chunk(lines, offset + start, eof && start == length);
+  }
+
+  /**
+   * Return where to cut a line filling {@code buffer} so that no console
+   * note and, in UTF-8, no character is split.
+   */
+  private static int findCut(byte[] buffer, int length, Charset charset) {
+    int end = length;
+    int note = lastIndexOf(buffer, end, ConsoleNote.PREAMBLE);
+
+    if (note > 0 && lastIndexOf(buffer, end, ConsoleNote.POSTAMBLE) < note) {
+      end = note;
+    }
+
+    if (StandardCharsets.UTF_8.equals(charset)) {
+      int lead = end - 1;
+
+      while (lead > 0 && end - lead < 4 && (buffer[lead] & 0xC0) == 0x80) {
+        lead -= 1;
+      }
+
+      int first = buffer[lead] & 0xFF;
+      int size = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+
+      if (lead > 0 && lead + size > end) {
+        end = lead;
+      }
+    }
+
+    return end;
+  }
+
+  private static int lastIndexOf(byte[] buffer, int end, byte[] pattern) {
+    for (int index = end - pattern.length; index >= 0; index -= 1) {
+      int match = 0;
+      while (match < pattern.length && buffer[index + match] == pattern[match]) {
+        match += 1;
+      }
+      if (match == pattern.length) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static void addLine(
+      List<String> lines,
+      byte[] buffer,
+      int start,
+      int end,
+      Charset charset
+  ) {
+    if (end > start && buffer[end - 1] == '\r') {
+      end -= 1;
+    }
+
+    String line = new String(buffer, start, end - start, charset);
+
+    if (line.length() <= MAX_LINE_LENGTH) {
+      lines.add(line);
+      return;
+    }
+
+    int from = 0;
+
+    while (from < line.length()) {
+      int to = Math.min(from + MAX_LINE_LENGTH, line.length());
+      if (to < line.length() && Character.isHighSurrogate(line.charAt(to - 1))) {
+        to -= 1;
+      }
+      lines.add(line.substring(from, to));
+      from = to;
+    }
+  }
+
+  private static boolean skipFully(InputStream in, long count) throws IOException {
+    long remaining = count;
+
+    while (remaining > 0) {
+      long skipped = in.skip(remaining);
+      if (skipped <= 0) {
+        if (in.read() < 0) {
+          return false;
+        }
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+    return true;
+  }
+
+  /**
+   * The lines read by {@link LogTailer#read}, the offset to continue from and
+   * whether everything up to the end of the log was consumed.
+   */
+  static final class Chunk {
+    final List<String> lines;
+    final long nextOffset;
+    final boolean end;
+
+    Chunk(List<String> lines, long nextOffset, boolean end) {
+      this.lines = lines;
+      this.nextOffset = nextOffset;
+      this.end = end;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.model.Computer;
+import hudson.model.ComputerSet;
+import hudson.node_monitors.DiskSpaceMonitorDescriptor.DiskSpace;
+import hudson.node_monitors.NodeMonitor;
+import hudson.node_monitors.ResponseTimeMonitor;
+import hudson.node_monitors.TemporarySpaceMonitor;
+import hudson.util.ClockDifference;
+
+import org.jvnet.hudson.MemoryUsage;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An event producer for {@code JenkinsNodeHealthEvent}s.
+ * <p>
+ * One event is recorded per node using the results the Jenkins
+ * {@link NodeMonitor}s have already collected.  {@link NodeMonitor#data}
+ * only returns the cached monitoring result, so sampling node health never
+ * makes a remote call to an agent.  Values for monitors which are disabled or
+ * have not yet collected any data are omitted.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class NodeHealthEventProducer {
+
+  private static final String CLASS_NAME = NodeHealthEventProducer.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  private EventHelper eventHelper;
+
+  @Inject
+  public NodeHealthEventProducer(
+      EventHelper eventHelper
+  ) {
+    this.eventHelper = eventHelper;
+  }
+
+  /**
+   * Record a {@code JenkinsNodeHealthEvent} for each node.
+   */
+  public void recordEvents() {
+    recordEvents(this.eventHelper.getJenkins().getComputers(), ComputerSet.getMonitors());
+  }
+
+  void recordEvents(Computer[] computers, Iterable<NodeMonitor> monitors) {
+    final String methodName = "recordEvents";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    int nodeCount = 0;
+
+    for (Computer computer : computers) {
+      this.eventHelper.recordEvent(createEvent(computer, monitors));
+      nodeCount += 1;
+    }
+
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format(
+          "Added Jenkins node health events for %d nodes",
+          nodeCount
+      ));
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+
+  private Event createEvent(Computer computer, Iterable<NodeMonitor> monitors) {
+    Event event = new Event("JenkinsNodeHealthEvent");
+
+    event.put("nodeName", computer.getDisplayName());
+    event.put("nodeOnline", computer.isOnline());
+    event.put("nodeExecutorCount", computer.countExecutors());
+    event.put("nodeExecutorsInUse", computer.countBusy());
+
+    if (computer.isOffline()) {
+      event.put("nodeOfflineCause", computer.getOfflineCauseReason());
+    }
+
+    for (NodeMonitor monitor : monitors) {
+      Object data = monitor.data(computer);
+
+      if (data == null) {
+        continue;
+      }
+
+      if (data instanceof DiskSpace) {
+        DiskSpace diskSpace = (DiskSpace)data;
+        if (monitor instanceof TemporarySpaceMonitor) {
+          event.put("tempSpaceFree", diskSpace.getFreeSize());
+          event.put("tempSpacePath", diskSpace.getPath());
+        } else {
+          event.put("diskSpaceFree", diskSpace.getFreeSize());
+          event.put("diskSpacePath", diskSpace.getPath());
+        }
+      } else if (data instanceof MemoryUsage) {
+        MemoryUsage memory = (MemoryUsage)data;
+        event.put("physicalMemoryTotal", memory.totalPhysicalMemory);
+        event.put("physicalMemoryAvailable", memory.availablePhysicalMemory);
+        event.put("swapSpaceTotal", memory.totalSwapSpace);
+        event.put("swapSpaceAvailable", memory.availableSwapSpace);
+      } else if (data instanceof ResponseTimeMonitor.Data) {
+        ResponseTimeMonitor.Data responseTime = (ResponseTimeMonitor.Data)data;
+        event.put("responseTimeAverage", responseTime.getAverage());
+        event.put("responseTimeTooManyTimeouts", responseTime.hasTooManyTimeouts());
+      } else if (data instanceof ClockDifference) {
+        ClockDifference clock = (ClockDifference)data;
+        event.put("clockDifference", clock.diff);
+        event.put("clockDifferenceDangerous", clock.isDangerous());
+      }
+    }
+
+    return event;
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.model.Queue;
+import hudson.model.queue.CauseOfBlockage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * An event producer for {@code JenkinsQueueTransitionEvent}s.
+ * <p>
+ * Queue item transitions are coalesced per harvest cycle by transition and
+ * cause of blockage into a count plus a few sample queue item IDs.  The
+ * resulting events are kept in a buffer of their own, separate from the
+ * {@link EventHelper}, so a burst of queue activity can never crowd out
+ * build events.  The buffer holds at most {@link #MAX_AGGREGATES} distinct
+ * transition/cause pairs per harvest cycle; transitions beyond that are
+ * counted but not reported individually.
+ * </p>
+ * <p>
+ * Draining an aggregate retires it under its own lock, so a transition
+ * recorded concurrently with {@link #popEvents()} is either counted in the
+ * drained event or in a new aggregate for the next harvest, never lost.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class QueueTransitionEventProducer {
+
+  /**
+   * An enumeration of the queue transitions that are recorded.
+   */
+  public enum QueueTransition {
+    WAITING,
+    BLOCKED,
+    BUILDABLE,
+    LEFT
+  }
+
+  private static final String CLASS_NAME = QueueTransitionEventProducer.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum number of distinct transition/cause pairs per harvest cycle.
+   */
+  public static final int MAX_AGGREGATES = 200;
+
+  /**
+   * The maximum number of sample queue item IDs per transition/cause pair.
+   */
+  public static final int MAX_SAMPLES = 5;
+
+  private static final int MAX_CAUSE_LENGTH = 256;
+  private static final Pattern DIGITS = Pattern.compile("[0-9]+");
+
+  private EventHelper eventHelper;
+  private final Map<String, Aggregate> aggregates =
+      new ConcurrentHashMap<String, Aggregate>();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  @Inject
+  public QueueTransitionEventProducer(
+      EventHelper eventHelper
+  ) {
+    this.eventHelper = eventHelper;
+  }
+
+  /**
+   * Record a queue item transition.
+   * <p>
+   * The cause of blockage is only summarized for blocked items since it is
+   * already computed by the queue for those items.  Computing it for other
+   * items can require walking all nodes while holding the queue lock.
+   * </p>
+   *
+   * @param transition the transition the item made.
+   * @param item the queue item.
+   */
+  public void recordTransition(QueueTransition transition, Queue.Item item) {
+    String cause = null;
+
+    if (transition == QueueTransition.BLOCKED) {
+      cause = summarizeCause(item.getCauseOfBlockage());
+    } else if (transition == QueueTransition.LEFT) {
+      cause = ((Queue.LeftItem)item).isCancelled() ? "cancelled" : "started";
+    }
+
+    record(transition, cause, item.getId(), item.task.getFullDisplayName());
+  }
+
+  void record(QueueTransition transition, String cause, long itemId, String taskName) {
+    String key = cause != null ? transition.name() + '\n' + cause : transition.name();
+
+    while (true) {
+      Aggregate aggregate = this.aggregates.get(key);
+
+      if (aggregate == null) {
+        if (this.aggregates.size() >= MAX_AGGREGATES) {
+          this.droppedCount.incrementAndGet();
+          return;
+        }
+        aggregate = this.aggregates.computeIfAbsent(
+            key,
+            k -> new Aggregate(transition, cause)
+        );
+      }
+
+      if (aggregate.add(itemId, taskName)) {
+        return;
+      }
+
+      // The aggregate was drained by popEvents(), record into a new one.
+      this.aggregates.remove(key, aggregate);
+    }
+  }
+
+  /**
+   * Summarize a {@link CauseOfBlockage} such that causes that only differ by
+   * build numbers, ETAs, counts, and the like are considered identical.
+   *
+   * @param cause the cause of blockage or {@code null}.
+   * @return the normalized short description of the cause or {@code null}.
+   */
+  public static String summarizeCause(CauseOfBlockage cause) {
+    if (cause == null) {
+      return null;
+    }
+
+    String description = cause.getShortDescription();
+
+    if (description == null) {
+      return cause.getClass().getSimpleName();
+    }
+
+    description = DIGITS.matcher(description).replaceAll("#");
+
+    return (
+        description.length() > MAX_CAUSE_LENGTH
+        ? description.substring(0, MAX_CAUSE_LENGTH)
+        : description
+    );
+  }
+
+  /**
+   * Drain all queue transition events recorded since the last call to this
+   * method.
+   *
+   * @return the coalesced {@code JenkinsQueueTransitionEvent}s.
+   */
+  public Event[] popEvents() {
+    final String methodName = "popEvents";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    List<Event> events = new ArrayList<Event>(this.aggregates.size());
+
+    for (Map.Entry<String, Aggregate> entry : this.aggregates.entrySet()) {
+      this.aggregates.remove(entry.getKey(), entry.getValue());
+      events.add(entry.getValue().retire());
+    }
+
+    long dropped = this.droppedCount.getAndSet(0);
+
+    if (dropped > 0) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d queue transitions because more than %d distinct causes "
+          + "were recorded",
+          dropped,
+          MAX_AGGREGATES
+      ));
+    }
+
+    for (Event event : events) {
+      this.eventHelper.setCommonAttributes(event);
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+
+    return events.toArray(new Event[events.size()]);
+  }
+
+  /**
+   * The count and samples for a single transition/cause pair.
+   */
+  static class Aggregate {
+
+    private final QueueTransition transition;
+    private final String cause;
+    private final long[] sampleIds = new long[MAX_SAMPLES];
+    private String sampleTaskName;
+    private int sampleCount;
+    private long count;
+    private boolean retired;
+
+    Aggregate(QueueTransition transition, String cause) {
+      this.transition = transition;
+      this.cause = cause;
+    }
+
+    synchronized boolean add(long itemId, String taskName) {
+      if (this.retired) {
+        return false;
+      }
+      this.count += 1;
+      if (this.sampleCount < MAX_SAMPLES) {
+        this.sampleIds[this.sampleCount] = itemId;
+        this.sampleCount += 1;
+      }
+      if (this.sampleTaskName == null) {
+        this.sampleTaskName = taskName;
+      }
+      return true;
+    }
+
+    synchronized Event retire() {
+      this.retired = true;
+
+      Event event = new Event("JenkinsQueueTransitionEvent");
+      StringBuilder ids = new StringBuilder();
+
+      for (int index = 0; index < this.sampleCount; index += 1) {
+        if (index > 0) {
+          ids.append(',');
+        }
+        ids.append(this.sampleIds[index]);
+      }
+
+      event.put("queueTransition", this.transition.name().toLowerCase());
+      if (this.cause != null) {
+        event.put("queueCause", this.cause);
+      }
+      event.put("queueTransitionCount", this.count);
+      event.put("queueSampleItemIds", ids.toString());
+      event.put("queueSampleTaskName", this.sampleTaskName);
+
+      return event;
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.model.Label;
+import hudson.model.Queue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An event producer for {@code JenkinsQueueWaitEvent}s.
+ * <p>
+ * Queue wait times are recorded into {@link LatencyHistogram}s as items
+ * leave the queue, both overall and per assigned label.  Once per harvest
+ * cycle the histograms are drained and a single event per label is recorded
+ * with the wait time percentiles for that interval.  The wait time is measured
+ * from the time the item entered the queue, which Jenkins already tracks on
+ * the item itself, so no per-item state is kept by this producer.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class QueueWaitTimeEventProducer {
+
+  private static final String CLASS_NAME = QueueWaitTimeEventProducer.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The label name used for the histogram of all queue items.
+   */
+  public static final String LABEL_ALL = "(all)";
+
+  /**
+   * The label name used for queue items without an assigned label.
+   */
+  public static final String LABEL_NONE = "(none)";
+
+  /**
+   * The label name used once {@link #MAX_LABELS} distinct labels are tracked.
+   */
+  public static final String LABEL_OTHER = "(other)";
+
+  /**
+   * The maximum number of distinct labels to track per harvest cycle.
+   */
+  public static final int MAX_LABELS = 100;
+
+  private EventHelper eventHelper;
+  private final LatencyHistogram allItems = new LatencyHistogram();
+  private final Map<String, LatencyHistogram> labelItems =
+      new ConcurrentHashMap<String, LatencyHistogram>();
+  private final AtomicLong cancelledCount = new AtomicLong();
+
+  @Inject
+  public QueueWaitTimeEventProducer(
+      EventHelper eventHelper
+  ) {
+    this.eventHelper = eventHelper;
+  }
+
+  /**
+   * Record the queue wait time for an item that has left the queue.
+   *
+   * @param item the item that has left the queue.
+   * @param leftTime the time, in milliseconds, the item left the queue.
+   */
+  public void recordLeft(Queue.LeftItem item, long leftTime) {
+    if (item.isCancelled()) {
+      this.cancelledCount.incrementAndGet();
+      return;
+    }
+
+    final long waitTime = leftTime - item.getInQueueSince();
+    Label label = item.getAssignedLabel();
+    String labelName = label != null ? label.getName() : LABEL_NONE;
+
+    this.allItems.recordValue(waitTime);
+
+    if (
+        !this.labelItems.containsKey(labelName)
+        && this.labelItems.size() >= MAX_LABELS
+    ) {
+      labelName = LABEL_OTHER;
+    }
+
+    // The value is recorded while the map holds the lock for the label so
+    // that recordEvents() can never remove a label concurrently recorded to.
+    this.labelItems.compute(labelName, (key, histogram) -> {
+      LatencyHistogram labelHistogram =
+          histogram != null ? histogram : new LatencyHistogram();
+      labelHistogram.recordValue(waitTime);
+      return labelHistogram;
+    });
+  }
+
+  /**
+   * Record a {@code JenkinsQueueWaitEvent} for the overall queue and for each
+   * label which had items leave the queue since the last harvest.
+   */
+  public void recordEvents() {
+    final String methodName = "recordEvents";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    long cancelled = this.cancelledCount.getAndSet(0);
+    LatencyHistogram.Snapshot all = this.allItems.snapshotAndReset();
+
+    if (all.getCount() > 0 || cancelled > 0) {
+      Event event = createEvent(LABEL_ALL, all);
+      event.put("queueItemsCancelled", cancelled);
+      this.eventHelper.recordEvent(event);
+    }
+
+    int labelCount = 0;
+
+    for (Map.Entry<String, LatencyHistogram> entry : this.labelItems.entrySet()) {
+      LatencyHistogram.Snapshot snapshot = entry.getValue().snapshotAndReset();
+      if (snapshot.getCount() == 0) {
+        // Stop tracking labels that have gone quiet so the map can't fill up
+        // with stale labels, unless a value was recorded since the snapshot.
+        this.labelItems.computeIfPresent(
+            entry.getKey(),
+            (key, histogram) -> histogram.getCount() == 0 ? null : histogram
+        );
+        continue;
+      }
+      this.eventHelper.recordEvent(createEvent(entry.getKey(), snapshot));
+      labelCount += 1;
+    }
+
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format(
+          "Added Jenkins queue wait events for %d labels",
+          labelCount
+      ));
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+
+  private Event createEvent(String labelName, LatencyHistogram.Snapshot snapshot) {
+    Event event = new Event("JenkinsQueueWaitEvent");
+
+    event.put("queueLabel", labelName);
+    event.put("queueItemsLeft", snapshot.getCount());
+    event.put("queueWaitTimeP50", snapshot.getValueAtPercentile(50));
+    event.put("queueWaitTimeP90", snapshot.getValueAtPercentile(90));
+    event.put("queueWaitTimeP99", snapshot.getValueAtPercentile(99));
+    event.put("queueWaitTimeMax", snapshot.getMax());
+    if (snapshot.getCount() > 0) {
+      event.put("queueWaitTimeAverage", snapshot.getSum() / snapshot.getCount());
+    }
+
+    return event;
+  }
+}
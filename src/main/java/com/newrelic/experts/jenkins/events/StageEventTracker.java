@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.newrelic.experts.client.model.Event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A tracker which turns the stages of Pipeline builds into
+ * {@code AppBuildStageEvent}s.
+ * <p>
+ * Stages are reported one at a time as they end and the agent a stage ran
+ * on is reported when a {@code node} block inside it ends, so no flow graph
+ * is walked when a build finishes.  The events of a build are kept until
+ * {@link #finishRun(String, Map)} records them in the {@link EventHelper}
+ * as one batch.
+ * </p>
+ * <p>
+ * At most {@value #MAX_OPEN_RUNS} builds are tracked (the oldest build is
+ * dropped beyond that) and at most {@value #MAX_STAGES_PER_RUN} stages are
+ * kept per build.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Singleton
+public class StageEventTracker {
+
+  private static final String CLASS_NAME = StageEventTracker.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The maximum number of builds tracked at the same time.
+   */
+  public static final int MAX_OPEN_RUNS = 200;
+
+  /**
+   * The maximum number of stages kept for a single build.
+   */
+  public static final int MAX_STAGES_PER_RUN = 500;
+
+  private EventHelper eventHelper;
+  private final Map<String, RunStages> runs =
+      new LinkedHashMap<String, RunStages>(16, 0.75f, false) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RunStages> eldest) {
+          return size() > MAX_OPEN_RUNS;
+        }
+      };
+
+  @Inject
+  public StageEventTracker(
+      EventHelper eventHelper
+  ) {
+    this.eventHelper = eventHelper;
+  }
+
+  /**
+   * Start tracking the stages of a build.
+   *
+   * @param runId the unique ID of the build.
+   */
+  public synchronized void startRun(String runId) {
+    if (!this.runs.containsKey(runId)) {
+      this.runs.put(runId, new RunStages());
+    }
+  }
+
+  /**
+   * Record the agent a {@code node} block ran on for the stages which
+   * enclose it.  Only the first agent reported for a stage is kept and it is
+   * removed again when the stage is recorded.
+   *
+   * @param runId the unique ID of the build.
+   * @param enclosingKeys the keys of the stages enclosing the {@code node}
+   *        block.
+   * @param agent the agent name.
+   */
+  public synchronized void recordAgent(
+      String runId,
+      List<String> enclosingKeys,
+      String agent
+  ) {
+    RunStages run = this.runs.get(runId);
+
+    if (run == null) {
+      return;
+    }
+
+    for (String key : enclosingKeys) {
+      if (run.agents.size() >= MAX_STAGES_PER_RUN) {
+        break;
+      }
+      run.agents.putIfAbsent(key, agent);
+    }
+  }
+
+  /**
+   * Record a stage which has ended.
+   *
+   * @param runId the unique ID of the build.
+   * @param key the key of the stage, unique within the build.
+   * @param name the stage name.
+   * @param startTime the stage start time in milliseconds.
+   * @param endTime the stage end time in milliseconds.
+   * @param status the stage status.
+   * @param enclosingAgent the agent of the {@code node} block enclosing the
+   *        stage or {@code null} if there is none.  An agent reported for a
+   *        {@code node} block inside the stage takes precedence.
+   */
+  public synchronized void recordStage(
+      String runId,
+      String key,
+      String name,
+      long startTime,
+      long endTime,
+      String status,
+      String enclosingAgent
+  ) {
+    RunStages run = this.runs.get(runId);
+
+    if (run == null) {
+      return;
+    }
+
+    String agent = run.agents.remove(key);
+
+    if (run.stages.size() >= MAX_STAGES_PER_RUN) {
+      run.droppedCount += 1;
+      return;
+    }
+
+    Event event = new Event("AppBuildStageEvent");
+
+    event.put("timestamp", startTime);
+    event.put("stageId", key);
+    event.put("stageName", name);
+    event.put("stageStatus", status);
+    event.put("stageDuration", Math.max(0, endTime - startTime));
+    if (agent != null || enclosingAgent != null) {
+      event.put("stageAgentName", agent != null ? agent : enclosingAgent);
+    }
+    run.stages.add(event);
+  }
+
+  /**
+   * Stop tracking a build and record its stage events.
+   *
+   * @param runId the unique ID of the build.
+   * @param attributes the build attributes to add to each event.
+   */
+  public void finishRun(String runId, Map<String, Object> attributes) {
+    RunStages run;
+
+    synchronized (this) {
+      run = this.runs.remove(runId);
+    }
+
+    if (run == null || run.stages.isEmpty()) {
+      return;
+    }
+
+    if (run.droppedCount > 0) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d stage events of %s, more than %d stages",
+          run.droppedCount,
+          runId,
+          MAX_STAGES_PER_RUN
+      ));
+    }
+
+    for (Event event : run.stages) {
+      event.putAll(attributes);
+    }
+    this.eventHelper.recordEvents(run.stages);
+  }
+
+  private static final class RunStages {
+    final List<Event> stages = new ArrayList<Event>();
+    final Map<String, String> agents = new HashMap<String, String>();
+    int droppedCount;
+  }
+}
@@ -21,6 +21,7 @@ import com.newrelic.experts.client.model.Deployment;
 import com.newrelic.experts.client.model.DeploymentMarker;
 import com.newrelic.experts.jenkins.JenkinsUtils;
 import com.newrelic.experts.jenkins.Messages;
+import com.newrelic.experts.jenkins.TokenExpander;
 import com.newrelic.experts.jenkins.events.AppDeploymentEventProducer;
 import com.newrelic.experts.jenkins.events.EventHelper;
 
@@ -186,10 +187,11 @@ public class DeploymentMarkerNotifier extends Notifier implements SimpleBuildSte
     );
     
     AppDeploymentEventProducer producer = JenkinsUtils.getService(AppDeploymentEventProducer.class);
-    String revision = JenkinsUtils.expandTokens(run, listener, this.revision);
-    String changeLog = JenkinsUtils.expandTokens(run, listener, this.changeLog);
-    String description = JenkinsUtils.expandTokens(run, listener, this.description);
-    String user = JenkinsUtils.expandTokens(run, listener, this.user);
+    TokenExpander expander = new TokenExpander(run, listener);
+    String revision = expander.expand(this.revision);
+    String changeLog = expander.expand(this.changeLog);
+    String description = expander.expand(this.description);
+    String user = expander.expand(this.user);
     
     DeploymentMarker deploymentMarker = new DeploymentMarker();
     deploymentMarker.setRevision(revision);
@@ -11,19 +11,52 @@ import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredenti
 import com.newrelic.experts.client.api.NewRelicClient;
 import com.newrelic.experts.client.api.NewRelicClientException;
 import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.client.model.MetricBatch;
+import com.newrelic.experts.client.model.SpanBatch;
 import com.newrelic.experts.jenkins.JenkinsUtils;
+import com.newrelic.experts.jenkins.events.BuildDeletionAccumulator;
+import com.newrelic.experts.jenkins.events.BuildLatencyAggregator;
+import com.newrelic.experts.jenkins.events.BuildSpanTracker;
 import com.newrelic.experts.jenkins.events.EventHelper;
+import com.newrelic.experts.jenkins.events.EventSinkFanout;
+import com.newrelic.experts.jenkins.events.GaugeAggregator;
+import com.newrelic.experts.jenkins.events.GcPauseEventProducer;
+import com.newrelic.experts.jenkins.events.QueueTransitionEventProducer;
+import com.newrelic.experts.jenkins.events.QueueWaitTimeEventProducer;
 
 import hudson.Extension;
 import hudson.model.PeriodicWork;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import hudson.util.Secret;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * A Jenkins {@link PeriodicWork} object that implements an event harvest
  * cycle, by default running once every minute.
+ * <p>
+ * Harvested events are handed to the {@link EventSinkFanout} which queues
+ * them for every enabled {@link com.newrelic.experts.jenkins.events.EventSink}.
+ * The metrics aggregated by the {@link GaugeAggregator} and the
+ * {@link BuildLatencyAggregator} and the traces of the builds finished
+ * since the last harvest are harvested after the events are published.
+ * The metrics are sent to the Metric API in a single request and the
+ * traces to the Trace API, each by a worker thread of its own, so a slow
+ * API never delays the harvest or the other API.  At most
+ * {@value #MAX_QUEUED_HARVESTS} harvests wait for each worker, further
+ * ones are dropped.
+ * </p>
  * 
  * @author Scott DeWitt (sdewitt@newrelic.com)
  */
@@ -33,9 +66,24 @@ public class EventCollectorWork extends PeriodicWork {
   private static final String CLASS_NAME = EventCollectorWork.class.getName();
   private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
 
+  /**
+   * The maximum number of harvests waiting to be sent by a worker.
+   */
+  public static final int MAX_QUEUED_HARVESTS = 10;
+
   private NewRelicGlobalConfiguration nrjConfig;
   private EventHelper eventHelper;
+  private EventSinkFanout fanout;
+  private QueueWaitTimeEventProducer queueWaitTimeProducer;
+  private QueueTransitionEventProducer queueTransitionProducer;
+  private GcPauseEventProducer gcPauseProducer;
+  private BuildDeletionAccumulator deletionAccumulator;
+  private GaugeAggregator gaugeAggregator;
+  private BuildLatencyAggregator latencyAggregator;
+  private BuildSpanTracker spanTracker;
   private NewRelicClient client;
+  private final Executor metricsWorker;
+  private final Executor spansWorker;
   
   /**
    * Create a new {@link EventCollectorWork}.
@@ -56,17 +104,99 @@ public class EventCollectorWork extends PeriodicWork {
    * to pass in dependencies.
    * 
    * @param nrjConfig the {@link NewRelicGlobalConfiguration} to use.
-   * @param client the {@link NewRelicClient} to use.
+   * @param eventHelper the {@link EventHelper} to drain once per harvest.
+   * @param fanout the {@link EventSinkFanout} to publish events to.
+   * @param queueWaitTimeProducer the {@link QueueWaitTimeEventProducer} to
+   *        drain once per harvest.
+   * @param queueTransitionProducer the {@link QueueTransitionEventProducer}
+   *        to drain once per harvest.
+   * @param gcPauseProducer the {@link GcPauseEventProducer} to drain once
+   *        per harvest.
+   * @param deletionAccumulator the {@link BuildDeletionAccumulator} to drain
+   *        once per harvest.
+   * @param gaugeAggregator the {@link GaugeAggregator} to harvest once per
+   *        harvest.
+   * @param latencyAggregator the {@link BuildLatencyAggregator} to harvest
+   *        once per harvest.
+   * @param spanTracker the {@link BuildSpanTracker} to drain once per
+   *        harvest.
+   * @param client the {@link NewRelicClient} to send metrics with.
    */
   @Inject
   public EventCollectorWork(
       NewRelicGlobalConfiguration nrjConfig,
       EventHelper eventHelper,
+      EventSinkFanout fanout,
+      QueueWaitTimeEventProducer queueWaitTimeProducer,
+      QueueTransitionEventProducer queueTransitionProducer,
+      GcPauseEventProducer gcPauseProducer,
+      BuildDeletionAccumulator deletionAccumulator,
+      GaugeAggregator gaugeAggregator,
+      BuildLatencyAggregator latencyAggregator,
+      BuildSpanTracker spanTracker,
       NewRelicClient client
+  ) {
+    this(
+        nrjConfig,
+        eventHelper,
+        fanout,
+        queueWaitTimeProducer,
+        queueTransitionProducer,
+        gcPauseProducer,
+        deletionAccumulator,
+        gaugeAggregator,
+        latencyAggregator,
+        spanTracker,
+        client,
+        null,
+        null
+    );
+  }
+
+  EventCollectorWork(
+      NewRelicGlobalConfiguration nrjConfig,
+      EventHelper eventHelper,
+      EventSinkFanout fanout,
+      QueueWaitTimeEventProducer queueWaitTimeProducer,
+      QueueTransitionEventProducer queueTransitionProducer,
+      GcPauseEventProducer gcPauseProducer,
+      BuildDeletionAccumulator deletionAccumulator,
+      GaugeAggregator gaugeAggregator,
+      BuildLatencyAggregator latencyAggregator,
+      BuildSpanTracker spanTracker,
+      NewRelicClient client,
+      Executor metricsWorker,
+      Executor spansWorker
   ) {
     this.nrjConfig = nrjConfig;
     this.eventHelper = eventHelper;
+    this.fanout = fanout;
+    this.queueWaitTimeProducer = queueWaitTimeProducer;
+    this.queueTransitionProducer = queueTransitionProducer;
+    this.gcPauseProducer = gcPauseProducer;
+    this.deletionAccumulator = deletionAccumulator;
+    this.gaugeAggregator = gaugeAggregator;
+    this.latencyAggregator = latencyAggregator;
+    this.spanTracker = spanTracker;
     this.client = client;
+    this.metricsWorker = metricsWorker != null ? metricsWorker : createWorker("metrics");
+    this.spansWorker = spansWorker != null ? spansWorker : createWorker("spans");
+  }
+
+  private static Executor createWorker(String name) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        1,
+        1,
+        60,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(MAX_QUEUED_HARVESTS),
+        new NamingThreadFactory(
+            new DaemonThreadFactory(),
+            "New Relic " + name + " sender"
+        )
+    );
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
   
   @Override
@@ -84,42 +214,183 @@ public class EventCollectorWork extends PeriodicWork {
       LOGGER.entering(CLASS_NAME, methodName);
     }
 
+    this.queueWaitTimeProducer.recordEvents();
+    this.gcPauseProducer.recordEvents();
+    this.deletionAccumulator.recordEvents();
+    
     Event[] events = this.eventHelper.popEvents();
+    Event[] queueEvents = this.queueTransitionProducer.popEvents();
 
-    if (events.length == 0) {
-      if (isLoggingDebug) {
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format(
+          "Publishing %d events and %d queue transition events",
+          events.length,
+          queueEvents.length
+      ));
+    }
+    
+    // Queue transitions are published as a batch of their own so that they
+    // can never delay or cause the rejection of the build events.
+    this.fanout.publish(events);
+    this.fanout.publish(queueEvents);
+    postMetrics();
+    postSpans();
+    
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+  
+  private void postMetrics() {
+    final String methodName = "postMetrics";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+    
+    Map<String, Object> commonAttributes =
+        this.eventHelper.getCommonAttributeValues();
+    List<MetricBatch> batches = new ArrayList<MetricBatch>(2);
+    int metricCount = 0;
+    
+    for (MetricBatch batch : new MetricBatch[] {
+        this.gaugeAggregator.harvest(commonAttributes),
+        this.latencyAggregator.harvest(commonAttributes)
+    }) {
+      if (batch != null) {
+        batches.add(batch);
+        metricCount += batch.getMetrics().size();
+      }
+    }
+    
+    if (batches.isEmpty()) {
+      if (isLoggingTrace) {
         LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
-            "RETURN EARLY No events to send."
+            "RETURN EARLY No metrics to send."
         );
       }
       return;
     }
     
-    StandardUsernamePasswordCredentials credentialsId =
+    StandardUsernamePasswordCredentials credentials =
         this.nrjConfig.getInsightsInsertCredentials();
-    if (credentialsId == null) {
+    
+    if (credentials == null) {
+      // Metrics share the Insights credentials so they are disabled, like
+      // the Insights sink, until credentials are configured.
       if (isLoggingTrace) {
-        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
-            "RETURN EARLY No credentials."
-        );
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName, String.format(
+            "RETURN EARLY Dropping %d metrics, no Insights insert credentials.",
+            metricCount
+        ));
       }
       return;
     }
-
+    
+    final Secret insertKey = credentials.getPassword();
+    final MetricBatch[] metricBatches = batches.toArray(new MetricBatch[batches.size()]);
+    final int count = metricCount;
+    
     try {
-      this.client.recordEvents(
+      this.metricsWorker.execute(() -> sendMetrics(insertKey, metricBatches, count));
+    } catch (RejectedExecutionException exc) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d metrics because %d harvests were already waiting to be sent",
+          metricCount,
+          MAX_QUEUED_HARVESTS
+      ));
+    }
+    
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+  
+  private void sendMetrics(Secret insertKey, MetricBatch[] batches, int metricCount) {
+    try {
+      this.client.recordMetrics(
           JenkinsUtils.createClientConnectionConfig(this.client),
-          credentialsId.getUsername(),
-          Secret.toString(credentialsId.getPassword()),
-          events
+          Secret.toString(insertKey),
+          batches
       );
-    } catch (NewRelicClientException nrce) {
-      LOGGER.log(Level.SEVERE, "Failed to post events");
+    } catch (NewRelicClientException | RuntimeException exc) {
+      LOGGER.log(Level.SEVERE, String.format(
+          "Could not send %d metrics: %s",
+          metricCount,
+          exc.getMessage()
+      ), exc);
+    }
+  }
+  
+  private void postSpans() {
+    final String methodName = "postSpans";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+    
+    Map<String, Object> commonAttributes = new HashMap<String, Object>(
+        this.eventHelper.getCommonAttributeValues()
+    );
+    
+    commonAttributes.put("service.name", "jenkins");
+    
+    SpanBatch[] batches = this.spanTracker.popBatches(commonAttributes);
+    
+    if (batches.length == 0) {
+      if (isLoggingTrace) {
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
+            "RETURN EARLY No spans to send."
+        );
+      }
+      return;
+    }
+    
+    StandardUsernamePasswordCredentials credentials =
+        this.nrjConfig.getInsightsInsertCredentials();
+    
+    if (credentials == null) {
+      if (isLoggingTrace) {
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
+            "RETURN EARLY Dropping spans, no Insights insert credentials."
+        );
+      }
+      return;
+    }
+    
+    final Secret insertKey = credentials.getPassword();
+    
+    try {
+      this.spansWorker.execute(() -> sendSpans(insertKey, batches));
+    } catch (RejectedExecutionException exc) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Dropped %d span batches because %d harvests were already waiting to be sent",
+          batches.length,
+          MAX_QUEUED_HARVESTS
+      ));
     }
     
     if (isLoggingTrace) {
       LOGGER.exiting(CLASS_NAME, methodName);
     }
   }
+  
+  private void sendSpans(Secret insertKey, SpanBatch[] batches) {
+    try {
+      this.client.recordSpans(
+          JenkinsUtils.createClientConnectionConfig(this.client),
+          Secret.toString(insertKey),
+          batches
+      );
+    } catch (NewRelicClientException | RuntimeException exc) {
+      LOGGER.log(Level.SEVERE, String.format(
+          "Could not send %d span batches: %s",
+          batches.length,
+          exc.getMessage()
+      ), exc);
+    }
+  }
 
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.newrelic.experts.jenkins.events.EventHelper;
+import com.newrelic.experts.jenkins.events.HostnameCache;
+import com.newrelic.experts.jenkins.events.LabelCache;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+
+/**
+ * Implementation of a {@link ComputerListener} for keeping cached node
+ * information up to date as nodes connect and disconnect.
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class EventComputerListener extends ComputerListener {
+
+  private EventHelper eventHelper;
+  private HostnameCache hostnameCache;
+  private LabelCache labelCache;
+
+  /**
+   * Create a new {@link EventComputerListener}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public EventComputerListener() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  @Inject
+  public EventComputerListener(
+      EventHelper eventHelper,
+      HostnameCache hostnameCache,
+      LabelCache labelCache
+  ) {
+    this.eventHelper = eventHelper;
+    this.hostnameCache = hostnameCache;
+    this.labelCache = labelCache;
+  }
+
+  @Override
+  public void onOnline(Computer computer, TaskListener listener) {
+    // An agent may reconnect from a different host.
+    this.hostnameCache.invalidate(computer);
+    this.hostnameCache.resolve(computer);
+
+    Node node = computer.getNode();
+    if (node != null) {
+      this.labelCache.invalidate(node);
+    }
+  }
+
+  @Override
+  public void onOffline(Computer computer, OfflineCause cause) {
+    this.hostnameCache.invalidate(computer);
+  }
+
+  @Override
+  public void onConfigurationChange() {
+    // Node or master labels may have changed.
+    this.labelCache.invalidateAll();
+    this.eventHelper.invalidateCommonAttributes();
+  }
+}
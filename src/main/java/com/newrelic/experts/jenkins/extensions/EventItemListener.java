@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.newrelic.experts.jenkins.events.CustomAttributeTemplates;
+import com.newrelic.experts.jenkins.events.EventPolicy;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+/**
+ * Implementation of an {@link ItemListener} for discarding cached job
+ * configuration and event policy decisions when a job is updated, renamed,
+ * moved or deleted.
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class EventItemListener extends ItemListener {
+
+  private CustomAttributeTemplates templates;
+  private EventPolicy policy;
+
+  /**
+   * Create a new {@link EventItemListener}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public EventItemListener() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  @Inject
+  public EventItemListener(
+      CustomAttributeTemplates templates,
+      EventPolicy policy
+  ) {
+    this.templates = templates;
+    this.policy = policy;
+  }
+
+  @Override
+  public void onUpdated(Item item) {
+    this.templates.invalidate(item);
+    this.policy.invalidate(item.getFullName());
+  }
+
+  @Override
+  public void onDeleted(Item item) {
+    this.templates.invalidate(item);
+    this.policy.invalidate(item.getFullName());
+  }
+
+  @Override
+  public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+    this.policy.invalidate(oldFullName);
+    this.policy.invalidate(newFullName);
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.newrelic.experts.jenkins.events.LabelCache;
+
+import hudson.Extension;
+import hudson.model.Node;
+
+import jenkins.model.NodeListener;
+
+/**
+ * Implementation of a {@link NodeListener} for discarding cached node
+ * labels when a node is reconfigured or removed.
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class EventNodeListener extends NodeListener {
+
+  private LabelCache labelCache;
+
+  /**
+   * Create a new {@link EventNodeListener}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public EventNodeListener() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  @Inject
+  public EventNodeListener(
+      LabelCache labelCache
+  ) {
+    this.labelCache = labelCache;
+  }
+
+  @Override
+  protected void onUpdated(Node oldOne, Node newOne) {
+    this.labelCache.invalidate(oldOne);
+    this.labelCache.invalidate(newOne);
+  }
+
+  @Override
+  protected void onDeleted(Node node) {
+    this.labelCache.invalidate(node);
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.newrelic.experts.jenkins.Messages;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Describable;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * A {@link Describable} that represents a single global rule for including
+ * or excluding {@code AppBuildEvent}s.
+ * <p>
+ * A rule matches an event when the job full name matches {@link #getJobPattern()}
+ * and the event type and build result are in {@link #getEventTypes()} and
+ * {@link #getResults()}.  Blank fields match everything.  Included events are
+ * sampled at {@link #getSampleRate()} percent.  The first matching rule
+ * decides whether an event is reported and events matching no rule are
+ * reported.
+ * </p>
+ * 
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+public class EventPolicyRule extends AbstractDescribableImpl<EventPolicyRule> {
+
+  /**
+   * The action for events that should be reported.
+   */
+  public static final String INCLUDE = "include";
+
+  /**
+   * The action for events that should not be reported.
+   */
+  public static final String EXCLUDE = "exclude";
+
+  private String action;
+  private String jobPattern;
+  private String eventTypes;
+  private String results;
+  private Integer sampleRate;
+  
+  @DataBoundConstructor
+  public EventPolicyRule(
+      String action,
+      String jobPattern,
+      String eventTypes,
+      String results,
+      Integer sampleRate
+  ) {
+    this.action = action;
+    this.jobPattern = jobPattern;
+    this.eventTypes = eventTypes;
+    this.results = results;
+    this.sampleRate = sampleRate;
+  }
+
+  public String getAction() {
+    return this.action;
+  }
+
+  public String getJobPattern() {
+    return this.jobPattern;
+  }
+
+  public String getEventTypes() {
+    return this.eventTypes;
+  }
+
+  public String getResults() {
+    return this.results;
+  }
+
+  /**
+   * Return the percentage of matching builds to report, which defaults to
+   * 100.
+   * 
+   * @return the sample rate.
+   */
+  public int getSampleRate() {
+    return this.sampleRate != null ? this.sampleRate : 100;
+  }
+
+  public boolean isExclude() {
+    return EXCLUDE.equals(this.action);
+  }
+  
+  /**
+   * The {@link Descriptor} class for the {@link EventPolicyRule}.
+   * 
+   * @author Scott DeWitt (sdewitt@newrelic.com)
+   */
+  @Extension
+  public static final class DescriptorImpl extends Descriptor<EventPolicyRule> {
+
+    @Override
+    public String getDisplayName() {
+      return Messages.EventPolicyRule_DisplayName();
+    }
+
+    /**
+     * Fill the list of rule actions.
+     * 
+     * @return the list of rule actions.
+     */
+    public ListBoxModel doFillActionItems() {
+      ListBoxModel items = new ListBoxModel();
+      items.add(Messages.EventPolicyRule_Include(), INCLUDE);
+      items.add(Messages.EventPolicyRule_Exclude(), EXCLUDE);
+      return items;
+    }
+    
+    /**
+     * Validate that the sample rate is a percentage.
+     * 
+     * @param sampleRate the current value of the sample rate field.
+     * @return a {@link FormValidation} result.
+     */
+    public FormValidation doCheckSampleRate(
+        @QueryParameter String sampleRate
+    ) {
+      if (StringUtils.isBlank(sampleRate)) {
+        return FormValidation.ok();
+      }
+      try {
+        int rate = Integer.parseInt(sampleRate.trim());
+        if (rate >= 0 && rate <= 100) {
+          return FormValidation.ok();
+        }
+      } catch (NumberFormatException exc) {
+        // Fall through to the error
+      }
+      return FormValidation.error(
+          Messages.EventPolicyRule_errors_InvalidSampleRate()
+      );
+    }
+  }
+
+}
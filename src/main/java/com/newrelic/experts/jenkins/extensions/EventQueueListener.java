@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.newrelic.experts.jenkins.events.QueueTransitionEventProducer;
+import com.newrelic.experts.jenkins.events.QueueTransitionEventProducer.QueueTransition;
+import com.newrelic.experts.jenkins.events.QueueWaitTimeEventProducer;
+
+import hudson.Extension;
+import hudson.model.Queue.BlockedItem;
+import hudson.model.Queue.BuildableItem;
+import hudson.model.Queue.LeftItem;
+import hudson.model.Queue.WaitingItem;
+import hudson.model.queue.QueueListener;
+
+/**
+ * Implementation of a {@link QueueListener} for recording queue statistics
+ * from queue item transitions.
+ * <p>
+ * Queue listener callbacks are invoked while holding the queue lock so
+ * implementations must only do a constant amount of work.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class EventQueueListener extends QueueListener {
+
+  private QueueWaitTimeEventProducer waitTimeProducer;
+  private QueueTransitionEventProducer transitionProducer;
+
+  /**
+   * Create a new {@link EventQueueListener}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public EventQueueListener() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  @Inject
+  public EventQueueListener(
+      QueueWaitTimeEventProducer waitTimeProducer,
+      QueueTransitionEventProducer transitionProducer
+  ) {
+    this.waitTimeProducer = waitTimeProducer;
+    this.transitionProducer = transitionProducer;
+  }
+
+  @Override
+  public void onEnterWaiting(WaitingItem item) {
+    this.transitionProducer.recordTransition(QueueTransition.WAITING, item);
+  }
+
+  @Override
+  public void onEnterBlocked(BlockedItem item) {
+    this.transitionProducer.recordTransition(QueueTransition.BLOCKED, item);
+  }
+
+  @Override
+  public void onEnterBuildable(BuildableItem item) {
+    this.transitionProducer.recordTransition(QueueTransition.BUILDABLE, item);
+  }
+
+  @Override
+  public void onLeft(LeftItem item) {
+    this.waitTimeProducer.recordLeft(item, System.currentTimeMillis());
+    this.transitionProducer.recordTransition(QueueTransition.LEFT, item);
+  }
+}
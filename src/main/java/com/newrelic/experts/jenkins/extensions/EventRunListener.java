@@ -7,25 +7,44 @@ package com.newrelic.experts.jenkins.extensions;
 
 import com.google.inject.Inject;
 
-import com.newrelic.experts.jenkins.events.AppBuildEventProducer;
+import com.newrelic.experts.jenkins.events.AppBuildEventDispatcher;
 import com.newrelic.experts.jenkins.events.AppBuildEventProducer.BuildEventType;
+import com.newrelic.experts.jenkins.events.BuildSpanTracker;
+import com.newrelic.experts.jenkins.events.StageEventTracker;
 
 import hudson.Extension;
 import hudson.model.Job;
+import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.RunListener;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Implementation of a {@link RunListener} for creating events from build
  * notifications.
+ * <p>
+ * Events are recorded asynchronously by the {@link AppBuildEventDispatcher}
+ * so the build lifecycle threads never wait on the plugin.  Every callback is
+ * handed to the dispatcher, which records the build latencies before it
+ * drops the events of jobs with build events disabled.  When trace export
+ * is enabled the start and end of each build also open and close its trace
+ * in the {@link BuildSpanTracker}, and when stage events are enabled they
+ * start and finish the tracking of its stages in the
+ * {@link StageEventTracker}.
+ * </p>
  * 
  * @author Scott DeWitt (sdewitt@newrelic.com)
  */
 @Extension
 public class EventRunListener extends RunListener<Run<?, ?>> {
 
-  private AppBuildEventProducer producer;
+  private NewRelicGlobalConfiguration nrjConfig;
+  private AppBuildEventDispatcher dispatcher;
+  private BuildSpanTracker spanTracker;
+  private StageEventTracker stageTracker;
 
   /**
    * Create a new {@link EventRunListener}.
@@ -43,9 +62,15 @@ public class EventRunListener extends RunListener<Run<?, ?>> {
 
   @Inject
   public EventRunListener(
-      AppBuildEventProducer producer
+      NewRelicGlobalConfiguration nrjConfig,
+      AppBuildEventDispatcher dispatcher,
+      BuildSpanTracker spanTracker,
+      StageEventTracker stageTracker
   ) {
-    this.producer = producer;
+    this.nrjConfig = nrjConfig;
+    this.dispatcher = dispatcher;
+    this.spanTracker = spanTracker;
+    this.stageTracker = stageTracker;
   }
   
   /**
@@ -60,12 +85,7 @@ public class EventRunListener extends RunListener<Run<?, ?>> {
   public boolean isReporting(
       Run<? extends Job<?, ?>, ? extends Run<?, ?>> build
   ) {
-    Job<?, ?> job = build.getParent();
-    EventConfigJobProperty prop = job.getProperty(
-        EventConfigJobProperty.class
-    );
-    
-    return prop != null ? !prop.isDisableAppBuildEvents() : true;
+    return this.dispatcher.isReporting(build);
   }
   
   @Override
@@ -73,10 +93,20 @@ public class EventRunListener extends RunListener<Run<?, ?>> {
       Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
       TaskListener listener
   ) {
+    this.dispatcher.dispatch(BuildEventType.STARTED, build, true);
     if (!isReporting(build)) {
       return;
     }
-    this.producer.recordEvent(BuildEventType.STARTED, build, listener);
+    if (this.nrjConfig.isTraceExport()) {
+      this.spanTracker.startRun(
+          build.getExternalizableId(),
+          build.getFullDisplayName(),
+          build.getStartTimeInMillis()
+      );
+    }
+    if (this.nrjConfig.isStageEvents()) {
+      this.stageTracker.startRun(build.getExternalizableId());
+    }
   }
 
   @Override
@@ -84,40 +114,67 @@ public class EventRunListener extends RunListener<Run<?, ?>> {
       Run<? extends Job<?, ?>, ? extends Run<?, ?>> build,
       TaskListener listener
   ) {
-    if (!isReporting(build)) {
-      return;
-    }    
-    this.producer.recordEvent(BuildEventType.COMPLETED, build, listener);
+    this.dispatcher.dispatch(BuildEventType.COMPLETED, build, true);
   }
 
   @Override
   public void onFinalized(
       Run<? extends Job<?, ?>, ? extends Run<?, ?>> build
   ) {
+    this.dispatcher.dispatch(BuildEventType.FINALIZED, build, false);
     if (!isReporting(build)) {
       return;
     } 
-    this.producer.recordEvent(BuildEventType.FINALIZED, build, null);
+    if (this.nrjConfig.isTraceExport()) {
+      finishTrace(build);
+    }
+    if (this.nrjConfig.isStageEvents()) {
+      finishStages(build);
+    }
+  }
+  
+  private void finishStages(Run<? extends Job<?, ?>, ? extends Run<?, ?>> build) {
+    Job<?, ?> job = build.getParent();
+    Map<String, Object> attributes = new HashMap<String, Object>();
+    
+    attributes.put("jobUrl", job.getUrl());
+    attributes.put("jobName", job.getDisplayName());
+    attributes.put("jobFullName", job.getFullDisplayName());
+    attributes.put("buildId", build.getId());
+    attributes.put("buildUrl", build.getUrl());
+    attributes.put("buildName", build.getDisplayName());
+    
+    this.stageTracker.finishRun(build.getExternalizableId(), attributes);
+  }
+  
+  private void finishTrace(Run<? extends Job<?, ?>, ? extends Run<?, ?>> build) {
+    Map<String, Object> attributes = new HashMap<String, Object>();
+    Result result = build.getResult();
+    
+    attributes.put("jobFullName", build.getParent().getFullDisplayName());
+    attributes.put("buildId", build.getId());
+    attributes.put("buildUrl", build.getUrl());
+    
+    this.spanTracker.finishRun(
+        build.getExternalizableId(),
+        build.getStartTimeInMillis() + build.getDuration(),
+        result != null ? result.toString() : null,
+        attributes
+    );
   }
 
   @Override
   public void onInitialize(
       Run<? extends Job<?, ?>, ? extends Run<?, ?>> build
   ) {
-    if (!isReporting(build)) {
-      return;
-    } 
-    this.producer.recordEvent(BuildEventType.INITIALIZED, build, null);
+    this.dispatcher.dispatch(BuildEventType.INITIALIZED, build, false);
   }
 
   @Override
   public void onDeleted(
       Run<? extends Job<?, ?>, ? extends Run<?, ?>> build
   ) {
-    if (!isReporting(build)) {
-      return;
-    } 
-    this.producer.recordEvent(BuildEventType.DELETED, build, null);
+    this.dispatcher.dispatch(BuildEventType.DELETED, build, false);
   }
   
   
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.newrelic.experts.client.api.ClientConnectionConfiguration;
+import com.newrelic.experts.client.api.NewRelicClient;
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.jenkins.JenkinsUtils;
+import com.newrelic.experts.jenkins.events.AgentTelemetrySender;
+import com.newrelic.experts.jenkins.events.EventSink;
+
+import hudson.Extension;
+import hudson.util.Secret;
+
+import java.io.IOException;
+
+/**
+ * An {@link EventSink} which posts events to the New Relic Insights Insert
+ * API using the configured Insights insert credentials.  The sink is
+ * disabled while no credentials are configured.  When sending from agents
+ * is enabled, events are sent by an agent through the
+ * {@link AgentTelemetrySender} and only sent from the controller if no
+ * agent acknowledged them.
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class InsightsEventSink extends EventSink {
+
+  private NewRelicGlobalConfiguration nrjConfig;
+  private NewRelicClient client;
+  private AgentTelemetrySender agentSender;
+
+  /**
+   * Create a new {@link InsightsEventSink}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public InsightsEventSink() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  /**
+   * Create a new {@link InsightsEventSink} using constructor based DI
+   * to pass in dependencies.
+   *
+   * @param nrjConfig the {@link NewRelicGlobalConfiguration} to use.
+   * @param client the {@link NewRelicClient} to use.
+   * @param agentSender the {@link AgentTelemetrySender} to use to send
+   *        events from agents.
+   */
+  @Inject
+  public InsightsEventSink(
+      NewRelicGlobalConfiguration nrjConfig,
+      NewRelicClient client,
+      AgentTelemetrySender agentSender
+  ) {
+    this.nrjConfig = nrjConfig;
+    this.client = client;
+    this.agentSender = agentSender;
+  }
+
+  @Override
+  public String getName() {
+    return "Insights";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return this.nrjConfig.getInsightsInsertCredentials() != null;
+  }
+
+  @Override
+  public void send(Event[] events) throws IOException {
+    StandardUsernamePasswordCredentials credentials =
+        this.nrjConfig.getInsightsInsertCredentials();
+
+    if (credentials == null) {
+      throw new IOException(String.format(
+          "Insights insert credentials %s not found",
+          this.nrjConfig.getInsightsInsertCredentialsId()
+      ));
+    }
+
+    ClientConnectionConfiguration connConfig =
+        JenkinsUtils.createClientConnectionConfig(this.client);
+    byte[] payload = this.client.encodeEvents(events);
+
+    if (this.agentSender.isEnabled() && this.agentSender.recordEvents(
+        connConfig,
+        credentials.getUsername(),
+        credentials.getPassword(),
+        payload,
+        events.length
+    )) {
+      return;
+    }
+
+    this.client.recordEncodedEvents(
+        connConfig,
+        credentials.getUsername(),
+        Secret.toString(credentials.getPassword()),
+        payload
+    );
+  }
+}
@@ -7,6 +7,7 @@ package com.newrelic.experts.jenkins.extensions;
 
 import com.google.inject.Inject;
 
+import com.newrelic.experts.jenkins.events.JenkinsJvmEventProducer;
 import com.newrelic.experts.jenkins.events.JenkinsSystemEventProducer;
 
 import hudson.Extension;
@@ -16,9 +17,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * A Jenkins {@link PeriodicWork} object that produces {@code JenkinsSystemEvent}s.
+ * A Jenkins {@link PeriodicWork} object that produces {@code JenkinsSystemEvent}s
+ * and {@code JenkinsJvmEvent}s.
  * <p>
- * Events are produced every 15 seconds by default.
+ * Events are produced every 15 seconds by default.  In system metrics mode
+ * the system values are sampled as gauges instead of being recorded as
+ * {@code JenkinsSystemEvent}s.
  * </p>
  * 
  * @author Scott DeWitt (sdewitt@newrelic.com)
@@ -31,6 +35,7 @@ public class JenkinsSystemEventWork extends PeriodicWork {
 
   private NewRelicGlobalConfiguration nrjConfig;
   private JenkinsSystemEventProducer producer;
+  private JenkinsJvmEventProducer jvmProducer;
   
   /**
    * Create a new {@link JenkinsSystemEventWork}.
@@ -52,14 +57,17 @@ public class JenkinsSystemEventWork extends PeriodicWork {
    * 
    * @param nrjConfig the {@link NewRelicGlobalConfiguration} to use.
    * @param producer the {@link JenkinsSystemEventProducer} to use to sample system metrics.
+   * @param jvmProducer the {@link JenkinsJvmEventProducer} to use to sample JVM metrics.
    */
   @Inject
   public JenkinsSystemEventWork(
       NewRelicGlobalConfiguration nrjConfig,
-      JenkinsSystemEventProducer producer
+      JenkinsSystemEventProducer producer,
+      JenkinsJvmEventProducer jvmProducer
   ) {
     this.nrjConfig = nrjConfig;
     this.producer = producer;
+    this.jvmProducer = jvmProducer;
   }
   
   @Override
@@ -76,7 +84,12 @@ public class JenkinsSystemEventWork extends PeriodicWork {
       LOGGER.entering(CLASS_NAME, methodName);
     }
 
-    this.producer.recordEvent();
+    if (this.nrjConfig.isSystemMetricsMode()) {
+      this.producer.recordMetrics();
+    } else {
+      this.producer.recordEvent();
+    }
+    this.jvmProducer.recordEvent();
     
     if (isLoggingTrace) {
       LOGGER.exiting(CLASS_NAME, methodName);
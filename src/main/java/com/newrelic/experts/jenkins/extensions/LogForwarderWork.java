@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.newrelic.experts.client.api.ClientConnectionConfiguration;
+import com.newrelic.experts.client.api.NewRelicClient;
+import com.newrelic.experts.client.model.LogBatch;
+import com.newrelic.experts.jenkins.JenkinsUtils;
+import com.newrelic.experts.jenkins.events.AgentTelemetrySender;
+import com.newrelic.experts.jenkins.events.BuildLogForwarder;
+import com.newrelic.experts.jenkins.events.EventHelper;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.PeriodicWork;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.util.Secret;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Jenkins {@link PeriodicWork} object that forwards the console logs of
+ * running builds to the Log API every {@value #LOG_FORWARD_INTERVAL}
+ * seconds.
+ * <p>
+ * Each run reads at most the configured log forwarding rate times the
+ * interval in total, across all running builds, which take turns on that
+ * shared budget, so forwarding large logs can not saturate the controller
+ * or the network however many builds are running.  A single build may use
+ * the whole budget when the others have nothing new to read.  When sending
+ * from agents is enabled, log batches are sent by an agent through the
+ * {@link AgentTelemetrySender} and only sent from the controller if no
+ * agent acknowledged them.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class LogForwarderWork extends PeriodicWork {
+
+  private static final String CLASS_NAME = LogForwarderWork.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The interval, in seconds, at which build logs are forwarded.
+   */
+  public static final int LOG_FORWARD_INTERVAL = 10;
+
+  private NewRelicGlobalConfiguration nrjConfig;
+  private EventHelper eventHelper;
+  private BuildLogForwarder forwarder;
+  private NewRelicClient client;
+  private AgentTelemetrySender agentSender;
+
+  /**
+   * Create a new {@link LogForwarderWork}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public LogForwarderWork() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  /**
+   * Create a new {@link LogForwarderWork} using constructor based DI
+   * to pass in dependencies.
+   *
+   * @param nrjConfig the {@link NewRelicGlobalConfiguration} to use.
+   * @param eventHelper the {@link EventHelper} to use.
+   * @param forwarder the {@link BuildLogForwarder} to use to read build logs.
+   * @param client the {@link NewRelicClient} to use to send build logs.
+   * @param agentSender the {@link AgentTelemetrySender} to use to send
+   *        build logs from agents.
+   */
+  @Inject
+  public LogForwarderWork(
+      NewRelicGlobalConfiguration nrjConfig,
+      EventHelper eventHelper,
+      BuildLogForwarder forwarder,
+      NewRelicClient client,
+      AgentTelemetrySender agentSender
+  ) {
+    this.nrjConfig = nrjConfig;
+    this.eventHelper = eventHelper;
+    this.forwarder = forwarder;
+    this.client = client;
+    this.agentSender = agentSender;
+  }
+
+  @Override
+  public long getRecurrencePeriod() {
+    return LOG_FORWARD_INTERVAL * 1000;
+  }
+
+  @Override
+  protected void doRun() throws Exception {
+    final String methodName = "doRun";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+    final boolean isLoggingDebug = LOGGER.isLoggable(Level.FINEST);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    if (!this.nrjConfig.isLogForwarding()) {
+      if (isLoggingTrace) {
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
+            "RETURN EARLY Log forwarding is disabled."
+        );
+      }
+      return;
+    }
+
+    StandardUsernamePasswordCredentials credentials =
+        this.nrjConfig.getInsightsInsertCredentials();
+
+    if (credentials == null) {
+      if (isLoggingTrace) {
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
+            "RETURN EARLY No Insights insert credentials."
+        );
+      }
+      return;
+    }
+
+    final ClientConnectionConfiguration connConfig =
+        JenkinsUtils.createClientConnectionConfig(this.client);
+    final Secret insertKey = credentials.getPassword();
+    final boolean sendFromAgents = this.agentSender.isEnabled();
+    long byteBudget =
+        Math.max(1, this.nrjConfig.getLogForwardingRate()) * 1024L * LOG_FORWARD_INTERVAL;
+
+    long forwarded = this.forwarder.forward(
+        getRunningBuilds(),
+        byteBudget,
+        batch -> {
+          byte[] payload = this.client.encodeLogs(new LogBatch[] { batch });
+          if (!sendFromAgents || !this.agentSender.recordLogs(
+              connConfig,
+              insertKey,
+              payload,
+              batch.getLogs().size()
+          )) {
+            this.client.recordEncodedLogs(connConfig, Secret.toString(insertKey), payload);
+          }
+        }
+    );
+
+    if (isLoggingDebug) {
+      LOGGER.finest(String.format(
+          "Forwarded %d bytes of build logs",
+          forwarded
+      ));
+    }
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+
+  private List<Run<?, ?>> getRunningBuilds() {
+    List<Run<?, ?>> runs = new ArrayList<Run<?, ?>>();
+
+    for (Computer computer : this.eventHelper.getJenkins().getComputers()) {
+      for (Executor executor : computer.getAllExecutors()) {
+        Queue.Executable executable = executor.getCurrentExecutable();
+        if (executable instanceof Run) {
+          runs.add((Run<?, ?>)executable);
+        }
+      }
+    }
+
+    return runs;
+  }
+}
@@ -31,6 +31,8 @@ import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.List;
 
@@ -41,6 +43,19 @@ public class NewRelicGlobalConfiguration extends GlobalConfiguration {
   private String insightsInsertCredentialsId = null;
   private int eventHarvestInterval = 60;
   private int systemSampleInterval = 15;
+  private int gcPauseThreshold = 500;
+  private int nodeHealthSampleInterval = 60;
+  private boolean buildSummaryMode = false;
+  private boolean systemMetricsMode = false;
+  private boolean traceExport = false;
+  private boolean stageEvents = false;
+  private boolean logForwarding = false;
+  private int logForwardingRate = 512;
+  private boolean agentOffload = false;
+  private String agentOffloadLabel = null;
+  private List<EventPolicyRule> eventPolicyRules = Collections.emptyList();
+  private String otlpEndpoint = null;
+  private boolean otlpGzip = true;
   private EventHelper eventHelper;
 
   /**
@@ -119,6 +134,110 @@ public class NewRelicGlobalConfiguration extends GlobalConfiguration {
     this.systemSampleInterval = systemSampleInterval;
   }
 
+  public int getGcPauseThreshold() {
+    return gcPauseThreshold;
+  }
+
+  public void setGcPauseThreshold(int gcPauseThreshold) {
+    this.gcPauseThreshold = gcPauseThreshold;
+  }
+
+  public int getNodeHealthSampleInterval() {
+    return nodeHealthSampleInterval;
+  }
+
+  public void setNodeHealthSampleInterval(int nodeHealthSampleInterval) {
+    this.nodeHealthSampleInterval = nodeHealthSampleInterval;
+  }
+
+  public boolean isBuildSummaryMode() {
+    return buildSummaryMode;
+  }
+
+  public void setBuildSummaryMode(boolean buildSummaryMode) {
+    this.buildSummaryMode = buildSummaryMode;
+  }
+
+  public boolean isSystemMetricsMode() {
+    return systemMetricsMode;
+  }
+
+  public void setSystemMetricsMode(boolean systemMetricsMode) {
+    this.systemMetricsMode = systemMetricsMode;
+  }
+
+  public boolean isTraceExport() {
+    return traceExport;
+  }
+
+  public void setTraceExport(boolean traceExport) {
+    this.traceExport = traceExport;
+  }
+
+  public boolean isStageEvents() {
+    return stageEvents;
+  }
+
+  public void setStageEvents(boolean stageEvents) {
+    this.stageEvents = stageEvents;
+  }
+
+  public boolean isLogForwarding() {
+    return logForwarding;
+  }
+
+  public void setLogForwarding(boolean logForwarding) {
+    this.logForwarding = logForwarding;
+  }
+
+  public int getLogForwardingRate() {
+    return logForwardingRate;
+  }
+
+  public void setLogForwardingRate(int logForwardingRate) {
+    this.logForwardingRate = logForwardingRate;
+  }
+
+  public boolean isAgentOffload() {
+    return agentOffload;
+  }
+
+  public void setAgentOffload(boolean agentOffload) {
+    this.agentOffload = agentOffload;
+  }
+
+  public String getAgentOffloadLabel() {
+    return agentOffloadLabel;
+  }
+
+  public void setAgentOffloadLabel(String agentOffloadLabel) {
+    this.agentOffloadLabel = StringUtils.trimToNull(agentOffloadLabel);
+  }
+
+  public List<EventPolicyRule> getEventPolicyRules() {
+    return eventPolicyRules != null ? eventPolicyRules : Collections.emptyList();
+  }
+
+  public void setEventPolicyRules(List<EventPolicyRule> eventPolicyRules) {
+    this.eventPolicyRules = eventPolicyRules;
+  }
+
+  public String getOtlpEndpoint() {
+    return otlpEndpoint;
+  }
+
+  public void setOtlpEndpoint(String otlpEndpoint) {
+    this.otlpEndpoint = StringUtils.trimToNull(otlpEndpoint);
+  }
+
+  public boolean isOtlpGzip() {
+    return otlpGzip;
+  }
+
+  public void setOtlpGzip(boolean otlpGzip) {
+    this.otlpGzip = otlpGzip;
+  }
+
   /**
    * Populate the {@link ListBoxModel} with Insights Insert Key credential ID
    * choices.
@@ -183,12 +302,59 @@ public class NewRelicGlobalConfiguration extends GlobalConfiguration {
     return FormValidation.ok();
   }
   
+  /**
+   * Check that a label expression is entered when sending from agents is
+   * enabled.
+   * 
+   * @param value the label expression.
+   * @param agentOffload {@code true} if sending from agents is checked.
+   * @return a {@link FormValidation} result.
+   */
+  public FormValidation doCheckAgentOffloadLabel(
+      @QueryParameter String value,
+      @QueryParameter boolean agentOffload
+  ) {
+    if (agentOffload && StringUtils.isBlank(value)) {
+      return FormValidation.error(
+          Messages.NewRelicGlobalConfiguration_errors_MissingAgentOffloadLabel()
+      );
+    }
+    return FormValidation.ok();
+  }
+  
+  /**
+   * Check the OTLP/HTTP logs endpoint URL.
+   * 
+   * @param value the endpoint URL.
+   * @return a {@link FormValidation} result.
+   */
+  public FormValidation doCheckOtlpEndpoint(
+      @QueryParameter String value
+  ) {
+    if (StringUtils.isBlank(value)) {
+      return FormValidation.ok();
+    }
+    try {
+      String scheme = new URI(value.trim()).getScheme();
+      if ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) {
+        return FormValidation.ok();
+      }
+    } catch (URISyntaxException exc) {
+      // Reported below
+    }
+    return FormValidation.error(
+        Messages.NewRelicGlobalConfiguration_errors_InvalidOtlpEndpoint()
+    );
+  }
+  
   /**
    * Applies the submitted configuration to this object.
    */
   @Override
   public boolean configure(StaplerRequest req, JSONObject json)
       throws FormException {
+    // The rules are omitted from the form data when the last one is deleted.
+    this.eventPolicyRules = Collections.emptyList();
     req.bindJSON(this, json);
     save();
     return true;
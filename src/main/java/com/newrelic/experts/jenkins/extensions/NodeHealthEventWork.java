@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.newrelic.experts.jenkins.events.NodeHealthEventProducer;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Jenkins {@link PeriodicWork} object that produces {@code JenkinsNodeHealthEvent}s.
+ * <p>
+ * Events are produced every 60 seconds by default.  Setting the node health
+ * sample interval to 0 disables node health events.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class NodeHealthEventWork extends PeriodicWork {
+
+  private static final String CLASS_NAME = NodeHealthEventWork.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  private NewRelicGlobalConfiguration nrjConfig;
+  private NodeHealthEventProducer producer;
+
+  /**
+   * Create a new {@link NodeHealthEventWork}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public NodeHealthEventWork() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  /**
+   * Create a new {@link NodeHealthEventWork} using constructor based DI
+   * to pass in dependencies.
+   *
+   * @param nrjConfig the {@link NewRelicGlobalConfiguration} to use.
+   * @param producer the {@link NodeHealthEventProducer} to use to sample node health.
+   */
+  @Inject
+  public NodeHealthEventWork(
+      NewRelicGlobalConfiguration nrjConfig,
+      NodeHealthEventProducer producer
+  ) {
+    this.nrjConfig = nrjConfig;
+    this.producer = producer;
+  }
+
+  @Override
+  public long getRecurrencePeriod() {
+    int interval = this.nrjConfig.getNodeHealthSampleInterval();
+    return (interval > 0 ? interval : 60) * 1000;
+  }
+
+  @Override
+  protected void doRun() throws Exception {
+    final String methodName = "doRun";
+    final boolean isLoggingTrace = LOGGER.isLoggable(Level.FINE);
+
+    if (isLoggingTrace) {
+      LOGGER.entering(CLASS_NAME, methodName);
+    }
+
+    if (this.nrjConfig.getNodeHealthSampleInterval() <= 0) {
+      if (isLoggingTrace) {
+        LOGGER.logp(Level.FINE, CLASS_NAME, methodName,
+            "RETURN EARLY Node health events are disabled."
+        );
+      }
+      return;
+    }
+
+    this.producer.recordEvents();
+
+    if (isLoggingTrace) {
+      LOGGER.exiting(CLASS_NAME, methodName);
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.newrelic.experts.client.api.NewRelicClient;
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.jenkins.JenkinsUtils;
+import com.newrelic.experts.jenkins.events.EventSink;
+
+import hudson.Extension;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An {@link EventSink} which exports {@code AppBuildEvent}s,
+ * {@code AppDeploymentEvent}s and {@code JenkinsSystemEvent}s as OTLP log
+ * records to an OpenTelemetry collector over OTLP/HTTP with the protobuf
+ * encoding.  The sink is disabled while no OTLP endpoint is configured.
+ * <p>
+ * The attributes common to all events are reported once per request as
+ * OTLP resource attributes instead of on every log record.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension
+public class OtlpEventSink extends EventSink {
+
+  /**
+   * The event types exported by this sink.
+   */
+  public static final Set<String> EVENT_TYPES = Collections.unmodifiableSet(
+      new HashSet<String>(Arrays.asList(
+          "AppBuildEvent",
+          "AppDeploymentEvent",
+          "JenkinsSystemEvent"
+      ))
+  );
+
+  private static final String[] RESOURCE_ATTRIBUTE_NAMES = new String[] {
+      "provider",
+      "providerVersion",
+      "jenkinsMasterHost",
+      "jenkinsMasterLabels"
+  };
+
+  private NewRelicGlobalConfiguration nrjConfig;
+  private NewRelicClient client;
+
+  /**
+   * Create a new {@link OtlpEventSink}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public OtlpEventSink() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  /**
+   * Create a new {@link OtlpEventSink} using constructor based DI
+   * to pass in dependencies.
+   *
+   * @param nrjConfig the {@link NewRelicGlobalConfiguration} to use.
+   * @param client the {@link NewRelicClient} to use.
+   */
+  @Inject
+  public OtlpEventSink(
+      NewRelicGlobalConfiguration nrjConfig,
+      NewRelicClient client
+  ) {
+    this.nrjConfig = nrjConfig;
+    this.client = client;
+  }
+
+  @Override
+  public String getName() {
+    return "OTLP";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return this.nrjConfig.getOtlpEndpoint() != null;
+  }
+
+  @Override
+  public void send(Event[] events) throws IOException {
+    String endpoint = this.nrjConfig.getOtlpEndpoint();
+
+    if (endpoint == null) {
+      return;
+    }
+
+    List<Event> exported = new ArrayList<Event>(events.length);
+
+    for (Event event : events) {
+      if (EVENT_TYPES.contains(event.get(Event.PROPERTY_NAME_EVENT_TYPE))) {
+        exported.add(event);
+      }
+    }
+
+    if (exported.isEmpty()) {
+      return;
+    }
+
+    this.client.recordOtlpLogs(
+        JenkinsUtils.createClientConnectionConfig(this.client),
+        endpoint,
+        createResourceAttributes(exported.get(0)),
+        exported.toArray(new Event[exported.size()]),
+        this.nrjConfig.isOtlpGzip()
+    );
+  }
+
+  /**
+   * Return the OTLP resource attributes, taking the common attributes from
+   * {@code event}.
+   *
+   * @param event an event carrying the common attributes.
+   * @return the resource attributes.
+   */
+  static Map<String, Object> createResourceAttributes(Event event) {
+    Map<String, Object> resource = new LinkedHashMap<String, Object>();
+
+    resource.put("service.name", "jenkins");
+    for (String name : RESOURCE_ATTRIBUTE_NAMES) {
+      Object value = event.get(name);
+      if (value != null) {
+        resource.put(name, value);
+      }
+    }
+
+    return resource;
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import com.google.inject.Inject;
+
+import com.newrelic.experts.jenkins.events.BuildSpanTracker;
+import com.newrelic.experts.jenkins.events.StageEventTracker;
+
+import hudson.Extension;
+import hudson.model.Queue;
+import hudson.model.Run;
+
+import org.jenkinsci.plugins.workflow.actions.BodyInvocationAction;
+import org.jenkinsci.plugins.workflow.actions.ErrorAction;
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.actions.TagsAction;
+import org.jenkinsci.plugins.workflow.actions.ThreadNameAction;
+import org.jenkinsci.plugins.workflow.actions.TimingAction;
+import org.jenkinsci.plugins.workflow.actions.WarningAction;
+import org.jenkinsci.plugins.workflow.actions.WorkspaceAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.flow.GraphListener;
+import org.jenkinsci.plugins.workflow.graph.AtomNode;
+import org.jenkinsci.plugins.workflow.graph.BlockEndNode;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.graph.FlowStartNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link GraphListener} which follows the flow graph of Pipeline builds as
+ * it grows.
+ * <p>
+ * Every node is looked at once, when it is added, and never again: a block
+ * ends when its {@link BlockEndNode} is added and an atomic step ends when
+ * the first node following it is added.  The flow graph is never walked.
+ * The stages, parallel branches and steps are reported as spans to the
+ * {@link BuildSpanTracker} when trace export is enabled.  The body blocks
+ * of steps (other than parallel branches) are not reported since they
+ * would duplicate the span of their step.  When stage events are enabled
+ * the stages and the agents of {@code node} blocks are reported to the
+ * {@link StageEventTracker} as they end.
+ * </p>
+ * <p>
+ * This extension is only loaded when the Pipeline API plugin is installed.
+ * </p>
+ *
+ * @author Scott DeWitt (sdewitt@newrelic.com)
+ */
+@Extension(optional = true)
+public class PipelineGraphListener implements GraphListener {
+
+  private static final String CLASS_NAME = PipelineGraphListener.class.getName();
+  private static final Logger LOGGER = Logger.getLogger(CLASS_NAME);
+
+  /**
+   * The tag Declarative Pipeline sets on stages which did not run normally,
+   * for example {@code SKIPPED_FOR_CONDITIONAL}.
+   */
+  private static final String STAGE_STATUS_TAG = "STAGE_STATUS";
+
+  private NewRelicGlobalConfiguration nrjConfig;
+  private BuildSpanTracker spanTracker;
+  private StageEventTracker stageTracker;
+
+  /**
+   * Create a new {@link PipelineGraphListener}.
+   * <p>
+   * This public no-argument constructors is required in order for SezPoz
+   * to work properly.  If you call it directly it will thrown an
+   * {@link UnsupportedOperationException}.
+   * </p>
+   */
+  public PipelineGraphListener() {
+    throw new UnsupportedOperationException(
+      "Public no-argument constructor is required but not supported."
+    );
+  }
+
+  /**
+   * Create a new {@link PipelineGraphListener} using constructor based DI
+   * to pass in dependencies.
+   *
+   * @param nrjConfig the {@link NewRelicGlobalConfiguration} to use.
+   * @param spanTracker the {@link BuildSpanTracker} to report spans to.
+   * @param stageTracker the {@link StageEventTracker} to report stages to.
+   */
+  @Inject
+  public PipelineGraphListener(
+      NewRelicGlobalConfiguration nrjConfig,
+      BuildSpanTracker spanTracker,
+      StageEventTracker stageTracker
+  ) {
+    this.nrjConfig = nrjConfig;
+    this.spanTracker = spanTracker;
+    this.stageTracker = stageTracker;
+  }
+
+  @Override
+  public void onNewHead(FlowNode node) {
+    final boolean traceExport = this.nrjConfig.isTraceExport();
+    final boolean stageEvents = this.nrjConfig.isStageEvents();
+
+    if (!traceExport && !stageEvents) {
+      return;
+    }
+
+    Run<?, ?> run = getRun(node);
+
+    if (run == null) {
+      return;
+    }
+
+    String runId = run.getExternalizableId();
+    long time = TimingAction.getStartTime(node);
+
+    if (time == 0) {
+      time = System.currentTimeMillis();
+    }
+
+    if (node instanceof BlockEndNode) {
+      BlockStartNode start = ((BlockEndNode<?>)node).getStartNode();
+      String kind = getKind(start);
+
+      if (traceExport) {
+        this.spanTracker.endSpan(
+            runId,
+            start.getId(),
+            start.getDisplayName(),
+            kind,
+            time,
+            getResult(node)
+        );
+      }
+      if (stageEvents) {
+        recordBlockEnd(runId, start, node, kind, time);
+      }
+    }
+
+    if (!traceExport) {
+      return;
+    }
+
+    for (FlowNode parent : node.getParents()) {
+      if (parent instanceof AtomNode) {
+        this.spanTracker.endSpan(
+            runId,
+            parent.getId(),
+            parent.getDisplayName(),
+            getKind(parent),
+            time,
+            getResult(parent)
+        );
+      }
+    }
+
+    if (isSpan(node)) {
+      this.spanTracker.startSpan(
+          runId,
+          node.getId(),
+          node.getAllEnclosingIds(),
+          node.getDisplayName(),
+          getKind(node),
+          time
+      );
+    }
+  }
+
+  private void recordBlockEnd(
+      String runId,
+      BlockStartNode start,
+      FlowNode end,
+      String kind,
+      long endTime
+  ) {
+    WorkspaceAction workspace = start.getPersistentAction(WorkspaceAction.class);
+
+    if (workspace != null) {
+      List<String> stageKeys = getEnclosingStageIds(start);
+
+      if (!stageKeys.isEmpty()) {
+        this.stageTracker.recordAgent(runId, stageKeys, getAgentName(workspace));
+      }
+    }
+
+    if (!"stage".equals(kind)) {
+      return;
+    }
+
+    TagsAction tags = start.getPersistentAction(TagsAction.class);
+    String status = tags != null ? tags.getTagValue(STAGE_STATUS_TAG) : null;
+
+    if (status == null) {
+      status = getResult(end);
+    }
+
+    this.stageTracker.recordStage(
+        runId,
+        start.getId(),
+        start.getDisplayName(),
+        TimingAction.getStartTime(start),
+        endTime,
+        status != null ? status : "SUCCESS",
+        getEnclosingAgentName(start)
+    );
+  }
+
+  private static List<String> getEnclosingStageIds(FlowNode node) {
+    List<String> stageIds = new ArrayList<String>();
+
+    for (BlockStartNode block : node.getEnclosingBlocks()) {
+      if ("stage".equals(getKind(block))) {
+        stageIds.add(block.getId());
+      }
+    }
+    return stageIds;
+  }
+
+  private static String getEnclosingAgentName(FlowNode node) {
+    for (BlockStartNode block : node.getEnclosingBlocks()) {
+      WorkspaceAction workspace = block.getPersistentAction(WorkspaceAction.class);
+      if (workspace != null) {
+        return getAgentName(workspace);
+      }
+    }
+    return null;
+  }
+
+  private static String getAgentName(WorkspaceAction workspace) {
+    String agent = workspace.getNode();
+
+    return agent == null || agent.isEmpty() ? "built-in" : agent;
+  }
+
+  private static boolean isSpan(FlowNode node) {
+    if (node instanceof AtomNode) {
+      return true;
+    }
+    if (!(node instanceof BlockStartNode) || node instanceof FlowStartNode) {
+      return false;
+    }
+    return (
+        node.getPersistentAction(BodyInvocationAction.class) == null
+        || node.getPersistentAction(ThreadNameAction.class) != null
+    );
+  }
+
+  private static String getKind(FlowNode node) {
+    if (node.getPersistentAction(ThreadNameAction.class) != null) {
+      return "parallel";
+    }
+    if (
+        node instanceof BlockStartNode
+        && node.getPersistentAction(LabelAction.class) != null
+    ) {
+      return "stage";
+    }
+    return "step";
+  }
+
+  private static String getResult(FlowNode node) {
+    ErrorAction error = node.getError();
+
+    if (error != null) {
+      return "FAILURE";
+    }
+
+    WarningAction warning = node.getPersistentAction(WarningAction.class);
+
+    return warning != null ? warning.getResult().toString() : null;
+  }
+
+  private static Run<?, ?> getRun(FlowNode node) {
+    try {
+      FlowExecution execution = node.getExecution();
+      Queue.Executable executable = execution.getOwner().getExecutable();
+
+      return executable instanceof Run ? (Run<?, ?>)executable : null;
+    } catch (IOException exc) {
+      LOGGER.log(Level.WARNING, String.format(
+          "Could not get the build of flow node %s: %s",
+          node.getId(),
+          exc.getMessage()
+      ), exc);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.newrelic.experts.client.api.NewRelicClientException;
+import com.newrelic.experts.client.model.Event;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.impl.bootstrap.HttpServer;
+import org.apache.http.impl.bootstrap.ServerBootstrap;
+import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.util.EntityUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Exports OTLP logs to a local stand-in for an OpenTelemetry collector.
+ */
+public class NewRelicClientOtlpTest {
+
+  /**
+   * Records the last OTLP request and answers with a configurable status.
+   */
+  static class CollectorHandler implements HttpRequestHandler {
+
+    volatile int status = HttpStatus.SC_OK;
+    volatile String path;
+    volatile String contentType;
+    volatile String contentEncoding;
+    volatile byte[] body;
+
+    @Override
+    public void handle(
+        HttpRequest request,
+        HttpResponse response,
+        HttpContext context
+    ) throws HttpException, IOException {
+      Header encoding = request.getFirstHeader("Content-Encoding");
+
+      this.path = request.getRequestLine().getUri();
+      this.contentType = request.getFirstHeader("Content-Type").getValue();
+      this.contentEncoding = encoding != null ? encoding.getValue() : null;
+      this.body = EntityUtils.toByteArray(
+          ((HttpEntityEnclosingRequest)request).getEntity()
+      );
+      response.setStatusCode(this.status);
+    }
+  }
+
+  private static HttpServer server;
+  private static CollectorHandler handler = new CollectorHandler();
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    server = ServerBootstrap.bootstrap()
+        .setListenerPort(0)
+        .registerHandler("*", handler)
+        .create();
+    server.start();
+  }
+
+  @AfterClass
+  public static void teardown() {
+    server.shutdown(0, TimeUnit.MILLISECONDS);
+  }
+
+  @Before
+  public void resetHandler() {
+    handler.status = HttpStatus.SC_OK;
+    handler.body = null;
+  }
+
+  private static NewRelicClientImpl createClient() {
+    return new NewRelicClientImpl(new NewRelicApiHelper(
+        new BasicHttpClientConnectionManager(),
+        new ObjectMapper()
+    ));
+  }
+
+  private static String endpoint() {
+    return "http://localhost:" + server.getLocalPort() + "/v1/logs";
+  }
+
+  private static Event[] createEvents(int count) {
+    Event[] events = new Event[count];
+
+    for (int index = 0; index < count; index += 1) {
+      Event event = new Event("AppBuildEvent");
+      event.put("timestamp", 1500000000000L + index);
+      event.put("provider", "Jenkins");
+      event.put("providerVersion", "2.342");
+      event.put("jenkinsMasterHost", "jenkins.example.com");
+      event.put("jobName", "folder/job-" + index);
+      event.put("buildNumber", index);
+      event.put("buildResult", "SUCCESS");
+      event.put("buildDuration", 60000L + index);
+      events[index] = event;
+    }
+
+    return events;
+  }
+
+  private static Map<String, Object> createResource() {
+    Map<String, Object> resource = new LinkedHashMap<String, Object>();
+    resource.put("service.name", "jenkins");
+    resource.put("provider", "Jenkins");
+    resource.put("providerVersion", "2.342");
+    resource.put("jenkinsMasterHost", "jenkins.example.com");
+    return resource;
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    }
+
+    return out.toByteArray();
+  }
+
+  @Test
+  public void recordOtlpLogsShouldPostGzippedProtobuf() throws Exception {
+    NewRelicClientImpl client = createClient();
+    Event[] events = createEvents(100);
+
+    client.recordOtlpLogs(
+        client.createClientConnectionConfig(5000, 2000, 5000, null),
+        endpoint(),
+        createResource(),
+        events,
+        true
+    );
+
+    Assert.assertEquals("/v1/logs", handler.path);
+    Assert.assertEquals("application/x-protobuf", handler.contentType);
+    Assert.assertEquals("gzip", handler.contentEncoding);
+
+    byte[] body = gunzip(handler.body);
+    List<OtlpLogsEncoderTest.Field> scopeLogs = OtlpLogsEncoderTest.field(
+        OtlpLogsEncoderTest.field(OtlpLogsEncoderTest.decode(body), 1).message(),
+        2
+    ).message();
+
+    Assert.assertEquals(100, OtlpLogsEncoderTest.fields(scopeLogs, 2).size());
+
+    // The common attributes are only sent once and numbers are binary so
+    // the protobuf payload is smaller than the JSON payload for the same
+    // events.
+    byte[] json = new ObjectMapper().writeValueAsBytes(events);
+    Assert.assertTrue(body.length < json.length);
+  }
+
+  @Test
+  public void recordOtlpLogsShouldPostUncompressedProtobuf() throws Exception {
+    NewRelicClientImpl client = createClient();
+
+    client.recordOtlpLogs(
+        client.createClientConnectionConfig(5000, 2000, 5000, null),
+        endpoint(),
+        createResource(),
+        createEvents(1),
+        false
+    );
+
+    Assert.assertNull(handler.contentEncoding);
+    Assert.assertEquals(1, OtlpLogsEncoderTest.decode(handler.body).size());
+  }
+
+  @Test
+  public void recordOtlpLogsShouldFailOnErrorStatus() {
+    NewRelicClientImpl client = createClient();
+
+    handler.status = HttpStatus.SC_SERVICE_UNAVAILABLE;
+    try {
+      client.recordOtlpLogs(
+          client.createClientConnectionConfig(5000, 2000, 5000, null),
+          endpoint(),
+          createResource(),
+          createEvents(1),
+          true
+      );
+      Assert.fail("The export should have failed");
+    } catch (NewRelicClientException expected) {
+      Assert.assertNotNull(handler.body);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.internal;
+
+import com.newrelic.experts.client.model.Event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OtlpLogsEncoderTest {
+
+  /**
+   * A decoded protobuf field.  Varint and fixed64 values are kept in
+   * {@code value}, length delimited values in {@code bytes}.
+   */
+  static class Field {
+    final int number;
+    final long value;
+    final byte[] bytes;
+
+    Field(int number, long value, byte[] bytes) {
+      this.number = number;
+      this.value = value;
+      this.bytes = bytes;
+    }
+
+    String string() {
+      return new String(this.bytes, StandardCharsets.UTF_8);
+    }
+
+    List<Field> message() {
+      return decode(this.bytes);
+    }
+  }
+
+  static List<Field> decode(byte[] bytes) {
+    List<Field> fields = new ArrayList<Field>();
+    int[] pos = new int[] { 0 };
+
+    while (pos[0] < bytes.length) {
+      long tag = readVarint(bytes, pos);
+      int number = (int)(tag >>> 3);
+      int wireType = (int)(tag & 7);
+
+      if (wireType == 0) {
+        fields.add(new Field(number, readVarint(bytes, pos), null));
+      } else if (wireType == 1) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 8) {
+          value |= (bytes[pos[0]++] & 0xFFL) << shift;
+        }
+        fields.add(new Field(number, value, null));
+      } else if (wireType == 2) {
+        int length = (int)readVarint(bytes, pos);
+        fields.add(new Field(
+            number,
+            0,
+            Arrays.copyOfRange(bytes, pos[0], pos[0] + length)
+        ));
+        pos[0] += length;
+      } else {
+        Assert.fail("Unexpected wire type " + wireType);
+      }
+    }
+
+    return fields;
+  }
+
+  private static long readVarint(byte[] bytes, int[] pos) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte current = bytes[pos[0]++];
+      value |= (long)(current & 0x7F) << shift;
+      if ((current & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  static List<Field> fields(List<Field> message, int number) {
+    List<Field> matches = new ArrayList<Field>();
+    for (Field field : message) {
+      if (field.number == number) {
+        matches.add(field);
+      }
+    }
+    return matches;
+  }
+
+  static Field field(List<Field> message, int number) {
+    List<Field> matches = fields(message, number);
+    Assert.assertEquals(1, matches.size());
+    return matches.get(0);
+  }
+
+  static Map<String, Field> attributes(List<Field> message, int number) {
+    Map<String, Field> attributes = new LinkedHashMap<String, Field>();
+    for (Field keyValue : fields(message, number)) {
+      List<Field> kv = keyValue.message();
+      attributes.put(
+          field(kv, 1).string(),
+          field(kv, 2).message().get(0)
+      );
+    }
+    return attributes;
+  }
+
+  @Test
+  public void encodeShouldWriteLogRecords() {
+    Map<String, Object> resource = new LinkedHashMap<String, Object>();
+    Event event = new Event("AppBuildEvent");
+    char[] longValue = new char[300];
+
+    Arrays.fill(longValue, 'x');
+    resource.put("service.name", "jenkins");
+    resource.put("provider", "Jenkins");
+    event.put("timestamp", 1500L);
+    event.put("provider", "Jenkins");
+    event.put("buildNumber", 42);
+    event.put("buildDuration", -5L);
+    event.put("buildQueueTime", 0.5);
+    event.put("buildBuilding", true);
+    event.put("buildMessage", new String(longValue));
+
+    List<Field> request = decode(
+        OtlpLogsEncoder.encode(resource, new Event[] { event }, 2000L)
+    );
+    List<Field> resourceLogs = field(request, 1).message();
+    Map<String, Field> resourceAttrs = attributes(
+        field(resourceLogs, 1).message(),
+        1
+    );
+
+    Assert.assertEquals("jenkins", resourceAttrs.get("service.name").string());
+    Assert.assertEquals("Jenkins", resourceAttrs.get("provider").string());
+
+    List<Field> scopeLogs = field(resourceLogs, 2).message();
+
+    Assert.assertEquals(
+        OtlpLogsEncoder.SCOPE_NAME,
+        field(field(scopeLogs, 1).message(), 1).string()
+    );
+
+    List<Field> record = field(scopeLogs, 2).message();
+
+    Assert.assertEquals(1500L * 1000000L, field(record, 1).value);
+    Assert.assertTrue(fields(record, 11).isEmpty());
+    Assert.assertEquals(9, field(record, 2).value);
+    Assert.assertEquals("AppBuildEvent", field(field(record, 5).message(), 1).string());
+
+    Map<String, Field> attrs = attributes(record, 6);
+
+    Assert.assertEquals(
+        Arrays.asList("buildNumber", "buildDuration", "buildQueueTime",
+            "buildBuilding", "buildMessage"),
+        new ArrayList<String>(attrs.keySet())
+    );
+    Assert.assertEquals(3, attrs.get("buildNumber").number);
+    Assert.assertEquals(42, attrs.get("buildNumber").value);
+    Assert.assertEquals(-5L, attrs.get("buildDuration").value);
+    Assert.assertEquals(4, attrs.get("buildQueueTime").number);
+    Assert.assertEquals(0.5, Double.longBitsToDouble(attrs.get("buildQueueTime").value), 0);
+    Assert.assertEquals(2, attrs.get("buildBuilding").number);
+    Assert.assertEquals(1, attrs.get("buildBuilding").value);
+    Assert.assertEquals(new String(longValue), attrs.get("buildMessage").string());
+  }
+
+  @Test
+  public void attributesDifferentFromResourceShouldBeKept() {
+    Map<String, Object> resource = new LinkedHashMap<String, Object>();
+    Event event = new Event("JenkinsSystemEvent");
+
+    resource.put("jenkinsMasterHost", "controller-1");
+    event.put("jenkinsMasterHost", "controller-2");
+
+    List<Field> request = decode(
+        OtlpLogsEncoder.encode(resource, new Event[] { event, event }, 0L)
+    );
+    List<Field> scopeLogs = field(field(request, 1).message(), 2).message();
+    List<Field> records = fields(scopeLogs, 2);
+
+    Assert.assertEquals(2, records.size());
+    Assert.assertEquals(0, field(records.get(0).message(), 11).value);
+    Assert.assertEquals(
+        "controller-2",
+        attributes(records.get(1).message(), 6).get("jenkinsMasterHost").string()
+    );
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares posting a batch of events through {@link ObjectMapper} with
+ * streaming it through the {@link EventArrayWriter}, gzip'ed the same way
+ * {@code NewRelicApiHelper.post} sends it.
+ * <p>
+ * This is not a unit test.  Run {@link #main(String[])} from the test
+ * classpath, or run JMH with {@code -prof gc} to compare allocation too.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventArrayWriterBenchmark {
+
+  @Param({ "10000", "100000" })
+  public int eventCount;
+
+  private ObjectMapper mapper;
+  private Event[] events;
+
+  @Setup
+  public void setup() {
+    this.mapper = new ObjectMapper();
+    this.events = new Event[this.eventCount];
+
+    long now = System.currentTimeMillis();
+
+    for (int index = 0; index < this.eventCount; index += 1) {
+      Event event = new Event("AppBuildEvent");
+
+      event.put("timestamp", now + index);
+      event.put("provider", "Jenkins");
+      event.put("jenkinsVersion", "2.342");
+      event.put("hostname", "jenkins.example.com");
+      event.put("jobName", "folder/job-" + (index % 50));
+      event.put("buildNumber", index);
+      event.put("buildResult", "SUCCESS");
+      event.put("buildDuration", 1234L + index);
+      event.put("buildQueueTime", 0.5 * index);
+      event.put("buildBuilding", false);
+      for (int attr = 0; attr < 10; attr += 1) {
+        event.put("custom" + attr, "value" + attr);
+      }
+      event.trimToSize();
+      this.events[index] = event;
+    }
+  }
+
+  @Benchmark
+  public byte[] objectMapper() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStream out = new GZIPOutputStream(bytes);
+
+    out.write(this.mapper.writeValueAsBytes(this.events));
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] eventArrayWriter() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStream out = new GZIPOutputStream(bytes);
+    JsonGenerator gen = this.mapper.getFactory().createGenerator(out);
+
+    EventArrayWriter.write(gen, this.events);
+    gen.flush();
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(EventArrayWriterBenchmark.class.getSimpleName())
+        .build()
+    ).run();
+  }
+}
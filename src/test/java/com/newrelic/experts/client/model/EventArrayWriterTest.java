@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EventArrayWriterTest {
+
+  private static String write(ObjectMapper mapper, Event[] events) throws Exception {
+    StringWriter out = new StringWriter();
+    JsonGenerator gen = mapper.getFactory().createGenerator(out);
+
+    EventArrayWriter.write(gen, events);
+    gen.close();
+    return out.toString();
+  }
+
+  @Test
+  public void outputShouldMatchObjectMapper() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    Event first = new Event("TestEvent");
+    Event second = new Event("OtherEvent");
+
+    first.put("long", 10L);
+    first.put("int", 3);
+    first.put("double", 0.25);
+    first.put("boolean", false);
+    first.put("string", "quote \" and \u00e9");
+    first.put("float", Float.valueOf(1.5f));
+    first.put("decimal", new BigDecimal("12.50"));
+    first.put("null", null);
+    second.put("buildNumber", 42);
+
+    Event[] events = new Event[] { first, second };
+
+    Assert.assertEquals(mapper.writeValueAsString(events), write(mapper, events));
+  }
+
+  @Test
+  public void otherValuesShouldMatchObjectMapper() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    Event event = new Event("TestEvent");
+
+    event.put("nan", Float.valueOf(Float.NaN));
+    event.put("infinity", Double.NEGATIVE_INFINITY);
+    event.put("short", Short.valueOf((short)7));
+    event.put("byte", Byte.valueOf((byte)-1));
+    event.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+    event.put("atomic", new AtomicLong(5));
+    event.put("list", Arrays.asList("a", "b"));
+
+    Event[] events = new Event[] { event };
+    String json = write(mapper, events);
+
+    Assert.assertEquals(mapper.writeValueAsString(events), json);
+    Assert.assertEquals("NaN", mapper.readTree(json).get(0).get("nan").asText());
+  }
+
+  @Test
+  public void emptyArrayShouldWriteEmptyJsonArray() throws Exception {
+    Assert.assertEquals("[]", write(new ObjectMapper(), new Event[0]));
+  }
+}
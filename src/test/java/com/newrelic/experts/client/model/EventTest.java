@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.client.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class EventTest {
+
+  @Test
+  public void typedValuesShouldReadBackBoxed() {
+    Event event = new Event("TestEvent");
+
+    event.put("long", 10L);
+    event.put("int", 3);
+    event.put("double", 0.5);
+    event.put("boolean", true);
+    event.put("string", "value");
+
+    Assert.assertEquals("TestEvent", event.get(Event.PROPERTY_NAME_EVENT_TYPE));
+    Assert.assertEquals(Long.valueOf(10), event.get("long"));
+    Assert.assertEquals(Integer.valueOf(3), event.get("int"));
+    Assert.assertEquals(Double.valueOf(0.5), event.get("double"));
+    Assert.assertEquals(Boolean.TRUE, event.get("boolean"));
+    Assert.assertEquals("value", event.get("string"));
+    Assert.assertEquals(6, event.size());
+  }
+
+  @Test
+  public void mapViewShouldBehaveLikeHashMap() {
+    Event event = new Event("TestEvent");
+    Map<String, Object> common = new HashMap<String, Object>();
+
+    common.put("provider", "Jenkins");
+    common.put("count", Long.valueOf(7));
+    event.putAll(common);
+    event.put("count", 8L);
+    event.put("removed", "value");
+
+    Assert.assertEquals("value", event.remove("removed"));
+    Assert.assertFalse(event.containsKey("removed"));
+
+    Iterator<Map.Entry<String, Object>> iter = event.entrySet().iterator();
+    while (iter.hasNext()) {
+      if ("provider".equals(iter.next().getKey())) {
+        iter.remove();
+      }
+    }
+
+    Map<String, Object> expected = new HashMap<String, Object>();
+    expected.put(Event.PROPERTY_NAME_EVENT_TYPE, "TestEvent");
+    expected.put("count", Long.valueOf(8));
+
+    Assert.assertEquals(expected, event);
+    Assert.assertEquals(expected, new HashMap<String, Object>(event));
+  }
+
+  @Test
+  public void serializedEventShouldMatchMapSerialization() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    Event event = new Event("TestEvent");
+
+    event.put("long", 10L);
+    event.put("int", 3);
+    event.put("double", 0.5);
+    event.put("boolean", false);
+    event.put("string", "a \"quoted\" value");
+    event.put("missing", (Object)null);
+    event.trimToSize();
+
+    Map<?, ?> expected = mapper.readValue(
+        mapper.writeValueAsBytes(new HashMap<String, Object>(event)),
+        Map.class
+    );
+    Map<?, ?> actual = mapper.readValue(mapper.writeValueAsBytes(event), Map.class);
+
+    Assert.assertEquals(expected, actual);
+  }
+}
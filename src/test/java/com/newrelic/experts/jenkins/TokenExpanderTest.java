@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.EnvVars;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class TokenExpanderTest {
+
+  @Test
+  public void resolveShouldOnlyComputeTheEnvironmentWhenNeeded() throws Exception {
+    Run<?, ?> run = mock(Run.class);
+    TaskListener listener = mock(TaskListener.class);
+    EnvironmentContributingAction action = mock(EnvironmentContributingAction.class);
+
+    doAnswer(invocation -> {
+      EnvVars variables = invocation.getArgument(1);
+      variables.put("GIT_BRANCH", "main");
+      return null;
+    }).when(action).buildEnvironment(any(), any());
+    when(run.getActions(EnvironmentContributingAction.class))
+        .thenReturn(Collections.singletonList(action));
+    when(run.getEnvironment(listener)).thenReturn(new EnvVars("NODE_NAME", "linux-1"));
+
+    TokenExpander expander = new TokenExpander(run, listener);
+
+    Assert.assertEquals("main", expander.resolve("GIT_BRANCH"));
+    verify(run, never()).getEnvironment(listener);
+
+    Assert.assertEquals("linux-1", expander.resolve("NODE_NAME"));
+    Assert.assertNull(expander.resolve("MISSING"));
+    verify(run, times(1)).getEnvironment(listener);
+    verify(action, times(1)).buildEnvironment(any(), any());
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.jenkins.extensions.NewRelicGlobalConfiguration;
+
+import hudson.model.Computer;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.remoting.Future;
+import hudson.remoting.VirtualChannel;
+
+import jenkins.model.Jenkins;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class AgentTelemetrySenderTest {
+
+  private final NewRelicGlobalConfiguration nrjConfig = mock(NewRelicGlobalConfiguration.class);
+  private final Jenkins jenkins = mock(Jenkins.class);
+  private final Label label = mock(Label.class);
+  private final List<Node> nodes = new ArrayList<Node>();
+  private long now = 1000000;
+
+  private AgentTelemetrySender createSender() {
+    when(this.nrjConfig.isAgentOffload()).thenReturn(true);
+    when(this.nrjConfig.getAgentOffloadLabel()).thenReturn("sender");
+    when(this.jenkins.getLabel("sender")).thenReturn(this.label);
+    when(this.jenkins.getNodes()).thenReturn(this.nodes);
+
+    EventHelper eventHelper = mock(EventHelper.class);
+
+    when(eventHelper.getJenkins()).thenReturn(this.jenkins);
+
+    return new AgentTelemetrySender(this.nrjConfig, eventHelper, () -> this.now);
+  }
+
+  private VirtualChannel addAgent(String name) {
+    Node node = mock(Node.class);
+    Computer computer = mock(Computer.class);
+    VirtualChannel channel = mock(VirtualChannel.class);
+
+    when(node.getNodeName()).thenReturn(name);
+    when(node.toComputer()).thenReturn(computer);
+    when(this.label.contains(node)).thenReturn(true);
+    when(computer.getName()).thenReturn(name);
+    when(computer.isOnline()).thenReturn(true);
+    when(computer.getChannel()).thenReturn(channel);
+    this.nodes.add(node);
+
+    return channel;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Future<Integer> mockFuture(VirtualChannel channel) throws IOException {
+    Future<Integer> future = mock(Future.class);
+
+    when(channel.<Integer, IOException>callAsync(any())).thenReturn(future);
+
+    return future;
+  }
+
+  private static void acknowledge(VirtualChannel channel, int count) throws Exception {
+    when(mockFuture(channel).get(AgentTelemetrySender.CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        .thenReturn(count);
+  }
+
+  private static void fail(VirtualChannel channel, Exception exc) throws Exception {
+    when(mockFuture(channel).get(AgentTelemetrySender.CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        .thenThrow(exc);
+  }
+
+  private static boolean send(AgentTelemetrySender sender) {
+    return sender.recordEvents(null, "1", null, new byte[] { 0 }, 1);
+  }
+
+  @Test
+  public void sendingShouldRequireALabel() {
+    AgentTelemetrySender sender = createSender();
+
+    Assert.assertTrue(sender.isEnabled());
+
+    when(this.nrjConfig.getAgentOffloadLabel()).thenReturn(null);
+
+    Assert.assertFalse(sender.isEnabled());
+    Assert.assertFalse(send(sender));
+  }
+
+  @Test
+  public void batchesShouldRotateOverAgents() throws Exception {
+    AgentTelemetrySender sender = createSender();
+    VirtualChannel first = addAgent("first");
+    VirtualChannel second = addAgent("second");
+    VirtualChannel third = addAgent("third");
+
+    acknowledge(first, 1);
+    acknowledge(second, 1);
+    acknowledge(third, 1);
+
+    for (int index = 0; index < 3; index += 1) {
+      Assert.assertTrue(send(sender));
+    }
+
+    verify(first).callAsync(any());
+    verify(second).callAsync(any());
+    verify(third).callAsync(any());
+  }
+
+  @Test
+  public void failedAgentShouldBeSkippedUntilTheBackoffEnds() throws Exception {
+    AgentTelemetrySender sender = createSender();
+    VirtualChannel failing = addAgent("failing");
+    VirtualChannel working = addAgent("working");
+
+    fail(failing, new ExecutionException(new IOException("unreachable")));
+    acknowledge(working, 1);
+
+    Assert.assertTrue(send(sender));
+    Assert.assertTrue(send(sender));
+
+    this.now += AgentTelemetrySender.FAILURE_BACKOFF_SECONDS * 1000L - 1;
+    Assert.assertTrue(send(sender));
+
+    verify(failing, times(1)).callAsync(any());
+    verify(working, times(3)).callAsync(any());
+
+    // Back in the rotation, which starts at the other agent this time.
+    this.now += 1;
+    Assert.assertTrue(send(sender));
+    Assert.assertTrue(send(sender));
+
+    verify(failing, times(2)).callAsync(any());
+    verify(working, times(5)).callAsync(any());
+  }
+
+  @Test
+  public void countMismatchShouldBeAFailure() throws Exception {
+    AgentTelemetrySender sender = createSender();
+    VirtualChannel partial = addAgent("partial");
+    VirtualChannel working = addAgent("working");
+
+    acknowledge(partial, 0);
+    acknowledge(working, 1);
+
+    Assert.assertTrue(send(sender));
+    Assert.assertTrue(send(sender));
+
+    verify(partial, times(1)).callAsync(any());
+    verify(working, times(2)).callAsync(any());
+  }
+
+  @Test
+  public void controllerShouldSendAfterMaxAttempts() throws Exception {
+    AgentTelemetrySender sender = createSender();
+    VirtualChannel first = addAgent("first");
+    VirtualChannel second = addAgent("second");
+    VirtualChannel third = addAgent("third");
+
+    fail(first, new TimeoutException());
+    fail(second, new TimeoutException());
+    fail(third, new TimeoutException());
+
+    Assert.assertFalse(send(sender));
+
+    verify(first).callAsync(any());
+    verify(second).callAsync(any());
+    verify(third, never()).callAsync(any());
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.jenkins.events.AppBuildEventProducer.BuildEventType;
+import com.newrelic.experts.jenkins.extensions.EventConfigJobProperty;
+import com.newrelic.experts.jenkins.extensions.NewRelicGlobalConfiguration;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class AppBuildEventDispatcherTest {
+
+  private final List<List<Runnable>> queues = new ArrayList<List<Runnable>>();
+  private final AppBuildEventProducer producer = mock(AppBuildEventProducer.class);
+  private final EventPolicy policy = mock(EventPolicy.class);
+  private final NewRelicGlobalConfiguration nrjConfig = mock(NewRelicGlobalConfiguration.class);
+  private final BuildSummaryTracker summaryTracker = new BuildSummaryTracker();
+  private final BuildLatencyAggregator latencyAggregator = mock(BuildLatencyAggregator.class);
+
+  private AppBuildEventDispatcher createDispatcher(boolean reporting) {
+    Executor[] workers = new Executor[AppBuildEventDispatcher.WORKER_COUNT];
+
+    for (int index = 0; index < workers.length; index += 1) {
+      List<Runnable> queue = new ArrayList<Runnable>();
+      this.queues.add(queue);
+      workers[index] = queue::add;
+    }
+
+    when(this.policy.isReporting(any(), any(), any())).thenReturn(reporting);
+
+    return new AppBuildEventDispatcher(
+        this.producer,
+        this.summaryTracker,
+        mock(BuildDeletionAccumulator.class),
+        this.latencyAggregator,
+        this.policy,
+        this.nrjConfig,
+        workers
+    );
+  }
+
+  private static Run<? extends Job<?, ?>, ? extends Run<?, ?>> mockBuild(String id) {
+    return mockBuild(id, null);
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static Run<? extends Job<?, ?>, ? extends Run<?, ?>> mockBuild(
+      String id,
+      EventConfigJobProperty prop
+  ) {
+    Job job = mock(Job.class);
+    Run build = mock(Run.class);
+
+    when(job.getFullDisplayName()).thenReturn(id.substring(0, id.indexOf('#')));
+    when(job.getProperty(EventConfigJobProperty.class)).thenReturn(prop);
+    when(build.getParent()).thenReturn(job);
+    when(build.getExternalizableId()).thenReturn(id);
+
+    return build;
+  }
+
+  private List<BuildEventSnapshot> runQueuedEvents() {
+    int taskCount = 0;
+
+    for (List<Runnable> queue : this.queues) {
+      for (Runnable task : queue) {
+        task.run();
+        taskCount += 1;
+      }
+    }
+
+    ArgumentCaptor<BuildEventSnapshot> captor = ArgumentCaptor.forClass(BuildEventSnapshot.class);
+
+    verify(this.producer, times(taskCount)).recordEvent(captor.capture());
+
+    return captor.getAllValues();
+  }
+
+  private int countNonEmptyQueues() {
+    int count = 0;
+
+    for (List<Runnable> queue : this.queues) {
+      if (!queue.isEmpty()) {
+        count += 1;
+      }
+    }
+
+    return count;
+  }
+
+  @Test
+  public void eventsOfABuildShouldBeRecordedByOneWorkerInOrder() {
+    AppBuildEventDispatcher dispatcher = createDispatcher(true);
+    Run<? extends Job<?, ?>, ? extends Run<?, ?>> build = mockBuild("folder/job#42");
+    List<BuildEventType> eventTypes = Arrays.asList(
+        BuildEventType.INITIALIZED,
+        BuildEventType.STARTED,
+        BuildEventType.COMPLETED,
+        BuildEventType.FINALIZED
+    );
+
+    for (BuildEventType eventType : eventTypes) {
+      dispatcher.dispatch(eventType, build, true);
+    }
+
+    Assert.assertEquals(1, countNonEmptyQueues());
+
+    List<BuildEventType> recorded = new ArrayList<BuildEventType>();
+
+    for (BuildEventSnapshot snapshot : runQueuedEvents()) {
+      recorded.add(snapshot.getEventType());
+    }
+
+    Assert.assertEquals(eventTypes, recorded);
+  }
+
+  @Test
+  public void excludedEventsShouldNotBeQueued() {
+    AppBuildEventDispatcher dispatcher = createDispatcher(false);
+
+    dispatcher.dispatch(BuildEventType.STARTED, mockBuild("job#1"), true);
+
+    Assert.assertEquals(0, countNonEmptyQueues());
+  }
+
+  @Test
+  public void summaryModeShouldQueueOneSummaryPerBuild() {
+    when(this.nrjConfig.isBuildSummaryMode()).thenReturn(true);
+
+    AppBuildEventDispatcher dispatcher = createDispatcher(true);
+    Run<? extends Job<?, ?>, ? extends Run<?, ?>> build = mockBuild("job#7");
+
+    dispatcher.dispatch(BuildEventType.INITIALIZED, build, true);
+    dispatcher.dispatch(BuildEventType.STARTED, build, true);
+    dispatcher.dispatch(BuildEventType.COMPLETED, build, true);
+
+    Assert.assertEquals(0, countNonEmptyQueues());
+
+    dispatcher.dispatch(BuildEventType.FINALIZED, build, false);
+
+    List<BuildEventSnapshot> snapshots = runQueuedEvents();
+
+    Assert.assertEquals(1, snapshots.size());
+    Assert.assertEquals(BuildEventType.SUMMARY, snapshots.get(0).getEventType());
+    Assert.assertTrue(snapshots.get(0).isExpandTokens());
+    for (long timestamp : snapshots.get(0).getLifecycleTimestamps()) {
+      Assert.assertTrue(timestamp > 0);
+    }
+  }
+
+  @Test
+  public void finalizedBuildsShouldNotStayTrackedAfterSummaryModeIsDisabled() {
+    when(this.nrjConfig.isBuildSummaryMode()).thenReturn(true);
+
+    AppBuildEventDispatcher dispatcher = createDispatcher(true);
+    Run<? extends Job<?, ?>, ? extends Run<?, ?>> build = mockBuild("job#8");
+
+    dispatcher.dispatch(BuildEventType.STARTED, build, true);
+
+    Assert.assertEquals(1, this.summaryTracker.size());
+
+    when(this.nrjConfig.isBuildSummaryMode()).thenReturn(false);
+    dispatcher.dispatch(BuildEventType.FINALIZED, build, false);
+
+    Assert.assertEquals(0, this.summaryTracker.size());
+  }
+
+  @Test
+  public void latenciesShouldBeRecordedForBuildsThatAreNotReported() {
+    AppBuildEventDispatcher dispatcher = createDispatcher(false);
+    Run<? extends Job<?, ?>, ? extends Run<?, ?>> excluded = mockBuild("excluded#1");
+    Run<? extends Job<?, ?>, ? extends Run<?, ?>> disabled = mockBuild(
+        "disabled#1",
+        new EventConfigJobProperty(true, null)
+    );
+
+    when(excluded.getTimeInMillis()).thenReturn(1000L);
+    when(excluded.getStartTimeInMillis()).thenReturn(1500L);
+    when(disabled.getResult()).thenReturn(Result.FAILURE);
+    when(disabled.getDuration()).thenReturn(2000L);
+
+    dispatcher.dispatch(BuildEventType.STARTED, excluded, true);
+    dispatcher.dispatch(BuildEventType.FINALIZED, disabled, false);
+
+    Assert.assertEquals(0, countNonEmptyQueues());
+    verify(this.latencyAggregator).recordQueueTime("excluded", 500);
+    verify(this.latencyAggregator).recordDuration("disabled", "FAILURE", 2000);
+    verify(this.policy, never()).isReporting(
+        BuildEventType.FINALIZED,
+        disabled,
+        Result.FAILURE
+    );
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class BuildDeletionAccumulatorTest {
+
+  private final EventHelper eventHelper = mock(EventHelper.class);
+  private final BuildDeletionAccumulator accumulator =
+      new BuildDeletionAccumulator(this.eventHelper);
+
+  private static Job<?, ?> mockJob(String fullName) {
+    Job<?, ?> job = mock(Job.class);
+
+    when(job.getFullName()).thenReturn(fullName);
+    when(job.getFullDisplayName()).thenReturn(fullName);
+
+    return job;
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static Run<?, ?> mockBuild(Job<?, ?> job, int number) {
+    Run build = mock(Run.class);
+
+    when(build.getParent()).thenReturn(job);
+    when(build.getNumber()).thenReturn(number);
+
+    return build;
+  }
+
+  private List<Event> recordedEvents(int count) {
+    ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+
+    verify(this.eventHelper, times(count)).recordEvent(captor.capture());
+
+    return captor.getAllValues();
+  }
+
+  @Test
+  public void deletionsShouldBeCoalescedPerJob() {
+    Job<?, ?> job = mockJob("folder/job");
+    Job<?, ?> other = mockJob("other");
+
+    this.accumulator.record(mockBuild(job, 12));
+    this.accumulator.record(mockBuild(job, 3));
+    this.accumulator.record(mockBuild(job, 27));
+    this.accumulator.record(mockBuild(other, 5));
+    this.accumulator.recordEvents();
+
+    List<Event> recorded = recordedEvents(2);
+    Event deleted = "folder/job".equals(recorded.get(0).get("jobFullName"))
+        ? recorded.get(0)
+        : recorded.get(1);
+
+    Assert.assertEquals("deleted", deleted.get("buildEventType"));
+    Assert.assertEquals(3L, deleted.get("buildDeletedCount"));
+    Assert.assertEquals(3, deleted.get("buildIdMin"));
+    Assert.assertEquals(27, deleted.get("buildIdMax"));
+
+    this.accumulator.recordEvents();
+
+    verify(this.eventHelper, times(2)).recordEvent(any());
+  }
+
+  @Test
+  public void deletionsBeyondMaxJobsShouldBeDropped() {
+    for (int index = 0; index < BuildDeletionAccumulator.MAX_JOBS; index += 1) {
+      this.accumulator.record(mockBuild(mockJob("job" + index), 1));
+    }
+
+    Job<?, ?> extra = mockJob("extra");
+
+    this.accumulator.record(mockBuild(extra, 1));
+    this.accumulator.record(mockBuild(mockJob("job0"), 2));
+    this.accumulator.recordEvents();
+
+    for (Event event : recordedEvents(BuildDeletionAccumulator.MAX_JOBS)) {
+      Assert.assertNotEquals("extra", event.get("jobFullName"));
+      if ("job0".equals(event.get("jobFullName"))) {
+        Assert.assertEquals(2L, event.get("buildDeletedCount"));
+      }
+    }
+
+    this.accumulator.record(mockBuild(extra, 1));
+    this.accumulator.recordEvents();
+
+    int max = BuildDeletionAccumulator.MAX_JOBS;
+
+    Assert.assertEquals("extra", recordedEvents(max + 1).get(max).get("jobFullName"));
+  }
+
+  @Test
+  public void deletionsRecordedDuringHarvestShouldNotBeLost() throws Exception {
+    final int threadCount = 4;
+    final int deletionsPerThread = 20000;
+    final Run<?, ?> build = mockBuild(mockJob("folder/job"), 1);
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threadCount);
+
+    for (int index = 0; index < threadCount; index += 1) {
+      new Thread(() -> {
+        try {
+          start.await();
+          for (int count = 0; count < deletionsPerThread; count += 1) {
+            this.accumulator.record(build);
+          }
+        } catch (InterruptedException exc) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      }).start();
+    }
+
+    start.countDown();
+    while (done.getCount() > 0) {
+      this.accumulator.recordEvents();
+    }
+    this.accumulator.recordEvents();
+
+    ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+
+    verify(this.eventHelper, atLeastOnce()).recordEvent(captor.capture());
+
+    long total = 0;
+    for (Event event : captor.getAllValues()) {
+      total += (Long) event.get("buildDeletedCount");
+    }
+
+    Assert.assertEquals((long) threadCount * deletionsPerThread, total);
+  }
+}
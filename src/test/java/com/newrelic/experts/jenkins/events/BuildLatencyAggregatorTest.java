@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.newrelic.experts.client.model.Metric;
+import com.newrelic.experts.client.model.MetricBatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BuildLatencyAggregatorTest {
+
+  private static Metric find(List<Metric> metrics, String name, String jobName) {
+    for (Metric metric : metrics) {
+      if (
+          metric.getName().equals(name)
+          && metric.getAttributes().get("jobFullName").equals(jobName)
+      ) {
+        return metric;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testHarvestReportsPercentiles() {
+    AtomicLong now = new AtomicLong(0);
+    BuildLatencyAggregator aggregator = new BuildLatencyAggregator(now::get, 10);
+
+    for (int index = 1; index <= 100; index += 1) {
+      aggregator.recordDuration("team/app", "SUCCESS", index * 1000L);
+    }
+    aggregator.recordQueueTime("team/app", 250);
+    now.set(60000);
+
+    MetricBatch batch = aggregator.harvest(null);
+    List<Metric> metrics = batch.getMetrics();
+
+    Assert.assertEquals(60000, batch.getCommon().getIntervalMs());
+    Assert.assertEquals(8, metrics.size());
+
+    Metric summary = find(metrics, "jenkins.build.duration", "team/app");
+    @SuppressWarnings("unchecked")
+    Map<String, Object> value = (Map<String, Object>)summary.getValue();
+    Assert.assertEquals("SUCCESS", summary.getAttributes().get("buildResult"));
+    Assert.assertEquals(100L, value.get("count"));
+    Assert.assertEquals(5050000.0, value.get("sum"));
+    Assert.assertEquals(100000.0, value.get("max"));
+
+    double p95 = (Double)find(metrics, "jenkins.build.duration.p95", "team/app").getValue();
+    Assert.assertEquals(95000, p95, 95000 * 0.02);
+
+    Metric queueTime = find(metrics, "jenkins.build.queueTime.p50", "team/app");
+    Assert.assertEquals(250.0, queueTime.getValue());
+    Assert.assertNull(queueTime.getAttributes().get("buildResult"));
+
+    now.set(120000);
+    Assert.assertNull(aggregator.harvest(null));
+  }
+
+  @Test
+  public void testSeriesAreKeyedByResult() {
+    BuildLatencyAggregator aggregator = new BuildLatencyAggregator(() -> 0L, 10);
+
+    aggregator.recordDuration("app", "SUCCESS", 1000);
+    aggregator.recordDuration("app", "FAILURE", 2000);
+    aggregator.recordDuration("app", null, 3000);
+
+    List<Metric> metrics = aggregator.harvest(null).getMetrics();
+    int summaries = 0;
+
+    for (Metric metric : metrics) {
+      if (metric.getType().equals(Metric.TYPE_SUMMARY)) {
+        summaries += 1;
+      }
+    }
+    Assert.assertEquals(3, summaries);
+  }
+
+  @Test
+  public void testLeastRecentlyUpdatedSeriesIsEvicted() {
+    BuildLatencyAggregator aggregator = new BuildLatencyAggregator(() -> 0L, 2);
+
+    aggregator.recordDuration("a", "SUCCESS", 1000);
+    aggregator.recordDuration("b", "SUCCESS", 1000);
+    aggregator.recordDuration("a", "SUCCESS", 1000);
+    aggregator.recordDuration("c", "SUCCESS", 1000);
+
+    List<Metric> metrics = aggregator.harvest(null).getMetrics();
+
+    Assert.assertNotNull(find(metrics, "jenkins.build.duration", "a"));
+    Assert.assertNull(find(metrics, "jenkins.build.duration", "b"));
+    Assert.assertNotNull(find(metrics, "jenkins.build.duration", "c"));
+  }
+}
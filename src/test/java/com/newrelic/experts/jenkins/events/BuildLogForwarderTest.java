@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.client.model.LogBatch;
+import com.newrelic.experts.client.model.LogEntry;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BuildLogForwarderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<LogBatch> sent = new ArrayList<LogBatch>();
+  private String log = "";
+
+  private static BuildLogForwarder createForwarder() {
+    EventHelper eventHelper = mock(EventHelper.class);
+
+    when(eventHelper.getCommonAttributeValues())
+        .thenReturn(Collections.<String, Object>emptyMap());
+
+    return new BuildLogForwarder(eventHelper);
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private Run<?, ?> mockBuild(File rootDir, boolean running) throws IOException {
+    Run build = mock(Run.class);
+
+    when(build.getParent()).thenReturn(mock(Job.class));
+    when(build.getExternalizableId()).thenReturn("job#1");
+    when(build.getRootDir()).thenReturn(rootDir);
+    when(build.getCharset()).thenReturn(StandardCharsets.UTF_8);
+    when(build.isLogUpdated()).thenReturn(running);
+    when(build.getLogInputStream()).thenAnswer(
+        invocation -> new ByteArrayInputStream(this.log.getBytes(StandardCharsets.UTF_8))
+    );
+
+    return build;
+  }
+
+  private long forward(BuildLogForwarder forwarder, Run<?, ?> build) {
+    return forwarder.forward(
+        Collections.<Run<?, ?>>singletonList(build),
+        BuildLogForwarder.MAX_READ_BYTES,
+        this.sent::add
+    );
+  }
+
+  private List<String> sentMessages() {
+    List<String> messages = new ArrayList<String>();
+
+    for (LogBatch batch : this.sent) {
+      for (LogEntry entry : batch.getLogs()) {
+        messages.add(entry.getMessage());
+      }
+    }
+    this.sent.clear();
+    return messages;
+  }
+
+  @Test
+  public void cursorShouldBeRestoredByANewForwarder() throws IOException {
+    File rootDir = this.folder.newFolder();
+    Run<?, ?> build = mockBuild(rootDir, true);
+
+    this.log = "one\ntwo\n";
+    Assert.assertEquals(8, forward(createForwarder(), build));
+    Assert.assertEquals(2, sentMessages().size());
+    Assert.assertTrue(new File(rootDir, BuildLogForwarder.CURSOR_FILE_NAME).exists());
+
+    this.log += "three\n";
+    Assert.assertEquals(6, forward(createForwarder(), build));
+
+    LogEntry entry = this.sent.get(0).getLogs().get(0);
+
+    Assert.assertEquals("three", entry.getMessage());
+    Assert.assertEquals(3L, entry.getAttributes().get("buildLogLine"));
+  }
+
+  @Test
+  public void finishedLogShouldNotBeForwardedAgainWhileRunning() throws IOException {
+    File rootDir = this.folder.newFolder();
+    Run<?, ?> build = mockBuild(rootDir, false);
+    BuildLogForwarder forwarder = createForwarder();
+
+    this.log = "one\ntwo";
+    forward(forwarder, build);
+
+    Assert.assertEquals(2, sentMessages().size());
+    Assert.assertFalse(new File(rootDir, BuildLogForwarder.CURSOR_FILE_NAME).exists());
+
+    forward(forwarder, build);
+
+    Assert.assertTrue(this.sent.isEmpty());
+  }
+
+  @Test
+  public void deletedBuildShouldBeDropped() throws IOException {
+    File rootDir = new File(this.folder.getRoot(), "deleted");
+    BuildLogForwarder forwarder = createForwarder();
+
+    this.log = "one\n";
+    Assert.assertEquals(0, forward(forwarder, mockBuild(rootDir, true)));
+    Assert.assertTrue(this.sent.isEmpty());
+  }
+
+  @Test
+  public void buildShouldBeDroppedAfterRepeatedFailures() throws IOException {
+    File rootDir = this.folder.newFolder();
+    Run<?, ?> build = mockBuild(rootDir, true);
+    BuildLogForwarder forwarder = createForwarder();
+    int[] attempts = new int[1];
+
+    this.log = "one\n";
+    for (int index = 0; index < BuildLogForwarder.MAX_FAILURES + 2; index += 1) {
+      forwarder.forward(
+          Collections.<Run<?, ?>>singletonList(build),
+          BuildLogForwarder.MAX_READ_BYTES,
+          batch -> {
+            attempts[0] += 1;
+            throw new IOException("unavailable");
+          }
+      );
+    }
+
+    Assert.assertEquals(BuildLogForwarder.MAX_FAILURES, attempts[0]);
+  }
+}
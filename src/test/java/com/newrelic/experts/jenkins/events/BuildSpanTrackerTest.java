@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.newrelic.experts.client.model.Span;
+import com.newrelic.experts.client.model.SpanBatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BuildSpanTrackerTest {
+
+  private static final List<String> NONE = Collections.<String>emptyList();
+
+  private static Map<String, Span> byName(SpanBatch[] batches) {
+    Map<String, Span> spans = new HashMap<String, Span>();
+
+    for (SpanBatch batch : batches) {
+      for (Span span : batch.getSpans()) {
+        spans.put((String)span.getAttributes().get("name"), span);
+      }
+    }
+    return spans;
+  }
+
+  @Test
+  public void testTraceIsReleasedWhenRunFinishes() {
+    BuildSpanTracker tracker = new BuildSpanTracker();
+
+    tracker.startRun("job#1", "job #1", 1000);
+    tracker.startSpan("job#1", "3", NONE, "stage", "step", 1100);
+    tracker.startSpan("job#1", "5", Arrays.asList("4", "3"), "sh", "step", 1200);
+    tracker.endSpan("job#1", "5", "Shell Script", "step", 1700, null);
+    tracker.endSpan("job#1", "3", "Build", "stage", 1900, "FAILURE");
+
+    Assert.assertEquals(0, tracker.popBatches(null).length);
+
+    tracker.finishRun(
+        "job#1",
+        2000,
+        "FAILURE",
+        Collections.<String, Object>singletonMap("buildId", "1")
+    );
+
+    SpanBatch[] batches = tracker.popBatches(
+        Collections.<String, Object>singletonMap("service.name", "jenkins")
+    );
+    Map<String, Span> spans = byName(batches);
+
+    Assert.assertEquals(1, batches.length);
+    Assert.assertEquals("jenkins", batches[0].getCommon().getAttributes().get("service.name"));
+    Assert.assertEquals(3, spans.size());
+
+    Span root = spans.get("job #1");
+    Span stage = spans.get("Build");
+    Span step = spans.get("Shell Script");
+
+    Assert.assertEquals(32, root.getTraceId().length());
+    Assert.assertEquals(16, root.getId().length());
+    Assert.assertEquals(root.getTraceId(), step.getTraceId());
+    Assert.assertNull(root.getAttributes().get("parent.id"));
+    Assert.assertEquals("1", root.getAttributes().get("buildId"));
+    Assert.assertEquals(1000L, root.getAttributes().get("duration.ms"));
+    Assert.assertEquals(root.getId(), stage.getAttributes().get("parent.id"));
+    Assert.assertEquals("stage", stage.getAttributes().get("jenkins.span.kind"));
+    Assert.assertEquals("FAILURE", stage.getAttributes().get("jenkins.result"));
+    Assert.assertEquals(stage.getId(), step.getAttributes().get("parent.id"));
+    Assert.assertEquals(1200L, step.getTimestamp());
+    Assert.assertEquals(500L, step.getAttributes().get("duration.ms"));
+
+    Assert.assertEquals(0, tracker.popBatches(null).length);
+  }
+
+  @Test
+  public void testOpenSpansAreClosedWhenRunFinishes() {
+    BuildSpanTracker tracker = new BuildSpanTracker();
+
+    tracker.startRun("job#1", "job #1", 0);
+    tracker.startSpan("job#1", "3", NONE, "input", "step", 100);
+    tracker.finishRun("job#1", 400, "ABORTED", Collections.<String, Object>emptyMap());
+
+    Span step = byName(tracker.popBatches(null)).get("input");
+    Assert.assertEquals(300L, step.getAttributes().get("duration.ms"));
+  }
+
+  @Test
+  public void testUntrackedRunsAreIgnored() {
+    BuildSpanTracker tracker = new BuildSpanTracker();
+
+    tracker.startSpan("job#1", "3", NONE, "sh", "step", 100);
+    tracker.endSpan("job#1", "3", "sh", "step", 200, null);
+    tracker.finishRun("job#1", 400, "SUCCESS", Collections.<String, Object>emptyMap());
+
+    Assert.assertEquals(0, tracker.popBatches(null).length);
+  }
+
+  @Test
+  public void testSpansPerRunAreBounded() {
+    BuildSpanTracker tracker = new BuildSpanTracker();
+
+    tracker.startRun("job#1", "job #1", 0);
+    for (int index = 0; index < BuildSpanTracker.MAX_SPANS_PER_RUN + 10; index += 1) {
+      tracker.startSpan("job#1", "n" + index, NONE, "sh", "step", index);
+    }
+    tracker.finishRun("job#1", 1000000, "SUCCESS", Collections.<String, Object>emptyMap());
+
+    SpanBatch[] batches = tracker.popBatches(null);
+    int count = 0;
+    Span root = null;
+
+    for (SpanBatch batch : batches) {
+      Assert.assertTrue(batch.getSpans().size() <= BuildSpanTracker.MAX_BATCH_SIZE);
+      count += batch.getSpans().size();
+      for (Span span : batch.getSpans()) {
+        if ("run".equals(span.getAttributes().get("jenkins.span.kind"))) {
+          root = span;
+        }
+      }
+    }
+
+    Assert.assertEquals(BuildSpanTracker.MAX_SPANS_PER_RUN, count);
+    Assert.assertEquals(11L, root.getAttributes().get("jenkins.droppedSpanCount"));
+  }
+}
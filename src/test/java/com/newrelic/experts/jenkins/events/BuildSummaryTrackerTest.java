@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.jenkins.events.AppBuildEventProducer.BuildEventType;
+
+import hudson.model.Run;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BuildSummaryTrackerTest {
+
+  private static Run<?, ?> mockBuild(String id) {
+    Run<?, ?> build = mock(Run.class);
+
+    when(build.getExternalizableId()).thenReturn(id);
+
+    return build;
+  }
+
+  @Test
+  public void buildsShouldBeTrackedByExternalizableId() {
+    BuildSummaryTracker tracker = new BuildSummaryTracker();
+
+    tracker.record(BuildEventType.INITIALIZED, mockBuild("job#1"), 100);
+    tracker.record(BuildEventType.STARTED, mockBuild("job#1"), 200);
+    tracker.record(BuildEventType.COMPLETED, mockBuild("job#1"), 300);
+    tracker.record(BuildEventType.STARTED, mockBuild("job#2"), 250);
+
+    Assert.assertEquals(2, tracker.size());
+
+    long[] timestamps = tracker.remove(mockBuild("job#1"));
+
+    Assert.assertEquals(100, timestamps[BuildSummaryTracker.INITIALIZED]);
+    Assert.assertEquals(200, timestamps[BuildSummaryTracker.STARTED]);
+    Assert.assertEquals(300, timestamps[BuildSummaryTracker.COMPLETED]);
+    Assert.assertEquals(0, timestamps[BuildSummaryTracker.FINALIZED]);
+    Assert.assertEquals(1, tracker.size());
+  }
+
+  @Test
+  public void trackingShouldStopAtTheLimit() {
+    BuildSummaryTracker tracker = new BuildSummaryTracker();
+    Run<?, ?> build = mock(Run.class);
+    String[] ids = new String[BuildSummaryTracker.MAX_TRACKED_BUILDS - 1];
+
+    for (int index = 0; index < ids.length; index += 1) {
+      ids[index] = "job#" + (index + 1);
+    }
+    when(build.getExternalizableId()).thenReturn("job#0", ids);
+
+    for (int index = 0; index < BuildSummaryTracker.MAX_TRACKED_BUILDS; index += 1) {
+      tracker.record(BuildEventType.STARTED, build, 100);
+    }
+
+    Assert.assertEquals(BuildSummaryTracker.MAX_TRACKED_BUILDS, tracker.size());
+
+    Run<?, ?> untracked = mockBuild("job#untracked");
+
+    tracker.record(BuildEventType.STARTED, untracked, 100);
+
+    Assert.assertEquals(BuildSummaryTracker.MAX_TRACKED_BUILDS, tracker.size());
+    Assert.assertEquals(0, tracker.remove(untracked)[BuildSummaryTracker.STARTED]);
+
+    tracker.remove(mockBuild("job#0"));
+    tracker.record(BuildEventType.STARTED, untracked, 100);
+
+    Assert.assertEquals(100, tracker.remove(untracked)[BuildSummaryTracker.STARTED]);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.jenkins.events.CustomAttributeTemplates.Template;
+import com.newrelic.experts.jenkins.extensions.EventConfigJobProperty;
+import com.newrelic.experts.jenkins.extensions.KeyValuePair;
+
+import hudson.model.Job;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CustomAttributeTemplatesTest {
+
+  @Test
+  public void templatesShouldBeCompiledOncePerProperty() {
+    CustomAttributeTemplates templates = new CustomAttributeTemplates();
+    Job<?, ?> job = mock(Job.class);
+    EventConfigJobProperty prop = new EventConfigJobProperty(false, Arrays.asList(
+        new KeyValuePair("team", "platform"),
+        new KeyValuePair("branch", "${GIT_BRANCH}"),
+        new KeyValuePair("log", "${BUILD_LOG, maxLines=1}")
+    ));
+
+    when(job.getProperty(EventConfigJobProperty.class)).thenReturn(prop);
+
+    Template[] compiled = templates.getTemplates(job);
+
+    Assert.assertEquals(3, compiled.length);
+    Assert.assertTrue(compiled[0].isLiteral());
+    Assert.assertFalse(compiled[0].hasVariables());
+    Assert.assertFalse(compiled[1].isLiteral());
+    Assert.assertTrue(compiled[1].hasVariables());
+    Assert.assertFalse(compiled[2].isLiteral());
+    Assert.assertFalse(compiled[2].hasVariables());
+    Assert.assertSame(compiled, templates.getTemplates(job));
+
+    EventConfigJobProperty updated = new EventConfigJobProperty(false, Arrays.asList(
+        new KeyValuePair("team", "observability")
+    ));
+
+    when(job.getProperty(EventConfigJobProperty.class)).thenReturn(updated);
+
+    compiled = templates.getTemplates(job);
+
+    Assert.assertEquals(1, compiled.length);
+    Assert.assertEquals("observability", compiled[0].getValue());
+  }
+
+  @Test
+  public void jobsWithoutPropertyShouldHaveNoTemplates() {
+    CustomAttributeTemplates templates = new CustomAttributeTemplates();
+    Job<?, ?> job = mock(Job.class);
+
+    Assert.assertEquals(0, templates.getTemplates(job).length);
+  }
+
+  @Test
+  public void variableTemplatesShouldRenderOnlyReferencedVariables() throws Exception {
+    Map<String, String> variables = new HashMap<String, String>();
+    Map<String, Integer> lookups = new HashMap<String, Integer>();
+
+    variables.put("GIT_BRANCH", "main");
+    variables.put("BUILD_NUMBER", "42");
+    variables.put("UNUSED", "never");
+    variables.put("DOLLARS", "$HOME");
+
+    Template template = new Template("ref", "${GIT_BRANCH}-$BUILD_NUMBER.tar");
+
+    Assert.assertEquals("main-42.tar", template.render(name -> {
+      lookups.merge(name, 1, Integer::sum);
+      return variables.get(name);
+    }));
+    Assert.assertEquals(2, lookups.size());
+    Assert.assertFalse(lookups.containsKey("UNUSED"));
+
+    Assert.assertEquals("platform", new Template("team", "platform").render(name -> null));
+    Assert.assertNull(new Template("x", "${MISSING}").render(variables::get));
+    Assert.assertNull(new Template("x", "${DOLLARS}").render(variables::get));
+    Assert.assertNull(new Template("x", "$$GIT_BRANCH").render(variables::get));
+    Assert.assertNull(
+        new Template("x", "${GIT_BRANCH} ${BUILD_LOG, maxLines=1}").render(variables::get)
+    );
+  }
+}
@@ -5,6 +5,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.newrelic.experts.client.model.Event;
@@ -30,6 +32,10 @@ import java.util.TreeSet;
 
 @ExtendWith(MockitoExtension.class)
 public class EventHelperTest {
+
+  private EventHelper createEventHelper() {
+    return new EventHelper(new HostnameCache(Runnable::run), new LabelCache());
+  }
   
   private void configureSetLabelsMocks(
       Node mockNode,
@@ -119,7 +125,7 @@ public class EventHelperTest {
     configureSetLabelsMocks(node, labels);
     
     // Execute the test
-    EventHelper eventHelper = new EventHelper();
+    EventHelper eventHelper = createEventHelper();
     eventHelper.setLabels(event, "labels", node);
     
     // Verify the result
@@ -137,7 +143,7 @@ public class EventHelperTest {
       configureSetHostnameMocks(node, hostname);
       
       // Execute the test
-      EventHelper eventHelper = new EventHelper();
+      EventHelper eventHelper = createEventHelper();
       eventHelper.setHostname(event, "hostname", node);
       
       // Verify the result
@@ -163,7 +169,7 @@ public class EventHelperTest {
       configureSetCommonAttributesMocks(mockedJenkins, version, labels, hostname);
       
       // Execute the test
-      EventHelper eventHelper = new EventHelper();
+      EventHelper eventHelper = createEventHelper();
       eventHelper.setCommonAttributes(event);
       
       // Verify the result
@@ -174,6 +180,41 @@ public class EventHelperTest {
     }
   }
 
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testSetCommonAttributesReusesSnapshot() {
+    String[] labels = new String[] {
+        "newrelic",
+        "jenkins",
+        "plugin"
+    };
+    String hostname = "www.newrelic.com";
+    String version = "1.289";
+
+    try (MockedStatic<Jenkins> mockedJenkins = mockStatic(Jenkins.class)) {
+      configureSetCommonAttributesMocks(mockedJenkins, version, labels, hostname);
+      
+      // Execute the test
+      EventHelper eventHelper = createEventHelper();
+      Event first = new Event("TestEvent");
+      Event second = new Event("TestEvent");
+      eventHelper.setCommonAttributes(first);
+      eventHelper.setCommonAttributes(second);
+      
+      // Verify the result
+      verifyCommonAttributes(first, version, labels, hostname);
+      verifyCommonAttributes(second, version, labels, hostname);
+      verify(Jenkins.getInstance(), times(1)).getLabelCloud();
+
+      when(Jenkins.getInstance().getLabelString()).thenReturn("docker");
+      eventHelper.setCommonAttributes(new Event("TestEvent"));
+      verify(Jenkins.getInstance(), times(2)).getLabelCloud();
+    } catch (IOException|InterruptedException t) {
+      t.printStackTrace();
+      fail("Mock setup failed");
+    }
+  }
+
   @Test
   public void testRecordEvent() {
     Event event = new Event("TestEvent");
@@ -189,7 +230,7 @@ public class EventHelperTest {
       configureSetCommonAttributesMocks(mockedJenkins, version, labels, hostname);
       
       // Execute the test
-      EventHelper eventHelper = new EventHelper();
+      EventHelper eventHelper = createEventHelper();
       eventHelper.recordEvent(event);
       
       // Verify the result
@@ -216,7 +257,7 @@ public class EventHelperTest {
   
     try (MockedStatic<Jenkins> mockedJenkins = mockStatic(Jenkins.class)) {
       // Execute the test
-      EventHelper eventHelper = new EventHelper();
+      EventHelper eventHelper = createEventHelper();
 
       for (int index = 0; index < 5; index += 1) {
         Event event = new Event("TestEvent" + index);
@@ -262,4 +303,50 @@ public class EventHelperTest {
     }
   }
 
+  @Test
+  public void testRecordEventEnforcesLimits() {
+    Event event = new Event("TestEvent");
+    String[] labels = new String[] { "newrelic" };
+    String hostname = "www.newrelic.com";
+    String version = "1.289";
+    char[] longName = new char[EventHelper.MAX_ATTRIBUTE_NAME_LENGTH + 1];
+    char[] longValue = new char[EventHelper.MAX_ATTRIBUTE_VALUE_LENGTH + 10];
+
+    Arrays.fill(longName, 'n');
+    Arrays.fill(longValue, 'v');
+    event.put("buildMessage", new String(longValue));
+    event.put(new String(longName), "value");
+    for (int index = 0; index < EventHelper.MAX_ATTRIBUTES; index += 1) {
+      event.put("attr" + index, index);
+    }
+
+    try (MockedStatic<Jenkins> mockedJenkins = mockStatic(Jenkins.class)) {
+      configureSetCommonAttributesMocks(mockedJenkins, version, labels, hostname);
+
+      // Execute the test
+      EventHelper eventHelper = createEventHelper();
+      eventHelper.recordEvent(event);
+
+      // Verify the result
+      assertEquals(1, eventHelper.getTruncatedValueCount());
+      // One long name plus 257 - (255 - 4 common attributes) trailing ones
+      assertEquals(7, eventHelper.getDroppedAttributeCount());
+
+      Event[] events = eventHelper.popEvents();
+
+      assertEquals(1, events.length);
+      assertEquals(EventHelper.MAX_ATTRIBUTES, events[0].size());
+      assertEquals(
+          EventHelper.MAX_ATTRIBUTE_VALUE_LENGTH,
+          ((String)events[0].get("buildMessage")).length()
+      );
+      verifyCommonAttributes(events[0], version, labels, hostname);
+      assertEquals(0, eventHelper.getTruncatedValueCount());
+      assertEquals(0, eventHelper.getDroppedAttributeCount());
+    } catch (IOException|InterruptedException t) {
+      t.printStackTrace();
+      fail("Mock setup failed");
+    }
+  }
+
 }
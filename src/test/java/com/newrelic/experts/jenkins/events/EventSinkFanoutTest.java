@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.newrelic.experts.client.model.Event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class EventSinkFanoutTest {
+
+  private static Event[] createEvents(int count) {
+    Event[] events = new Event[count];
+
+    for (int index = 0; index < count; index += 1) {
+      events[index] = new Event("TestEvent");
+      events[index].put("index", index);
+    }
+
+    return events;
+  }
+
+  /**
+   * A sink which records the batches it receives and can be blocked.
+   */
+  private static class TestSink extends EventSink {
+
+    private final String name;
+    private final int maxQueuedEvents;
+    private final int maxBatchSize;
+    private final CountDownLatch release;
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final BlockingQueue<Event[]> batches = new LinkedBlockingQueue<Event[]>();
+
+    TestSink(String name, int maxQueuedEvents, int maxBatchSize, CountDownLatch release) {
+      this.name = name;
+      this.maxQueuedEvents = maxQueuedEvents;
+      this.maxBatchSize = maxBatchSize;
+      this.release = release;
+    }
+
+    @Override
+    public String getName() {
+      return this.name;
+    }
+
+    @Override
+    public int getMaxQueuedEvents() {
+      return this.maxQueuedEvents;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+      return this.maxBatchSize;
+    }
+
+    @Override
+    public void send(Event[] events) {
+      this.sending.countDown();
+      try {
+        this.release.await();
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+      }
+      this.batches.add(events);
+    }
+
+    Event[] nextBatch() throws InterruptedException {
+      return this.batches.poll(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void publishShouldShareFrozenEventsWithEverySink() throws Exception {
+    CountDownLatch released = new CountDownLatch(0);
+    TestSink first = new TestSink("first", 100, 100, released);
+    TestSink second = new TestSink("second", 100, 100, released);
+    List<EventSink> sinks = Arrays.asList(first, second);
+    EventSinkFanout fanout = new EventSinkFanout(() -> sinks);
+    Event[] events = createEvents(3);
+
+    fanout.publish(events);
+
+    Event[] firstBatch = first.nextBatch();
+    Event[] secondBatch = second.nextBatch();
+
+    Assert.assertSame(events[0], firstBatch[0]);
+    Assert.assertSame(events[0], secondBatch[0]);
+    Assert.assertTrue(events[0].isFrozen());
+    try {
+      events[0].put("index", 10);
+      Assert.fail("Frozen events should not be modifiable");
+    } catch (UnsupportedOperationException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void publishShouldSplitBatchesWithoutMergingThem() throws Exception {
+    TestSink sink = new TestSink("batching", 100, 2, new CountDownLatch(0));
+    EventSinkFanout fanout = new EventSinkFanout(() -> Arrays.asList(sink));
+
+    fanout.publish(createEvents(3));
+    fanout.publish(createEvents(1));
+
+    Assert.assertEquals(2, sink.nextBatch().length);
+    Assert.assertEquals(1, sink.nextBatch().length);
+    Assert.assertEquals(1, sink.nextBatch().length);
+  }
+
+  @Test
+  public void slowSinkShouldNotDelayOtherSinks() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    TestSink slow = new TestSink("slow", 4, 100, release);
+    TestSink fast = new TestSink("fast", 100, 100, new CountDownLatch(0));
+    EventSinkFanout fanout = new EventSinkFanout(() -> Arrays.asList(slow, fast));
+
+    fanout.publish(createEvents(2));
+    Assert.assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+    fanout.publish(createEvents(2));
+    fanout.publish(createEvents(2));
+    fanout.publish(createEvents(2));
+
+    for (int index = 0; index < 4; index += 1) {
+      Assert.assertNotNull(fast.nextBatch());
+    }
+
+    release.countDown();
+
+    // The first batch was taken by the worker, the next two were queued and
+    // the last one did not fit in the queue.
+    Assert.assertNotNull(slow.nextBatch());
+    Assert.assertNotNull(slow.nextBatch());
+    Assert.assertNotNull(slow.nextBatch());
+    Assert.assertNull(slow.batches.poll(200, TimeUnit.MILLISECONDS));
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.client.model.Metric;
+import com.newrelic.experts.client.model.MetricBatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GaugeAggregatorTest {
+
+  private static Metric find(List<Metric> metrics, String name) {
+    for (Metric metric : metrics) {
+      if (metric.getName().equals(name)) {
+        return metric;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testHarvestAggregatesWindow() {
+    AtomicLong now = new AtomicLong(1000);
+    GaugeAggregator aggregator = new GaugeAggregator(now::get);
+
+    aggregator.record("jenkins.system.executorsInUse", 4);
+    aggregator.record("jenkins.system.executorsInUse", 2);
+    aggregator.record("jenkins.system.executorsInUse", 6);
+    now.set(61000);
+
+    MetricBatch batch = aggregator.harvest(
+        Collections.<String, Object>singletonMap("provider", "Jenkins")
+    );
+
+    Assert.assertEquals(1000, batch.getCommon().getTimestamp());
+    Assert.assertEquals(60000, batch.getCommon().getIntervalMs());
+    Assert.assertEquals("Jenkins", batch.getCommon().getAttributes().get("provider"));
+    Assert.assertEquals(2, batch.getMetrics().size());
+
+    Metric gauge = find(batch.getMetrics(), "jenkins.system.executorsInUse");
+    Assert.assertEquals(Metric.TYPE_GAUGE, gauge.getType());
+    Assert.assertEquals(6.0, gauge.getValue());
+
+    Metric summary = find(batch.getMetrics(), "jenkins.system.executorsInUse.summary");
+    @SuppressWarnings("unchecked")
+    Map<String, Object> value = (Map<String, Object>)summary.getValue();
+    Assert.assertEquals(Metric.TYPE_SUMMARY, summary.getType());
+    Assert.assertEquals(3L, value.get("count"));
+    Assert.assertEquals(12.0, value.get("sum"));
+    Assert.assertEquals(2.0, value.get("min"));
+    Assert.assertEquals(6.0, value.get("max"));
+  }
+
+  @Test
+  public void testHarvestStartsNewWindow() {
+    AtomicLong now = new AtomicLong(1000);
+    GaugeAggregator aggregator = new GaugeAggregator(now::get);
+
+    aggregator.record("a", 10);
+    aggregator.record("b", 1);
+    now.set(2000);
+    aggregator.harvest(null);
+
+    aggregator.record("a", -3);
+    now.set(5000);
+
+    MetricBatch batch = aggregator.harvest(null);
+    Assert.assertEquals(2000, batch.getCommon().getTimestamp());
+    Assert.assertEquals(3000, batch.getCommon().getIntervalMs());
+    Assert.assertEquals(2, batch.getMetrics().size());
+    Assert.assertNull(find(batch.getMetrics(), "b"));
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> value =
+        (Map<String, Object>)find(batch.getMetrics(), "a.summary").getValue();
+    Assert.assertEquals(1L, value.get("count"));
+    Assert.assertEquals(-3.0, value.get("min"));
+    Assert.assertEquals(-3.0, value.get("max"));
+
+    now.set(6000);
+    Assert.assertNull(aggregator.harvest(null));
+  }
+
+  @Test
+  public void testRecordEvent() throws Exception {
+    GaugeAggregator aggregator = new GaugeAggregator(() -> 0L);
+    Event event = new Event("JenkinsSystemEvent");
+
+    event.put("inQuietDownMode", true);
+    event.put("queueSize", 5);
+    event.put("name", "ignored");
+    aggregator.record("jenkins.system.", event);
+
+    MetricBatch batch = aggregator.harvest(null);
+    List<Metric> metrics = batch.getMetrics();
+    Assert.assertEquals(4, metrics.size());
+    Assert.assertEquals(1.0, find(metrics, "jenkins.system.inQuietDownMode").getValue());
+    Assert.assertEquals(5.0, find(metrics, "jenkins.system.queueSize").getValue());
+
+    String json = new ObjectMapper().writeValueAsString(batch);
+    Assert.assertTrue(json, json.contains("\"interval.ms\":0"));
+    Assert.assertTrue(json, json.contains(
+        "{\"name\":\"jenkins.system.queueSize\",\"type\":\"gauge\",\"value\":5.0}"
+    ));
+    Assert.assertFalse(json, json.contains("attributes"));
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.jenkins.extensions.NewRelicGlobalConfiguration;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+public class GcPauseEventProducerTest {
+
+  private final EventHelper eventHelper = mock(EventHelper.class);
+
+  private GcPauseEventProducer createProducer(int threshold) {
+    NewRelicGlobalConfiguration nrjConfig = mock(NewRelicGlobalConfiguration.class);
+
+    when(nrjConfig.getGcPauseThreshold()).thenReturn(threshold);
+
+    return new GcPauseEventProducer(this.eventHelper, nrjConfig);
+  }
+
+  private static void recordPause(GcPauseEventProducer producer, String gcName, long duration) {
+    producer.recordPause(
+        gcName,
+        "end of major GC",
+        "G1 Evacuation Pause",
+        1000,
+        duration,
+        300,
+        100
+    );
+  }
+
+  @Test
+  public void pausesBelowThresholdShouldBeIgnored() {
+    GcPauseEventProducer producer = createProducer(500);
+
+    recordPause(producer, "G1 Young Generation", 499);
+    recordPause(producer, "G1 Old Generation", 500);
+    recordPause(producer, "G1 Concurrent GC", 700);
+    producer.recordEvents();
+
+    ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+
+    verify(this.eventHelper, times(2)).recordEvent(captor.capture());
+
+    List<Event> events = captor.getAllValues();
+    Event pause = events.get(0);
+
+    Assert.assertEquals("JenkinsGcPauseEvent", pause.get(Event.PROPERTY_NAME_EVENT_TYPE));
+    Assert.assertEquals("G1 Old Generation", pause.get("gcName"));
+    Assert.assertEquals(500L, pause.get("gcDuration"));
+    Assert.assertEquals(1000L, pause.get("timestamp"));
+    Assert.assertEquals(300L, pause.get("gcHeapUsedBefore"));
+    Assert.assertEquals(100L, pause.get("gcHeapUsedAfter"));
+    Assert.assertEquals(false, pause.get("gcConcurrent"));
+    Assert.assertEquals(true, events.get(1).get("gcConcurrent"));
+  }
+
+  @Test
+  public void pausesBeyondBufferShouldBeDroppedUntilNextHarvest() {
+    GcPauseEventProducer producer = createProducer(0);
+    int max = GcPauseEventProducer.MAX_BUFFERED_EVENTS;
+
+    for (int index = 0; index < max + 10; index += 1) {
+      recordPause(producer, "G1 Young Generation", 20);
+    }
+    producer.recordEvents();
+
+    verify(this.eventHelper, times(max)).recordEvent(any());
+
+    recordPause(producer, "G1 Young Generation", 20);
+    producer.recordEvents();
+
+    verify(this.eventHelper, times(max + 1)).recordEvent(any());
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Computer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HostnameCacheTest {
+
+  @Test
+  public void getHostnameShouldNotWaitForResolution() throws Exception {
+    List<Runnable> tasks = new ArrayList<Runnable>();
+    HostnameCache cache = new HostnameCache(tasks::add);
+    Computer computer = mock(Computer.class);
+
+    when(computer.getHostName()).thenReturn("agent.newrelic.com");
+
+    Assert.assertNull(cache.getHostname(computer));
+    Assert.assertNull(cache.getHostname(computer));
+    Assert.assertEquals(1, tasks.size());
+
+    tasks.get(0).run();
+
+    Assert.assertEquals("agent.newrelic.com", cache.getHostname(computer));
+    Assert.assertEquals("agent.newrelic.com", cache.getHostname(computer));
+    verify(computer, times(1)).getHostName();
+  }
+
+  @Test
+  public void invalidateShouldResolveAgain() throws Exception {
+    HostnameCache cache = new HostnameCache(Runnable::run);
+    Computer computer = mock(Computer.class);
+
+    when(computer.getHostName()).thenReturn("old.newrelic.com", "new.newrelic.com");
+
+    Assert.assertEquals("old.newrelic.com", cache.getHostname(computer));
+
+    cache.invalidate(computer);
+
+    Assert.assertEquals("new.newrelic.com", cache.getHostname(computer));
+  }
+
+  @Test
+  public void lookupStartedBeforeInvalidateShouldBeDropped() throws Exception {
+    List<Runnable> tasks = new ArrayList<Runnable>();
+    HostnameCache cache = new HostnameCache(tasks::add);
+    Computer computer = mock(Computer.class);
+
+    when(computer.getHostName()).thenReturn("old.newrelic.com", "new.newrelic.com");
+
+    Assert.assertNull(cache.getHostname(computer));
+
+    cache.invalidate(computer);
+    cache.resolve(computer);
+
+    Assert.assertEquals(2, tasks.size());
+
+    tasks.get(0).run();
+
+    Assert.assertNull(cache.getHostname(computer));
+    Assert.assertEquals(2, tasks.size());
+
+    tasks.get(1).run();
+
+    Assert.assertEquals("new.newrelic.com", cache.getHostname(computer));
+  }
+
+  @Test
+  public void unknownHostnameShouldBeCachedUntilInvalidated() throws Exception {
+    HostnameCache cache = new HostnameCache(Runnable::run);
+    Computer computer = mock(Computer.class);
+
+    when(computer.getHostName()).thenReturn(null);
+
+    Assert.assertNull(cache.getHostname(computer));
+    Assert.assertNull(cache.getHostname(computer));
+    verify(computer, times(1)).getHostName();
+
+    cache.invalidate(computer);
+
+    Assert.assertNull(cache.getHostname(computer));
+    verify(computer, times(2)).getHostName();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.client.model.Event;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JenkinsJvmEventProducerTest {
+
+  private final EventHelper eventHelper = mock(EventHelper.class);
+  private final MemoryMXBean memoryBean = mock(MemoryMXBean.class);
+  private final ThreadMXBean threadBean = mock(ThreadMXBean.class);
+  private final RuntimeMXBean runtimeBean = mock(RuntimeMXBean.class);
+  private final OperatingSystemMXBean osBean = mock(OperatingSystemMXBean.class);
+  private final GarbageCollectorMXBean collector = mock(GarbageCollectorMXBean.class);
+
+  private JenkinsJvmEventProducer createProducer() {
+    MemoryUsage usage = new MemoryUsage(0, 10, 20, 30);
+
+    when(this.memoryBean.getHeapMemoryUsage()).thenReturn(usage);
+    when(this.memoryBean.getNonHeapMemoryUsage()).thenReturn(usage);
+    when(this.osBean.getAvailableProcessors()).thenReturn(4);
+    when(this.collector.getName()).thenReturn("G1 Young Generation");
+
+    return new JenkinsJvmEventProducer(
+        this.eventHelper,
+        this.memoryBean,
+        this.threadBean,
+        this.runtimeBean,
+        this.osBean,
+        Collections.<MemoryPoolMXBean>emptyList(),
+        Arrays.asList(this.collector)
+    );
+  }
+
+  private List<Event> recordedEvents(int count) {
+    ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+
+    verify(this.eventHelper, times(count)).recordEvent(captor.capture());
+
+    return captor.getAllValues();
+  }
+
+  @Test
+  public void toAttributeNameShouldCamelCaseMxBeanNames() {
+    Assert.assertEquals("G1OldGen", JenkinsJvmEventProducer.toAttributeName("G1 Old Gen"));
+    Assert.assertEquals("PSMarkSweep", JenkinsJvmEventProducer.toAttributeName("PS MarkSweep"));
+    Assert.assertEquals(
+        "CodeHeapNonNmethods",
+        JenkinsJvmEventProducer.toAttributeName("CodeHeap 'non-nmethods'")
+    );
+  }
+
+  @Test
+  public void collectionsShouldBeReportedSinceThePreviousSample() {
+    when(this.collector.getCollectionCount()).thenReturn(10L, 13L, 13L);
+    when(this.collector.getCollectionTime()).thenReturn(100L, 160L, 160L);
+
+    JenkinsJvmEventProducer producer = createProducer();
+
+    producer.recordEvent();
+    producer.recordEvent();
+
+    List<Event> events = recordedEvents(2);
+
+    Assert.assertEquals(3L, events.get(0).get("jvmGcG1YoungGenerationCount"));
+    Assert.assertEquals(60L, events.get(0).get("jvmGcG1YoungGenerationTime"));
+    Assert.assertEquals(3L, events.get(0).get("jvmGcCount"));
+    Assert.assertEquals(60L, events.get(0).get("jvmGcTime"));
+    Assert.assertEquals(0L, events.get(1).get("jvmGcCount"));
+    Assert.assertEquals(0L, events.get(1).get("jvmGcTime"));
+  }
+
+  @Test
+  public void deadlocksShouldOnlyBeSearchedEveryInterval() {
+    long interval = JenkinsJvmEventProducer.DEADLOCK_CHECK_INTERVAL;
+
+    when(this.runtimeBean.getUptime()).thenReturn(
+        1000L,
+        2000L,
+        17000L,
+        2000L + interval
+    );
+    when(this.threadBean.findDeadlockedThreads()).thenReturn(new long[] { 7, 8 }, (long[])null);
+
+    JenkinsJvmEventProducer producer = createProducer();
+
+    producer.recordEvent();
+    producer.recordEvent();
+    producer.recordEvent();
+
+    List<Event> events = recordedEvents(3);
+
+    verify(this.threadBean, times(2)).findDeadlockedThreads();
+    Assert.assertEquals(2, events.get(0).get("jvmDeadlockedThreadCount"));
+    Assert.assertEquals(2, events.get(1).get("jvmDeadlockedThreadCount"));
+    Assert.assertEquals(0, events.get(2).get("jvmDeadlockedThreadCount"));
+  }
+}
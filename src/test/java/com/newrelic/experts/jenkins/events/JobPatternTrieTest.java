@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JobPatternTrieTest {
+
+  private JobPatternTrie createTrie(String... patterns) {
+    JobPatternTrie trie = new JobPatternTrie();
+    for (int index = 0; index < patterns.length; index += 1) {
+      trie.add(patterns[index], index);
+    }
+    trie.compile();
+    return trie;
+  }
+
+  @Test
+  public void literalPatternsShouldMatchExactly() {
+    JobPatternTrie trie = createTrie("team-a/build", "team-b/build");
+
+    Assert.assertArrayEquals(new int[] { 0 }, trie.match("team-a/build"));
+    Assert.assertArrayEquals(new int[] { 1 }, trie.match("team-b/build"));
+    Assert.assertArrayEquals(new int[0], trie.match("team-a/deploy"));
+    Assert.assertArrayEquals(new int[0], trie.match("team-a/build/extra"));
+  }
+
+  @Test
+  public void wildcardsShouldMatchWithinASegment() {
+    JobPatternTrie trie = createTrie("*-nightly", "team-?/deploy*");
+
+    Assert.assertArrayEquals(new int[] { 0 }, trie.match("docs-nightly"));
+    Assert.assertArrayEquals(new int[0], trie.match("team-a/docs-nightly"));
+    Assert.assertArrayEquals(new int[] { 1 }, trie.match("team-a/deploy-prod"));
+    Assert.assertArrayEquals(new int[0], trie.match("team-ab/deploy-prod"));
+  }
+
+  @Test
+  public void globstarShouldMatchAnyNumberOfSegments() {
+    JobPatternTrie trie = createTrie("team-a/**", "**/release", "");
+
+    Assert.assertArrayEquals(new int[] { 0, 2 }, trie.match("team-a/build"));
+    Assert.assertArrayEquals(new int[] { 0, 1, 2 }, trie.match("team-a/sub/release"));
+    Assert.assertArrayEquals(new int[] { 1, 2 }, trie.match("release"));
+    Assert.assertArrayEquals(new int[] { 2 }, trie.match("team-b/build"));
+  }
+
+  @Test
+  public void sampleShouldBeDeterministicAndSpread() {
+    int sampled = 0;
+
+    for (int number = 1; number <= 10000; number += 1) {
+      int bucket = EventPolicy.sample("team-a/build", number);
+      Assert.assertEquals(bucket, EventPolicy.sample("team-a/build", number));
+      Assert.assertTrue(bucket >= 0 && bucket < 100);
+      if (bucket < 10) {
+        sampled += 1;
+      }
+    }
+
+    Assert.assertTrue(sampled > 800 && sampled < 1200);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void bucketsShouldCoverEveryValueContiguously() {
+    long previousHigh = -1;
+    for (int index = 0; index < 2000; index += 1) {
+      long high = LatencyHistogram.highestEquivalentValue(index);
+      Assert.assertTrue(high > previousHigh);
+      Assert.assertEquals(index, LatencyHistogram.bucketIndex(previousHigh + 1));
+      Assert.assertEquals(index, LatencyHistogram.bucketIndex(high));
+      previousHigh = high;
+    }
+  }
+
+  @Test
+  public void percentilesShouldBeWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (long value = 1; value <= 10000; value += 1) {
+      histogram.recordValue(value);
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+    Assert.assertEquals(10000, snapshot.getCount());
+    Assert.assertEquals(10000, snapshot.getMax());
+    Assert.assertEquals(1, snapshot.getMin());
+    Assert.assertEquals(5000, snapshot.getValueAtPercentile(50), 5000 * 0.02);
+    Assert.assertEquals(9000, snapshot.getValueAtPercentile(90), 9000 * 0.02);
+    Assert.assertEquals(9900, snapshot.getValueAtPercentile(99), 9900 * 0.02);
+    Assert.assertEquals(10000, snapshot.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void snapshotShouldResetHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    histogram.recordValue(42);
+    histogram.recordValue(-5);
+    Assert.assertEquals(2, histogram.snapshotAndReset().getCount());
+
+    LatencyHistogram.Snapshot empty = histogram.snapshotAndReset();
+    Assert.assertEquals(0, empty.getCount());
+    Assert.assertEquals(0, empty.getMax());
+    Assert.assertEquals(0, empty.getValueAtPercentile(99));
+  }
+
+  @Test
+  public void valuesAboveMaximumShouldBeClamped() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    histogram.recordValue(Long.MAX_VALUE);
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+    Assert.assertEquals(
+        LatencyHistogram.MAX_TRACKABLE_VALUE,
+        snapshot.getValueAtPercentile(50)
+    );
+  }
+}
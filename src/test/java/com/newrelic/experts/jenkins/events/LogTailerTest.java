@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import hudson.console.ConsoleNote;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class LogTailerTest {
+
+  private static LogTailer.Chunk read(String log, long offset, int maxBytes, boolean complete)
+      throws IOException {
+    return read(log, offset, maxBytes, maxBytes, complete);
+  }
+
+  private static LogTailer.Chunk read(
+      String log,
+      long offset,
+      int maxBytes,
+      int maxLineBytes,
+      boolean complete
+  ) throws IOException {
+    return LogTailer.read(
+        new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)),
+        StandardCharsets.UTF_8,
+        offset,
+        maxBytes,
+        maxLineBytes,
+        complete
+    );
+  }
+
+  @Test
+  public void readShouldKeepPartialLineUntilComplete() throws IOException {
+    String log = "one\r\ntwo\nthr";
+    LogTailer.Chunk chunk = read(log, 0, 1024, false);
+
+    Assert.assertEquals(Arrays.asList("one", "two"), chunk.lines);
+    Assert.assertEquals(9, chunk.nextOffset);
+
+    chunk = read(log, chunk.nextOffset, 1024, false);
+    Assert.assertTrue(chunk.lines.isEmpty());
+    Assert.assertEquals(9, chunk.nextOffset);
+
+    chunk = read(log, chunk.nextOffset, 1024, true);
+    Assert.assertEquals(Arrays.asList("thr"), chunk.lines);
+    Assert.assertEquals(log.length(), chunk.nextOffset);
+  }
+
+  @Test
+  public void readShouldStopAtMaxBytes() throws IOException {
+    String log = "aaaa\nbbbb\ncccc\n";
+    LogTailer.Chunk chunk = read(log, 0, 12, true);
+
+    Assert.assertEquals(Arrays.asList("aaaa", "bbbb"), chunk.lines);
+    Assert.assertEquals(10, chunk.nextOffset);
+
+    chunk = read(log, chunk.nextOffset, 12, true);
+    Assert.assertEquals(Arrays.asList("cccc"), chunk.lines);
+    Assert.assertEquals(log.length(), chunk.nextOffset);
+  }
+
+  @Test
+  public void readShouldSplitLinesLongerThanMaxBytes() throws IOException {
+    String log = "abcdefghij\n";
+    LogTailer.Chunk chunk = read(log, 0, 4, false);
+
+    Assert.assertEquals(Arrays.asList("abcd"), chunk.lines);
+    Assert.assertEquals(4, chunk.nextOffset);
+  }
+
+  @Test
+  public void readShouldNotSplitLinesShorterThanMaxLineBytes() throws IOException {
+    LogTailer.Chunk chunk = read("abcdefghij\n", 0, 4, 8, false);
+
+    Assert.assertTrue(chunk.lines.isEmpty());
+    Assert.assertEquals(0, chunk.nextOffset);
+    Assert.assertFalse(chunk.end);
+  }
+
+  @Test
+  public void readShouldNotSplitCharacters() throws IOException {
+    LogTailer.Chunk chunk = read("ab\u00e9cd\n", 0, 3, false);
+
+    Assert.assertEquals(Arrays.asList("ab"), chunk.lines);
+    Assert.assertEquals(2, chunk.nextOffset);
+
+    chunk = read("ab\u00e9cd\n", chunk.nextOffset, 3, false);
+
+    Assert.assertEquals(Arrays.asList("\u00e9c"), chunk.lines);
+    Assert.assertEquals(5, chunk.nextOffset);
+  }
+
+  @Test
+  public void readShouldNotSplitConsoleNotes() throws IOException {
+    String log = "ab" + ConsoleNote.PREAMBLE_STR + "note" + ConsoleNote.POSTAMBLE_STR + "cd\n";
+    LogTailer.Chunk chunk = read(log, 0, 2 + ConsoleNote.PREAMBLE_STR.length() + 2, false);
+
+    Assert.assertEquals(Arrays.asList("ab"), chunk.lines);
+    Assert.assertEquals(2, chunk.nextOffset);
+  }
+
+  @Test
+  public void readShouldReportTheEndOfTheLog() throws IOException {
+    Assert.assertTrue(read("one\n", 0, 1024, false).end);
+    Assert.assertFalse(read("one\ntw", 0, 1024, false).end);
+    Assert.assertTrue(read("one\ntw", 0, 1024, true).end);
+    Assert.assertFalse(read("one\ntwo\n", 0, 6, true).end);
+  }
+
+  @Test
+  public void readShouldSplitLongLines() throws IOException {
+    char[] chars = new char[LogTailer.MAX_LINE_LENGTH + 10];
+    Arrays.fill(chars, 'x');
+    LogTailer.Chunk chunk = read(new String(chars) + "\n", 0, 8192, false);
+
+    Assert.assertEquals(2, chunk.lines.size());
+    Assert.assertEquals(LogTailer.MAX_LINE_LENGTH, chunk.lines.get(0).length());
+    Assert.assertEquals(10, chunk.lines.get(1).length());
+  }
+
+  @Test
+  public void readShouldReturnNothingPastEnd() throws IOException {
+    LogTailer.Chunk chunk = read("one\n", 10, 1024, true);
+
+    Assert.assertTrue(chunk.lines.isEmpty());
+    Assert.assertEquals(10, chunk.nextOffset);
+  }
+}
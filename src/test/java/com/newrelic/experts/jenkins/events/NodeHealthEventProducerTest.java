@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.client.model.Event;
+
+import hudson.model.Computer;
+import hudson.node_monitors.DiskSpaceMonitorDescriptor.DiskSpace;
+import hudson.node_monitors.NodeMonitor;
+import hudson.node_monitors.TemporarySpaceMonitor;
+import hudson.util.ClockDifference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class NodeHealthEventProducerTest {
+
+  private final EventHelper eventHelper = mock(EventHelper.class);
+
+  private static Computer mockComputer(String name, boolean online) {
+    Computer computer = mock(Computer.class);
+
+    when(computer.getDisplayName()).thenReturn(name);
+    when(computer.isOnline()).thenReturn(online);
+    when(computer.isOffline()).thenReturn(!online);
+    when(computer.countExecutors()).thenReturn(4);
+    when(computer.countBusy()).thenReturn(1);
+
+    return computer;
+  }
+
+  @Test
+  public void eventsShouldUseCachedMonitorData() {
+    Computer online = mockComputer("linux-1", true);
+    Computer offline = mockComputer("linux-2", false);
+    NodeMonitor diskMonitor = mock(NodeMonitor.class);
+    NodeMonitor tempMonitor = mock(TemporarySpaceMonitor.class);
+    NodeMonitor clockMonitor = mock(NodeMonitor.class);
+
+    when(offline.getOfflineCauseReason()).thenReturn("Disconnected");
+    when(diskMonitor.data(online)).thenReturn(new DiskSpace("/var/jenkins", 2048));
+    when(tempMonitor.data(online)).thenReturn(new DiskSpace("/tmp", 1024));
+    when(clockMonitor.data(online)).thenReturn(new ClockDifference(-25));
+
+    new NodeHealthEventProducer(this.eventHelper).recordEvents(
+        new Computer[] { online, offline },
+        Arrays.asList(diskMonitor, tempMonitor, clockMonitor)
+    );
+
+    ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+
+    verify(this.eventHelper, times(2)).recordEvent(captor.capture());
+
+    List<Event> events = captor.getAllValues();
+    Event onlineEvent = events.get(0);
+    Event offlineEvent = events.get(1);
+
+    Assert.assertEquals("JenkinsNodeHealthEvent", onlineEvent.get(Event.PROPERTY_NAME_EVENT_TYPE));
+    Assert.assertEquals("linux-1", onlineEvent.get("nodeName"));
+    Assert.assertEquals(true, onlineEvent.get("nodeOnline"));
+    Assert.assertEquals(4, onlineEvent.get("nodeExecutorCount"));
+    Assert.assertEquals(1, onlineEvent.get("nodeExecutorsInUse"));
+    Assert.assertEquals(2048L, onlineEvent.get("diskSpaceFree"));
+    Assert.assertEquals("/var/jenkins", onlineEvent.get("diskSpacePath"));
+    Assert.assertEquals(1024L, onlineEvent.get("tempSpaceFree"));
+    Assert.assertEquals("/tmp", onlineEvent.get("tempSpacePath"));
+    Assert.assertEquals(-25L, onlineEvent.get("clockDifference"));
+    Assert.assertNull(onlineEvent.get("nodeOfflineCause"));
+
+    Assert.assertEquals(false, offlineEvent.get("nodeOnline"));
+    Assert.assertEquals("Disconnected", offlineEvent.get("nodeOfflineCause"));
+    Assert.assertNull(offlineEvent.get("diskSpaceFree"));
+    Assert.assertNull(offlineEvent.get("clockDifference"));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.Mockito.mock;
+
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.jenkins.events.QueueTransitionEventProducer.QueueTransition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueueTransitionEventProducerTest {
+
+  private static QueueTransitionEventProducer createProducer() {
+    return new QueueTransitionEventProducer(mock(EventHelper.class));
+  }
+
+  @Test
+  public void transitionsShouldBeCoalescedByCause() {
+    QueueTransitionEventProducer producer = createProducer();
+
+    for (long id = 1; id <= 7; id += 1) {
+      producer.record(QueueTransition.BLOCKED, "Waiting for next available executor", id, "job");
+    }
+    producer.record(QueueTransition.WAITING, null, 8, "other");
+
+    Event[] events = producer.popEvents();
+
+    Assert.assertEquals(2, events.length);
+
+    Event blocked = "blocked".equals(events[0].get("queueTransition")) ? events[0] : events[1];
+
+    Assert.assertEquals("Waiting for next available executor", blocked.get("queueCause"));
+    Assert.assertEquals(7L, blocked.get("queueTransitionCount"));
+    Assert.assertEquals("1,2,3,4,5", blocked.get("queueSampleItemIds"));
+    Assert.assertEquals("job", blocked.get("queueSampleTaskName"));
+    Assert.assertEquals(0, producer.popEvents().length);
+  }
+
+  @Test
+  public void transitionsAfterPopShouldStartNewAggregate() {
+    QueueTransitionEventProducer producer = createProducer();
+
+    producer.record(QueueTransition.WAITING, null, 1, "job");
+    Assert.assertEquals(1L, producer.popEvents()[0].get("queueTransitionCount"));
+
+    producer.record(QueueTransition.WAITING, null, 2, "job");
+    producer.record(QueueTransition.WAITING, null, 3, "job");
+
+    Event[] events = producer.popEvents();
+
+    Assert.assertEquals(1, events.length);
+    Assert.assertEquals(2L, events[0].get("queueTransitionCount"));
+    Assert.assertEquals("2,3", events[0].get("queueSampleItemIds"));
+  }
+
+  @Test
+  public void causesBeyondMaxAggregatesShouldBeDropped() {
+    QueueTransitionEventProducer producer = createProducer();
+    int max = QueueTransitionEventProducer.MAX_AGGREGATES;
+
+    for (int index = 0; index < max + 10; index += 1) {
+      producer.record(QueueTransition.BLOCKED, "cause " + index, index, "job");
+    }
+
+    Assert.assertEquals(max, producer.popEvents().length);
+
+    producer.record(QueueTransition.BLOCKED, "cause " + (max + 1), 1, "job");
+    Assert.assertEquals(1, producer.popEvents().length);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.events;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.newrelic.experts.client.model.Event;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class StageEventTrackerTest {
+
+  private final EventHelper eventHelper = mock(EventHelper.class);
+
+  private StageEventTracker createTracker() {
+    return new StageEventTracker(this.eventHelper);
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private List<List<Event>> recordedBatches(int count) {
+    ArgumentCaptor<List<Event>> captor = ArgumentCaptor.forClass((Class) List.class);
+
+    verify(this.eventHelper, times(count)).recordEvents(captor.capture());
+
+    return captor.getAllValues();
+  }
+
+  private static Map<String, Object> buildAttributes() {
+    return Collections.<String, Object>singletonMap("buildId", "7");
+  }
+
+  @Test
+  public void testStagesAreRecordedAsOneBatchWhenRunFinishes() {
+    StageEventTracker tracker = createTracker();
+
+    tracker.startRun("job#7");
+    tracker.recordAgent("job#7", Arrays.asList("4"), "linux-1");
+    tracker.recordStage("job#7", "4", "Build", 1000, 4000, "SUCCESS", null);
+    tracker.recordStage("job#7", "20", "Test", 4000, 4500, "UNSTABLE", "built-in");
+
+    verify(this.eventHelper, never()).recordEvents(any());
+
+    tracker.finishRun("job#7", buildAttributes());
+
+    List<Event> events = recordedBatches(1).get(0);
+    Event build = events.get(0);
+    Event test = events.get(1);
+
+    Assert.assertEquals(2, events.size());
+    Assert.assertEquals("AppBuildStageEvent", build.get(Event.PROPERTY_NAME_EVENT_TYPE));
+    Assert.assertEquals("Build", build.get("stageName"));
+    Assert.assertEquals(3000L, build.get("stageDuration"));
+    Assert.assertEquals(1000L, build.get("timestamp"));
+    Assert.assertEquals("linux-1", build.get("stageAgentName"));
+    Assert.assertEquals("7", build.get("buildId"));
+    Assert.assertEquals("UNSTABLE", test.get("stageStatus"));
+    Assert.assertEquals("built-in", test.get("stageAgentName"));
+
+    tracker.finishRun("job#7", buildAttributes());
+    verify(this.eventHelper, times(1)).recordEvents(any());
+  }
+
+  @Test
+  public void testUntrackedRunsAreIgnored() {
+    StageEventTracker tracker = createTracker();
+
+    tracker.recordStage("job#7", "4", "Build", 1000, 4000, "SUCCESS", null);
+    tracker.finishRun("job#7", buildAttributes());
+
+    verify(this.eventHelper, never()).recordEvents(any());
+  }
+
+  @Test
+  public void testStagesPerRunAreBounded() {
+    StageEventTracker tracker = createTracker();
+
+    tracker.startRun("job#7");
+    for (int index = 0; index < StageEventTracker.MAX_STAGES_PER_RUN + 5; index += 1) {
+      tracker.recordStage("job#7", "n" + index, "Stage", 0, 1, "SUCCESS", null);
+    }
+    tracker.finishRun("job#7", buildAttributes());
+
+    Assert.assertEquals(StageEventTracker.MAX_STAGES_PER_RUN, recordedBatches(1).get(0).size());
+  }
+
+  @Test
+  public void testStageAgentsAreReleasedWhenStagesEnd() {
+    StageEventTracker tracker = createTracker();
+
+    tracker.startRun("job#7");
+    for (int index = 0; index < StageEventTracker.MAX_STAGES_PER_RUN; index += 1) {
+      tracker.recordAgent("job#7", Arrays.asList("n" + index), "agent-" + index);
+      tracker.recordStage("job#7", "n" + index, "Stage", 0, 1, "SUCCESS", null);
+    }
+    tracker.finishRun("job#7", buildAttributes());
+
+    List<Event> events = recordedBatches(1).get(0);
+
+    Assert.assertEquals(StageEventTracker.MAX_STAGES_PER_RUN, events.size());
+    for (int index = 0; index < events.size(); index += 1) {
+      Assert.assertEquals("agent-" + index, events.get(index).get("stageAgentName"));
+    }
+  }
+}
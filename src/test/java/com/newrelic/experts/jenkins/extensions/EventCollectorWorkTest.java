@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.newrelic.experts.client.api.NewRelicClient;
+import com.newrelic.experts.client.model.Event;
+import com.newrelic.experts.client.model.MetricBatch;
+import com.newrelic.experts.client.model.SpanBatch;
+import com.newrelic.experts.jenkins.events.BuildDeletionAccumulator;
+import com.newrelic.experts.jenkins.events.BuildLatencyAggregator;
+import com.newrelic.experts.jenkins.events.BuildSpanTracker;
+import com.newrelic.experts.jenkins.events.EventHelper;
+import com.newrelic.experts.jenkins.events.EventSinkFanout;
+import com.newrelic.experts.jenkins.events.GaugeAggregator;
+import com.newrelic.experts.jenkins.events.GcPauseEventProducer;
+import com.newrelic.experts.jenkins.events.QueueTransitionEventProducer;
+import com.newrelic.experts.jenkins.events.QueueWaitTimeEventProducer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class EventCollectorWorkTest {
+
+  private final NewRelicGlobalConfiguration nrjConfig = mock(NewRelicGlobalConfiguration.class);
+  private final EventHelper eventHelper = mock(EventHelper.class);
+  private final EventSinkFanout fanout = mock(EventSinkFanout.class);
+  private final QueueTransitionEventProducer queueTransitionProducer =
+      mock(QueueTransitionEventProducer.class);
+  private final GaugeAggregator gaugeAggregator = mock(GaugeAggregator.class);
+  private final BuildSpanTracker spanTracker = mock(BuildSpanTracker.class);
+  private final NewRelicClient client = mock(NewRelicClient.class);
+  private final Event[] events = new Event[] { new Event("TestEvent") };
+  private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+  @Before
+  public void setUp() {
+    MetricBatch batch = new MetricBatch();
+
+    batch.setMetrics(Collections.emptyList());
+
+    when(this.nrjConfig.getInsightsInsertCredentials())
+        .thenReturn(mock(StandardUsernamePasswordCredentials.class));
+    when(this.eventHelper.popEvents()).thenReturn(this.events);
+    when(this.queueTransitionProducer.popEvents()).thenReturn(new Event[0]);
+    when(this.spanTracker.popBatches(any())).thenReturn(new SpanBatch[] { new SpanBatch() });
+    when(this.gaugeAggregator.harvest(any())).thenReturn(batch);
+  }
+
+  private EventCollectorWork createWork(Executor worker) {
+    return new EventCollectorWork(
+        this.nrjConfig,
+        this.eventHelper,
+        this.fanout,
+        mock(QueueWaitTimeEventProducer.class),
+        this.queueTransitionProducer,
+        mock(GcPauseEventProducer.class),
+        mock(BuildDeletionAccumulator.class),
+        this.gaugeAggregator,
+        mock(BuildLatencyAggregator.class),
+        this.spanTracker,
+        this.client,
+        worker,
+        worker
+    );
+  }
+
+  @Test
+  public void metricsAndSpansShouldBeSentByTheWorkers() throws Exception {
+    createWork(this.tasks::add).doRun();
+
+    verify(this.fanout).publish(this.events);
+    verify(this.client, never()).recordMetrics(any(), any(), any());
+    verify(this.client, never()).recordSpans(any(), any(), any());
+    Assert.assertEquals(2, this.tasks.size());
+  }
+
+  @Test
+  public void fullWorkersShouldNotFailTheHarvest() throws Exception {
+    createWork(task -> {
+      throw new RejectedExecutionException();
+    }).doRun();
+
+    verify(this.fanout).publish(this.events);
+    verify(this.client, never()).recordMetrics(any(), any(), any());
+    verify(this.client, never()).recordSpans(any(), any(), any());
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0 
+ */
+
+package com.newrelic.experts.jenkins.extensions;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.experts.jenkins.events.NodeHealthEventProducer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NodeHealthEventWorkTest {
+
+  private final NewRelicGlobalConfiguration nrjConfig = mock(NewRelicGlobalConfiguration.class);
+  private final NodeHealthEventProducer producer = mock(NodeHealthEventProducer.class);
+
+  @Test
+  public void zeroIntervalShouldDisableSampling() throws Exception {
+    when(this.nrjConfig.getNodeHealthSampleInterval()).thenReturn(0);
+
+    NodeHealthEventWork work = new NodeHealthEventWork(this.nrjConfig, this.producer);
+
+    work.doRun();
+
+    verify(this.producer, never()).recordEvents();
+    Assert.assertEquals(60000, work.getRecurrencePeriod());
+  }
+
+  @Test
+  public void positiveIntervalShouldSampleAtThatInterval() throws Exception {
+    when(this.nrjConfig.getNodeHealthSampleInterval()).thenReturn(30);
+
+    NodeHealthEventWork work = new NodeHealthEventWork(this.nrjConfig, this.producer);
+
+    work.doRun();
+
+    verify(this.producer, times(1)).recordEvents();
+    Assert.assertEquals(30000, work.getRecurrencePeriod());
+  }
+}